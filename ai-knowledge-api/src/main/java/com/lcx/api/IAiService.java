@@ -1,5 +1,6 @@
 package com.lcx.api;
 
+import com.lcx.api.dto.RagSearchOptions;
 import org.springframework.ai.chat.model.ChatResponse;
 import reactor.core.publisher.Flux;
 
@@ -94,6 +95,42 @@ public interface IAiService {
      * @throws IllegalArgumentException 当模型名称、RAG 标签或消息为空时抛出
      * @throws RuntimeException 当 AI 服务调用失败时抛出
      */
-    Flux<ChatResponse> generateStreamRag(String model, String ragTag, String message);
+    default Flux<ChatResponse> generateStreamRag(String model, String ragTag, String message) {
+        return generateStreamRag(model, ragTag, message, null);
+    }
+
+    /**
+     * 按指定检索参数流式生成 RAG AI 回复
+     * <p>
+     * 与 {@link #generateStreamRag(String, String, String)} 相同，检索阶段使用请求指定的参数，
+     * 未指定的参数使用全局配置。
+     * </p>
+     *
+     * @param model         使用的 AI 模型名称
+     * @param ragTag        RAG 标签，用于从向量数据库中检索相关文档
+     * @param message       用户输入的消息内容
+     * @param searchOptions 检索参数，为 null 时全部使用全局配置
+     * @return AI 生成的回复流，可以实时订阅获取生成的内容片段
+     */
+    default Flux<ChatResponse> generateStreamRag(String model, String ragTag, String message,
+                                                 RagSearchOptions searchOptions) {
+        return generateStreamRag(model, ragTag != null && !ragTag.isBlank() ? List.of(ragTag) : List.of(),
+                message, searchOptions);
+    }
+
+    /**
+     * 跨多个知识库流式生成 RAG AI 回复
+     * <p>
+     * 各知识库并发检索，结果按相似度合并后作为上下文，耗时接近检索单个知识库。
+     * </p>
+     *
+     * @param model         使用的 AI 模型名称
+     * @param ragTags       RAG 标签列表，为空时检索全部文档
+     * @param message       用户输入的消息内容
+     * @param searchOptions 检索参数，为 null 时全部使用全局配置
+     * @return AI 生成的回复流，可以实时订阅获取生成的内容片段
+     */
+    Flux<ChatResponse> generateStreamRag(String model, List<String> ragTags, String message,
+                                         RagSearchOptions searchOptions);
 
 }
@@ -2,7 +2,7 @@ package com.lcx.api;
 
 import com.lcx.api.dto.FileUploadRequest;
 import com.lcx.api.dto.GitRepositoryRequest;
-import com.lcx.api.exception.SystemException;
+import com.lcx.api.exception.BusinessException;
 
 import java.util.List;
 
@@ -25,7 +25,7 @@ public interface IRagService {
     /**
      * 上传文件到知识库
      *
-     * <p>处理用户上传的文档文件，包括以下步骤：</p>
+     * <p>将上传的文件转存到临时目录后提交后台导入任务并立即返回任务ID，任务依次执行以下步骤：</p>
      * <ol>
      *   <li>使用TikaDocumentReader解析文档内容</li>
      *   <li>使用TokenTextSplitter将文档分割成文本块</li>
@@ -43,24 +43,25 @@ public interface IRagService {
      * </ul>
      *
      * @param request 文件上传请求，包含知识库标签和文件列表
-     * @return 上传结果的响应信息
-     * @throws IllegalArgumentException 当ragTag为空或files为空时抛出
+     * @return 导入任务ID，可用于查询导入状态与进度
+     * @throws BusinessException 当files为空或导入任务排队已满时抛出
      */
     String uploadFile(FileUploadRequest request);
 
     /**
      * 分析Git仓库并导入知识库
      *
-     * <p>克隆指定的Git仓库，解析其中的文档文件，并将内容导入到知识库中，包括以下步骤：</p>
+     * <p>提交后台导入任务并立即返回任务ID，任务克隆指定的Git仓库，解析其中的文档文件，
+     * 并将内容导入到知识库中，包括以下步骤：</p>
      * <ol>
-     *   <li>使用提供的凭据克隆Git仓库到本地临时目录</li>
-     *   <li>遍历仓库中的所有文件，过滤出支持的文档类型</li>
+     *   <li>使用提供的凭据克隆Git仓库到本地目录，已有本地副本时只拉取新提交</li>
+     *   <li>对比Redis中记录的上次导入提交：有记录时只处理变更文件并删除已移除文件的文本块，
+     *       否则遍历仓库中的所有文件，过滤出支持的文档类型</li>
      *   <li>使用TikaDocumentReader解析文档内容</li>
      *   <li>使用TokenTextSplitter将文档分割成文本块</li>
      *   <li>为每个文档块添加知识库标签元数据</li>
      *   <li>将处理后的文档存储到PostgreSQL向量数据库</li>
-     *   <li>更新Redis中的标签列表</li>
-     *   <li>清理本地临时文件</li>
+     *   <li>更新Redis中的标签列表与本次导入的提交</li>
      * </ol>
      *
      * <p>支持的仓库类型：</p>
@@ -78,8 +79,8 @@ public interface IRagService {
      * </ul>
      *
      * @param request Git仓库分析请求，包含仓库地址、用户名和访问令牌
-     * @return 分析结果的详细信息，包含处理的文件数量、项目名称等
-     * @throws SystemException 当系统级操作失败时抛出
+     * @return 导入任务ID，任务完成后其结果描述包含处理的文件数量、项目名称等
+     * @throws BusinessException 当导入任务排队已满时抛出
      */
     String analyzeGitRepository(GitRepositoryRequest request);
 
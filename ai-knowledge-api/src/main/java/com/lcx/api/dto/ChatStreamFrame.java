@@ -0,0 +1,88 @@
+package com.lcx.api.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.Data;
+
+/**
+ * 精简流式回复帧数据传输对象
+ * <p>
+ * 增量流式接口（generate_stream_delta、generate_stream_rag_delta）的SSE事件数据。
+ * 与完整的 ChatResponse 相比只包含新增的文本，空字段不序列化：
+ * <ul>
+ *   <li>增量帧：{"delta":"..."}，包含一个合并时间窗口内生成的全部文本</li>
+ *   <li>结束帧：事件名为 done，{"done":true,"finishReason":"STOP","promptTokens":..}，
+ *       结束原因与token用量只在该帧中出现</li>
+ * </ul>
+ * </p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Data
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ChatStreamFrame {
+
+    /**
+     * 新增的回复文本
+     */
+    private String delta;
+
+    /**
+     * 是否为结束帧
+     */
+    private Boolean done;
+
+    /**
+     * 结束原因，由模型服务返回
+     */
+    private String finishReason;
+
+    /**
+     * 提示词token数，模型服务未返回用量时为空
+     */
+    private Integer promptTokens;
+
+    /**
+     * 回复token数，模型服务未返回用量时为空
+     */
+    private Integer completionTokens;
+
+    /**
+     * 总token数，模型服务未返回用量时为空
+     */
+    private Integer totalTokens;
+
+    /**
+     * 创建增量帧
+     *
+     * @param text 新增的回复文本
+     * @return 增量帧
+     */
+    public static ChatStreamFrame delta(String text) {
+        ChatStreamFrame frame = new ChatStreamFrame();
+        frame.setDelta(text);
+        return frame;
+    }
+
+    /**
+     * 创建结束帧
+     *
+     * @param finishReason     结束原因
+     * @param promptTokens     提示词token数
+     * @param completionTokens 回复token数
+     * @param totalTokens      总token数
+     * @return 结束帧
+     */
+    public static ChatStreamFrame done(String finishReason, Integer promptTokens, Integer completionTokens,
+                                       Integer totalTokens) {
+        ChatStreamFrame frame = new ChatStreamFrame();
+        frame.setDone(true);
+        frame.setFinishReason(finishReason);
+        frame.setPromptTokens(promptTokens);
+        frame.setCompletionTokens(completionTokens);
+        frame.setTotalTokens(totalTokens);
+        return frame;
+    }
+
+}
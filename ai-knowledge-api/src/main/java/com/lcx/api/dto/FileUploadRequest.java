@@ -41,7 +41,7 @@ public class FileUploadRequest {
     /**
      * 单个文件校验
      */
-    @FileSize(max = 10 * 1024 * 1024, message = "文件大小不能超过10MB")
+    @FileSize(max = 512L * 1024 * 1024, message = "文件大小不能超过512MB")
     @FileType(message = "不支持的文件类型")
     private MultipartFile file;
 }
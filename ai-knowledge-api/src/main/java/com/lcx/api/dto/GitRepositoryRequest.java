@@ -99,4 +99,14 @@ public class GitRepositoryRequest {
      */
     @Size(max = 256, message = "token长度必须在1-256个字符之间")
     private String token = "";
-}
\ No newline at end of file
+
+    /**
+     * 是否强制全量同步
+     * <p>
+     * 默认根据上次导入的提交做增量同步，只重新导入变更的文件。
+     * 设置为 true 时忽略同步记录，重新导入整个仓库，全部文件导入成功后再删除该仓库旧版本的文本块，
+     * 有文件导入失败时保留旧版本，下次同步重新全量导入。同一标签下上传的文档不受影响。
+     * </p>
+     */
+    private boolean fullSync = false;
+}
@@ -0,0 +1,98 @@
+package com.lcx.api.dto;
+
+import lombok.Data;
+
+/**
+ * 知识库导入任务状态数据传输对象
+ * <p>
+ * 文件上传与Git仓库导入以后台任务方式执行，提交后立即返回任务ID，
+ * 客户端通过任务状态查询接口或SSE进度流获取该对象。
+ * </p>
+ * <p>
+ * 任务状态流转：
+ * <ul>
+ *   <li>QUEUED - 已提交，等待工作线程</li>
+ *   <li>RUNNING - 正在导入，计数器实时更新</li>
+ *   <li>SUCCEEDED - 导入完成</li>
+ *   <li>FAILED - 导入失败，message 为失败原因</li>
+ * </ul>
+ * </p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Data
+public class IngestionJobStatus {
+
+    /**
+     * 任务状态
+     */
+    public enum State {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+
+    /**
+     * 任务ID
+     */
+    private String jobId;
+
+    /**
+     * 任务类型：upload 或 git
+     */
+    private String type;
+
+    /**
+     * 知识库标签
+     */
+    private String ragTag;
+
+    /**
+     * 任务状态
+     */
+    private State state;
+
+    /**
+     * 已写入向量库的文件数
+     */
+    private int files;
+
+    /**
+     * 已写入向量库的文本块数
+     */
+    private int chunks;
+
+    /**
+     * 处理失败的文件数
+     */
+    private int errors;
+
+    /**
+     * 自开始执行以来的耗时（毫秒）
+     */
+    private long elapsedMs;
+
+    /**
+     * 结果描述，任务结束后为导入结果或失败原因
+     */
+    private String message;
+
+    /**
+     * 提交时间（毫秒时间戳）
+     */
+    private long createdAt;
+
+    /**
+     * 最近一次状态更新时间（毫秒时间戳）
+     */
+    private long updatedAt;
+
+    /**
+     * 任务是否已结束
+     *
+     * @return 状态为 SUCCEEDED 或 FAILED 时返回 true
+     */
+    public boolean isFinished() {
+        return state == State.SUCCEEDED || state == State.FAILED;
+    }
+}
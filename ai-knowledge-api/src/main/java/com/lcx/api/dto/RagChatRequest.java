@@ -1,14 +1,20 @@
 package com.lcx.api.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 
+import java.util.List;
+
 /**
  * RAG 对话请求数据传输对象
  * <p>
  * 继承自 ChatRequest，增加了 RAG（检索增强生成）功能所需的标签字段。
+ * 可以通过 ragTag 指定单个知识库，或通过 ragTags 同时检索多个知识库，两者至少指定一个。
  * 该 DTO 用于基于知识库的 AI 对话请求，通过 RAG 标签从向量数据库中检索相关文档，
  * 然后将检索到的文档作为上下文信息与用户消息一起发送给 AI 模型。
  * </p>
@@ -50,8 +56,8 @@ public class RagChatRequest extends ChatRequest {
      * <p>
      * 验证规则：
      * <ul>
-     *   <li>不能为空或空白字符串</li>
-     *   <li>长度必须在 1-32 个字符之间</li>
+     *   <li>未指定 ragTags 时不能为空或空白字符串</li>
+     *   <li>长度不能超过 32 个字符</li>
      * </ul>
      * </p>
      * <p>
@@ -63,8 +69,41 @@ public class RagChatRequest extends ChatRequest {
      * </ul>
      * </p>
      */
-    @NotBlank(message = "标签不能为空")
-    @Size(min = 1, max = 32, message = "标签名称长度必须在1-32个字符之间")
+    @Size(max = 32, message = "标签名称长度必须在1-32个字符之间")
     private String ragTag;
 
+    /**
+     * 多个 RAG 标签
+     * <p>
+     * 同时检索多个知识库，各知识库并发检索后按相似度合并结果。
+     * 与 ragTag 同时指定时，两者合并后去重。
+     * </p>
+     * <p>
+     * 验证规则：最多 8 个标签，每个标签不能为空且长度在 1-32 个字符之间
+     * </p>
+     */
+    @Size(max = 8, message = "一次最多检索8个标签")
+    private List<@NotBlank(message = "标签不能为空") @Size(min = 1, max = 32, message = "标签名称长度必须在1-32个字符之间") String> ragTags;
+
+    /**
+     * 检索参数
+     * <p>
+     * 可选，用于按请求调整返回文档数、HNSW 候选列表大小与相似度阈值，
+     * 未指定时使用全局配置。
+     * </p>
+     */
+    @Valid
+    private RagSearchOptions searchOptions;
+
+    /**
+     * 校验 ragTag 与 ragTags 至少指定一个
+     *
+     * @return 指定了至少一个标签时返回 true
+     */
+    @JsonIgnore
+    @AssertTrue(message = "标签不能为空")
+    public boolean isTagSpecified() {
+        return (ragTag != null && !ragTag.isBlank()) || (ragTags != null && !ragTags.isEmpty());
+    }
+
 }
@@ -0,0 +1,54 @@
+package com.lcx.api.dto;
+
+import jakarta.validation.constraints.DecimalMax;
+import jakarta.validation.constraints.DecimalMin;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import lombok.Data;
+
+/**
+ * RAG 检索参数数据传输对象
+ * <p>
+ * 按请求覆盖向量检索的参数，未指定的字段使用全局配置（rag.vector）。
+ * 通过调整 efSearch 与 similarityThreshold，可以在检索延迟与召回率之间选择合适的平衡点。
+ * 新增字段时须同时加入相同请求合并器（RequestCoalescer）的合并键，否则参数不同的请求会被合并。
+ * </p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Data
+public class RagSearchOptions {
+
+    /**
+     * 返回的文档数
+     * <p>
+     * 验证规则：1-50
+     * </p>
+     */
+    @Min(value = 1, message = "topK不能小于1")
+    @Max(value = 50, message = "topK不能大于50")
+    private Integer topK;
+
+    /**
+     * HNSW 检索时的候选列表大小（hnsw.ef_search）
+     * <p>
+     * 越大召回率越高、延迟越大，实际生效值不小于 topK。验证规则：1-1000
+     * </p>
+     */
+    @Min(value = 1, message = "efSearch不能小于1")
+    @Max(value = 1000, message = "efSearch不能大于1000")
+    private Integer efSearch;
+
+    /**
+     * 相似度阈值
+     * <p>
+     * 相似度（1 - 距离）低于该值的文档不返回。验证规则：0-1
+     * </p>
+     */
+    @DecimalMin(value = "0.0", message = "相似度阈值不能小于0")
+    @DecimalMax(value = "1.0", message = "相似度阈值不能大于1")
+    private Double similarityThreshold;
+
+}
@@ -0,0 +1,36 @@
+package com.lcx.api.exception;
+
+import com.lcx.api.response.ResponseCode;
+import lombok.Getter;
+
+/**
+ * 请求过多异常
+ * <p>
+ * 用于服务端主动限流（如模型并发已满且等待队列已满）的情况。
+ * 由全局异常处理器转换为HTTP 429响应，并通过Retry-After响应头告知客户端建议的重试间隔。
+ * </p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Getter
+public class TooManyRequestsException extends BusinessException {
+
+    /**
+     * 建议客户端等待的秒数
+     */
+    private final long retryAfterSeconds;
+
+    /**
+     * 构造函数
+     *
+     * @param message           错误消息
+     * @param retryAfterSeconds 建议客户端等待的秒数
+     */
+    public TooManyRequestsException(String message, long retryAfterSeconds) {
+        super(ResponseCode.TOO_MANY_REQUESTS.getCode(), message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+}
@@ -1,14 +1,34 @@
 package com.lcx.app.config;
 
+import com.lcx.trigger.chat.AnswerCacheProperties;
+import com.lcx.trigger.chat.ContextPackerProperties;
+import com.lcx.trigger.chat.ModelBulkheadProperties;
+import com.lcx.trigger.chat.RetrievalProperties;
+import com.lcx.trigger.chat.StreamProperties;
+import com.lcx.trigger.metrics.RagMetricsProperties;
 import jakarta.annotation.Resource;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 @Configuration
+@EnableConfigurationProperties({AnswerCacheProperties.class, ContextPackerProperties.class, RetrievalProperties.class,
+        StreamProperties.class, ModelBulkheadProperties.class, RagMetricsProperties.class})
 public class ChatClientConfig {
 
     @Resource
     private ChatClient.Builder chatClientBuilder;
 
+    /**
+     * RAG检索阶段调度器，线程数与等待队列均有上限，阻塞的嵌入请求与向量查询不占用请求线程
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler ragRetrievalScheduler(RetrievalProperties properties) {
+        return Schedulers.newBoundedElastic(Math.max(1, properties.getWorkers()),
+                Math.max(1, properties.getQueueCapacity()), "rag-retrieval");
+    }
 
 }
@@ -3,6 +3,7 @@ package com.lcx.app.config;
 import com.lcx.api.exception.BaseException;
 import com.lcx.api.exception.BusinessException;
 import com.lcx.api.exception.SystemException;
+import com.lcx.api.exception.TooManyRequestsException;
 import com.lcx.api.logging.LogConstants;
 import com.lcx.api.logging.context.LogContext;
 import com.lcx.api.logging.enums.BusinessModuleEnum;
@@ -13,6 +14,10 @@ import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.BindException;
 import org.springframework.validation.FieldError;
@@ -150,6 +155,36 @@ public class GlobalExceptionHandler {
         return Response.failure(e.getCode(), e.getMessage());
     }
 
+    /**
+     * 处理请求过多异常
+     *
+     * <p>返回HTTP 429与Retry-After响应头，便于客户端与网关按标准语义退避重试。</p>
+     * <p>流式接口须在返回回复流之前抛出才由此处理（响应体固定为JSON）；返回回复流之后的拒绝
+     * 作为流中的错误送达，SSE响应已经开始，无法再改为429。</p>
+     *
+     * @param request HTTP请求对象
+     * @param e TooManyRequestsException异常实例
+     * @return 状态码为429的错误响应
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Response<Void>> handleTooManyRequestsException(HttpServletRequest request,
+                                                                         TooManyRequestsException e) {
+        log.warn("EXCEPTION: type=TooManyRequestsException, code={}, msg={}, retryAfter={}, uri={}",
+                e.getCode(), e.getMessage(), e.getRetryAfterSeconds(), request.getRequestURI());
+
+        StructuredLogger.logSimpleFailure(
+                BusinessModuleEnum.SYSTEM.getCode(),
+                "TOO_MANY_REQUESTS",
+                "请求被限流: " + request.getRequestURI(),
+                String.format("code=%s, msg=%s, retryAfter=%d", e.getCode(), e.getMessage(), e.getRetryAfterSeconds())
+        );
+
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(Response.failure(e.getCode(), e.getMessage()));
+    }
+
     /**
      * 处理系统异常（企业级日志）
      *
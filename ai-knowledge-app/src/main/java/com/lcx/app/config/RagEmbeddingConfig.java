@@ -1,8 +1,25 @@
 package com.lcx.app.config;
 
+import com.lcx.trigger.embedding.CachingEmbeddingModel;
+import com.lcx.trigger.embedding.EmbeddingCacheProperties;
+import com.lcx.trigger.embedding.TimedEmbeddingModel;
+import com.lcx.trigger.ingestion.IngestionProperties;
+import com.lcx.trigger.ingestion.TokenWindowTextSplitter;
+import com.lcx.trigger.metrics.RagMetrics;
+import com.lcx.trigger.vector.VectorSearchProperties;
+import com.knuddels.jtokkit.api.EncodingType;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.redisson.api.RedissonClient;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.TokenCountBatchingStrategy;
+import org.springframework.ai.openai.OpenAiEmbeddingModel;
 import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 
 /**
  * RAG (Retrieval-Augmented Generation) 嵌入配置类
@@ -10,6 +27,8 @@ import org.springframework.context.annotation.Configuration;
  * @author lcx
  */
 @Configuration
+@EnableConfigurationProperties({IngestionProperties.class, EmbeddingCacheProperties.class,
+        VectorSearchProperties.class})
 public class RagEmbeddingConfig {
 
     /**
@@ -22,6 +41,8 @@ public class RagEmbeddingConfig {
      *   <li>优化检索精度</li>
      * </ul>
      *
+     * <p>源代码文件由按语法结构切分的分割器处理，该Bean作为其余文件的默认分割器。</p>
+     *
      * @return TokenTextSplitter实例，用于文档分块处理
      */
     @Bean
@@ -29,4 +50,80 @@ public class RagEmbeddingConfig {
         return new TokenTextSplitter();
     }
 
+    /**
+     * 配置基于字符窗口的文本分割器Bean
+     *
+     * <p>切分参数与默认的TokenTextSplitter一致，但不对整篇文档做token编码与解码，
+     * 导入流水线的分割阶段默认使用该分割器处理非源代码文件。</p>
+     *
+     * @return TokenWindowTextSplitter实例
+     */
+    @Bean
+    public TokenWindowTextSplitter tokenWindowTextSplitter() {
+        return new TokenWindowTextSplitter();
+    }
+
+    /**
+     * 配置带缓存的嵌入模型Bean
+     *
+     * <p>包装OpenAI嵌入模型并声明为首选的EmbeddingModel，向量库自动配置会使用该Bean，
+     * 因此写入文档时相同内容的文本块直接复用已缓存的向量，只对未命中的文本块调用嵌入服务；
+     * 检索时重复出现的问题也直接复用已缓存的问题向量。未命中的文本块经 {@link TimedEmbeddingModel}
+     * 调用嵌入服务，记录批量嵌入耗时。</p>
+     *
+     * @param openAiEmbeddingModel OpenAI嵌入模型
+     * @param embeddingModelName   嵌入模型名称，作为缓存键的一部分
+     * @param dimensions           嵌入向量维度，作为查询缓存键的一部分
+     * @param properties           缓存配置属性
+     * @param redissonClient       Redis客户端，用于共享缓存层
+     * @param meterRegistry        指标注册表，用于记录命中率
+     * @param ragMetrics           流水线指标，用于记录批量嵌入耗时
+     * @return CachingEmbeddingModel实例
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "rag.embedding.cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public CachingEmbeddingModel cachingEmbeddingModel(OpenAiEmbeddingModel openAiEmbeddingModel,
+                                                       @Value("${spring.ai.openai.embedding.options.model}") String embeddingModelName,
+                                                       @Value("${spring.ai.openai.embedding.options.dimensions:0}") int dimensions,
+                                                       EmbeddingCacheProperties properties,
+                                                       RedissonClient redissonClient,
+                                                       MeterRegistry meterRegistry,
+                                                       RagMetrics ragMetrics) {
+        return new CachingEmbeddingModel(new TimedEmbeddingModel(openAiEmbeddingModel, ragMetrics),
+                embeddingModelName, dimensions, properties, redissonClient, meterRegistry);
+    }
+
+    /**
+     * 配置记录耗时的嵌入模型Bean
+     *
+     * <p>未启用嵌入缓存时包装OpenAI嵌入模型并声明为首选的EmbeddingModel，
+     * 导入流水线仍能区分一次写入中嵌入与插入数据库各自的耗时。</p>
+     *
+     * @param openAiEmbeddingModel OpenAI嵌入模型
+     * @param ragMetrics           流水线指标，用于记录批量嵌入耗时
+     * @return TimedEmbeddingModel实例
+     */
+    @Bean
+    @Primary
+    @ConditionalOnProperty(prefix = "rag.embedding.cache", name = "enabled", havingValue = "false")
+    public TimedEmbeddingModel timedEmbeddingModel(OpenAiEmbeddingModel openAiEmbeddingModel, RagMetrics ragMetrics) {
+        return new TimedEmbeddingModel(openAiEmbeddingModel, ragMetrics);
+    }
+
+    /**
+     * 配置嵌入请求分批策略Bean
+     *
+     * <p>向量库写入一个批次时按该策略将文本块拆分为多次嵌入请求，每次请求的输入token数
+     * 不超过 rag.ingestion.batch.embed-request-max-tokens（预留10%余量）。</p>
+     *
+     * @param properties 导入流水线配置属性
+     * @return TokenCountBatchingStrategy实例
+     */
+    @Bean
+    public BatchingStrategy batchingStrategy(IngestionProperties properties) {
+        return new TokenCountBatchingStrategy(EncodingType.CL100K_BASE,
+                properties.getBatch().getEmbedRequestMaxTokens(), 0.1);
+    }
+
 }
@@ -1,5 +1,6 @@
 package com.lcx.app.config;
 
+import com.lcx.trigger.registry.RegistryCacheProperties;
 import org.redisson.Redisson;
 import org.redisson.api.RedissonClient;
 import org.redisson.codec.JsonJacksonCodec;
@@ -44,7 +45,7 @@ import org.springframework.context.annotation.Configuration;
  * @see <a href="https://github.com/redisson/redisson">Redisson官方文档</a>
  */
 @Configuration
-@EnableConfigurationProperties(RedisClientConfigProperties.class)
+@EnableConfigurationProperties({RedisClientConfigProperties.class, RegistryCacheProperties.class})
 public class RedisClientConfig {
 
     /**
@@ -1,8 +1,10 @@
 package com.lcx.app.config;
 
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.client.RestTemplate;
+import reactor.netty.resources.ConnectionProvider;
 
 /**
  * RestTemplate HTTP客户端配置类
@@ -58,35 +60,33 @@ public class RestTemplateConfig {
      * 创建RestTemplate Bean实例
      *
      * <p>该方法创建并配置一个RestTemplate实例，提供HTTP客户端功能。</p>
-     * <p>RestTemplate使用默认配置，包括默认的消息转换器和错误处理器。</p>
+     * <p>底层使用 upstream.http.rest 连接池（Reactor Netty），按目标主机限制连接数并复用keep-alive连接，
+     * 与模型服务的对话、嵌入连接池相互独立。</p>
      *
      * <p>默认配置包括：</p>
      * <ul>
      *   <li>消息转换器：支持JSON、XML、表单数据等格式转换</li>
      *   <li>字符编码：默认使用UTF-8编码</li>
-     *   <li>连接超时：使用系统默认超时设置</li>
-     *   <li>读取超时：使用系统默认超时设置</li>
+     *   <li>连接超时：upstream.http.rest.connect-timeout，默认5秒</li>
+     *   <li>读取超时：upstream.http.rest.response-timeout，默认30秒</li>
      * </ul>
      *
      * <p>可扩展配置：</p>
      * <ul>
      *   <li>添加拦截器：用于请求/响应的统一处理</li>
-     *   <li>自定义超时：设置连接和读取超时时间</li>
      *   <li>配置代理：支持HTTP代理设置</li>
      *   <li>SSL配置：支持HTTPS和证书验证</li>
      * </ul>
      *
-     * <p>性能优化建议：</p>
-     * <ul>
-     *   <li>使用连接池：配置HttpComponentsClientHttpRequestFactory</li>
-     *   <li>设置合理超时：避免长时间等待</li>
-     *   <li>复用实例：RestTemplate是线程安全的，建议单例使用</li>
-     * </ul>
-     *
-     * @return RestTemplate实例，配置了默认的HTTP客户端功能
+     * @param connectionProvider RestTemplate 专用连接池
+     * @param properties         上游HTTP客户端配置属性
+     * @return RestTemplate实例，配置了连接池与超时
      */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate restTemplate(@Qualifier("restConnectionProvider") ConnectionProvider connectionProvider,
+                                     UpstreamHttpProperties properties) {
+        UpstreamHttpProperties.PoolProperties pool = properties.getRest();
+        return new RestTemplate(UpstreamHttpClientConfig.requestFactory(
+                UpstreamHttpClientConfig.httpClient(connectionProvider, pool, false), pool));
     }
 }
@@ -0,0 +1,150 @@
+package com.lcx.app.config;
+
+import io.netty.channel.ChannelOption;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.RestClientCustomizer;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.client.ReactorClientHttpRequestFactory;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * 上游HTTP客户端配置类
+ *
+ * <p>为Spring AI的模型客户端与 RestTemplate 提供基于Reactor Netty的连接池：</p>
+ * <ul>
+ *   <li>对话：流式生成通过 WebClient 发送，使用 chat 连接池</li>
+ *   <li>嵌入：嵌入请求（以及同步的对话请求）通过 RestClient 发送，使用 embedding 连接池</li>
+ *   <li>RestTemplate：使用 rest 连接池</li>
+ * </ul>
+ *
+ * <p>连接池按目标主机限制连接数并复用keep-alive连接；模型服务地址为HTTPS时通过ALPN协商HTTP/2，
+ * 多个流复用同一连接。各连接池的指标以 reactor.netty.connection.provider 前缀暴露。</p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(UpstreamHttpProperties.class)
+public class UpstreamHttpClientConfig {
+
+    @Value("${spring.ai.openai.base-url}")
+    private String baseUrl;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider chatConnectionProvider(UpstreamHttpProperties properties) {
+        return connectionProvider("ai-chat", properties.getChat());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider embeddingConnectionProvider(UpstreamHttpProperties properties) {
+        return connectionProvider("ai-embedding", properties.getEmbedding());
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider restConnectionProvider(UpstreamHttpProperties properties) {
+        return connectionProvider("rest-template", properties.getRest());
+    }
+
+    /**
+     * 对话流式生成使用的 WebClient 连接器
+     */
+    @Bean
+    public WebClientCustomizer chatWebClientCustomizer(@Qualifier("chatConnectionProvider") ConnectionProvider provider,
+                                                       UpstreamHttpProperties properties) {
+        HttpClient httpClient = httpClient(provider, properties.getChat(), http2(properties));
+        return builder -> builder.clientConnector(new ReactorClientHttpConnector(httpClient));
+    }
+
+    /**
+     * 嵌入请求使用的 RestClient 请求工厂
+     */
+    @Bean
+    public RestClientCustomizer embeddingRestClientCustomizer(
+            @Qualifier("embeddingConnectionProvider") ConnectionProvider provider, UpstreamHttpProperties properties) {
+        return builder -> builder.requestFactory(requestFactory(
+                httpClient(provider, properties.getEmbedding(), http2(properties)), properties.getEmbedding()));
+    }
+
+    /**
+     * 启动后通过对话与嵌入连接池各建立一个到模型服务的连接
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmup(ApplicationReadyEvent event) {
+        UpstreamHttpProperties properties = event.getApplicationContext().getBean(UpstreamHttpProperties.class);
+        if (!properties.isWarmup()) {
+            return;
+        }
+        warmup("ai-chat", event.getApplicationContext().getBean("chatConnectionProvider", ConnectionProvider.class),
+                properties.getChat(), http2(properties));
+        warmup("ai-embedding", event.getApplicationContext().getBean("embeddingConnectionProvider", ConnectionProvider.class),
+                properties.getEmbedding(), http2(properties));
+    }
+
+    private void warmup(String name, ConnectionProvider provider, UpstreamHttpProperties.PoolProperties pool,
+                        boolean http2) {
+        HttpClient httpClient = httpClient(provider, pool, http2);
+        // 任意响应都说明连接已建立并归还连接池，响应状态不重要
+        httpClient.warmup()
+                .then(httpClient.get().uri(baseUrl)
+                        .responseSingle((response, body) -> body.then(Mono.just(response.status().code()))))
+                .timeout(Duration.ofSeconds(10))
+                .subscribe(
+                        status -> log.info("BIZ_INFO: op=httpWarmup, pool={}, url={}, status={}", name, baseUrl, status),
+                        error -> log.warn("BIZ_WARN: op=httpWarmup, pool={}, url={}, reason={}",
+                                name, baseUrl, error.toString()));
+    }
+
+    static ConnectionProvider connectionProvider(String name, UpstreamHttpProperties.PoolProperties pool) {
+        int maxConnections = Math.max(1, pool.getMaxConnections());
+        int pendingAcquireMaxCount = pool.getPendingAcquireMaxCount() > 0
+                ? pool.getPendingAcquireMaxCount() : maxConnections * 4;
+        return ConnectionProvider.builder(name)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pool.getPendingAcquireTimeout())
+                .maxIdleTime(pool.getMaxIdleTime())
+                .maxLifeTime(pool.getMaxLifeTime())
+                .evictInBackground(Duration.ofSeconds(30))
+                .metrics(true)
+                .build();
+    }
+
+    static HttpClient httpClient(ConnectionProvider provider, UpstreamHttpProperties.PoolProperties pool,
+                                 boolean http2) {
+        HttpClient httpClient = HttpClient.create(provider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) pool.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .keepAlive(true)
+                .responseTimeout(pool.getResponseTimeout());
+        // HTTP/2需要TLS与ALPN，明文地址保持HTTP/1.1
+        return http2 ? httpClient.protocol(HttpProtocol.H2, HttpProtocol.HTTP11).secure() : httpClient;
+    }
+
+    static ReactorClientHttpRequestFactory requestFactory(HttpClient httpClient,
+                                                          UpstreamHttpProperties.PoolProperties pool) {
+        ReactorClientHttpRequestFactory factory = new ReactorClientHttpRequestFactory(httpClient);
+        factory.setReadTimeout(pool.getResponseTimeout());
+        return factory;
+    }
+
+    private boolean http2(UpstreamHttpProperties properties) {
+        return properties.isHttp2() && baseUrl.toLowerCase(Locale.ROOT).startsWith("https://");
+    }
+
+}
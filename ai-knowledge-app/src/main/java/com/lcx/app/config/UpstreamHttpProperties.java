@@ -0,0 +1,117 @@
+package com.lcx.app.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 上游HTTP客户端配置属性类
+ *
+ * <p>配置前缀：upstream.http</p>
+ * <p>模型服务的对话流与嵌入请求、以及 RestTemplate 各自使用独立的连接池与超时设置，
+ * 导入期间的大量嵌入请求不会占满对话流的连接。</p>
+ *
+ * <p>使用示例（application.yml）：</p>
+ * <pre>
+ * upstream:
+ *   http:
+ *     http2: true
+ *     warmup: true
+ *     chat:
+ *       max-connections: 100
+ *       response-timeout: 120s
+ *     embedding:
+ *       max-connections: 16
+ *       response-timeout: 60s
+ * </pre>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Data
+@ConfigurationProperties(prefix = "upstream.http", ignoreInvalidFields = true)
+public class UpstreamHttpProperties {
+
+    /**
+     * 模型服务地址为HTTPS时是否通过ALPN协商HTTP/2，默认为true
+     * <p>服务端不支持时自动使用HTTP/1.1；明文HTTP地址始终使用HTTP/1.1</p>
+     */
+    private boolean http2 = true;
+
+    /**
+     * 启动后是否预先建立到模型服务的连接，默认为true
+     * <p>首个请求不再承担DNS解析、TCP与TLS握手的耗时</p>
+     */
+    private boolean warmup = true;
+
+    /**
+     * 对话（流式生成）连接池
+     */
+    private PoolProperties chat = new PoolProperties(100, Duration.ofSeconds(120));
+
+    /**
+     * 嵌入请求连接池（同步的对话请求也使用该连接池）
+     */
+    private PoolProperties embedding = new PoolProperties(16, Duration.ofSeconds(60));
+
+    /**
+     * RestTemplate 连接池
+     */
+    private PoolProperties rest = new PoolProperties(20, Duration.ofSeconds(30));
+
+    /**
+     * 连接池配置属性
+     */
+    @Data
+    public static class PoolProperties {
+
+        /**
+         * 每个目标主机的最大连接数
+         */
+        private int maxConnections;
+
+        /**
+         * 连接已满时等待获取连接的最大请求数，默认为连接数的4倍，超出时请求立即失败
+         */
+        private int pendingAcquireMaxCount = -1;
+
+        /**
+         * 等待获取连接的超时时间，默认为10秒
+         */
+        private Duration pendingAcquireTimeout = Duration.ofSeconds(10);
+
+        /**
+         * 空闲连接的保留时间，默认为60秒，应小于模型服务端的keep-alive超时
+         */
+        private Duration maxIdleTime = Duration.ofSeconds(60);
+
+        /**
+         * 连接的最长使用时间，默认为10分钟，到期后不再复用，便于感知服务端DNS与负载均衡的变化
+         */
+        private Duration maxLifeTime = Duration.ofMinutes(10);
+
+        /**
+         * 建立连接的超时时间，默认为5秒
+         */
+        private Duration connectTimeout = Duration.ofSeconds(5);
+
+        /**
+         * 两次读取响应数据之间的最长间隔
+         * <p>对流式生成而言是相邻两个token之间允许的最长等待</p>
+         */
+        private Duration responseTimeout;
+
+        public PoolProperties() {
+            this(50, Duration.ofSeconds(60));
+        }
+
+        public PoolProperties(int maxConnections, Duration responseTimeout) {
+            this.maxConnections = maxConnections;
+            this.responseTimeout = responseTimeout;
+        }
+
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.lcx.app.benchmark;
+
+import com.lcx.trigger.ingestion.TokenWindowTextSplitter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 文本分割器基准测试
+ *
+ * <p>对比Spring AI的 TokenTextSplitter 与 {@link TokenWindowTextSplitter} 在同一语料上的吞吐与内存分配，
+ * 以4个线程并发执行，模拟导入流水线分割阶段的并行负载。</p>
+ *
+ * <p>语料默认取项目根目录下的 .md、.txt、.java 文件，可通过 -Dcorpus.dir=路径 指定。
+ * 运行方式（启用GC分析器，关注 gc.alloc.rate.norm 与 gc.count）：</p>
+ * <pre>
+ * mvn -pl ai-knowledge-app -am test-compile
+ * 在IDE中运行本类的 main 方法，或使用测试类路径执行：
+ * java -cp ai-knowledge-app/target/test-classes:&lt;测试类路径&gt; com.lcx.app.benchmark.TextSplitterBenchmark
+ * </pre>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xms1g", "-Xmx1g"})
+@Threads(4)
+public class TextSplitterBenchmark {
+
+    private static final int MAX_CORPUS_FILES = 500;
+
+    private List<Document> corpus;
+    private TextSplitter tokenTextSplitter;
+    private TextSplitter tokenWindowTextSplitter;
+
+    @Setup
+    public void setup() throws IOException {
+        Path corpusDir = Paths.get(System.getProperty("corpus.dir", ".."));
+        try (Stream<Path> files = Files.walk(corpusDir)) {
+            corpus = files.filter(Files::isRegularFile)
+                    .filter(path -> !path.toString().contains("node_modules") && !path.toString().contains("target"))
+                    .filter(path -> {
+                        String name = path.getFileName().toString();
+                        return name.endsWith(".md") || name.endsWith(".txt") || name.endsWith(".java");
+                    })
+                    .limit(MAX_CORPUS_FILES)
+                    .map(TextSplitterBenchmark::readDocument)
+                    .filter(Objects::nonNull)
+                    .toList();
+        }
+        if (corpus.isEmpty()) {
+            throw new IllegalStateException("语料目录中没有可用的文件: " + corpusDir.toAbsolutePath());
+        }
+        tokenTextSplitter = new TokenTextSplitter();
+        tokenWindowTextSplitter = new TokenWindowTextSplitter();
+    }
+
+    @Benchmark
+    public void tokenTextSplitter(Blackhole blackhole) {
+        blackhole.consume(tokenTextSplitter.apply(corpus));
+    }
+
+    @Benchmark
+    public void tokenWindowTextSplitter(Blackhole blackhole) {
+        blackhole.consume(tokenWindowTextSplitter.apply(corpus));
+    }
+
+    private static Document readDocument(Path path) {
+        try {
+            String text = Files.readString(path, StandardCharsets.UTF_8);
+            return text.isBlank() ? null : new Document(text, Map.of("source", path.toString()));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(TextSplitterBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+
+}
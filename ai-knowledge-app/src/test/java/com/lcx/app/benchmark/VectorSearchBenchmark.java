@@ -0,0 +1,217 @@
+package com.lcx.app.benchmark;
+
+import com.pgvector.PGvector;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * HNSW向量检索召回率与延迟基准测试
+ *
+ * <p>在合成语料上对比HNSW近似检索与精确检索（禁用索引扫描的顺序扫描）的结果，
+ * 对每个 ef_search 取值输出 recall@k 与 p50/p99 延迟，用于为 rag.vector.ef-search 选取
+ * 延迟与召回率的平衡点：</p>
+ * <ul>
+ *   <li>语料：围绕随机簇中心加噪声生成的单位向量，簇结构与真实文本嵌入的分布更接近</li>
+ *   <li>查询：在随机簇中心上加噪声得到，与已有文档相近但不重合</li>
+ *   <li>索引：与向量库相同的 hnsw (embedding vector_cosine_ops)，参数取pgvector默认值</li>
+ * </ul>
+ *
+ * <p>需要一个已安装pgvector扩展的PostgreSQL，测试在临时表 vector_search_bench 中进行，结束后删除。
+ * 运行方式：</p>
+ * <pre>
+ * mvn -pl ai-knowledge-app -am test-compile
+ * java -cp ai-knowledge-app/target/test-classes:&lt;测试类路径&gt; \
+ *   -Dbench.url=jdbc:postgresql://localhost:5432/ai-rag-knowledge-base -Dbench.user=postgres -Dbench.password=postgres \
+ *   -Dbench.rows=50000 -Dbench.dimensions=768 -Dbench.queries=200 -Dbench.top-k=5 \
+ *   -Dbench.ef-search=10,20,40,80,160,320 \
+ *   com.lcx.app.benchmark.VectorSearchBenchmark
+ * </pre>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+public class VectorSearchBenchmark {
+
+    private static final String TABLE = "vector_search_bench";
+    private static final int CLUSTERS = 100;
+    private static final int INSERT_BATCH = 500;
+
+    public static void main(String[] args) throws SQLException {
+        String url = System.getProperty("bench.url", "jdbc:postgresql://localhost:5432/ai-rag-knowledge-base");
+        String user = System.getProperty("bench.user", "postgres");
+        String password = System.getProperty("bench.password", "postgres");
+        int rows = Integer.getInteger("bench.rows", 50000);
+        int dimensions = Integer.getInteger("bench.dimensions", 768);
+        int queryCount = Integer.getInteger("bench.queries", 200);
+        int topK = Integer.getInteger("bench.top-k", 5);
+        int[] efSearchValues = Arrays.stream(System.getProperty("bench.ef-search", "10,20,40,80,160,320").split(","))
+                .map(String::trim).mapToInt(Integer::parseInt).toArray();
+
+        Random random = new Random(42);
+        float[][] centroids = new float[CLUSTERS][];
+        for (int i = 0; i < CLUSTERS; i++) {
+            centroids[i] = normalize(gaussian(random, dimensions, 1.0f));
+        }
+
+        try (Connection connection = DriverManager.getConnection(url, user, password)) {
+            PGvector.addVectorType(connection);
+            try {
+                long loadStart = System.currentTimeMillis();
+                createCorpus(connection, random, centroids, rows, dimensions);
+                System.out.printf("corpus: rows=%d, dimensions=%d, clusters=%d, loadMs=%d%n",
+                        rows, dimensions, CLUSTERS, System.currentTimeMillis() - loadStart);
+
+                List<float[]> queries = new ArrayList<>();
+                for (int i = 0; i < queryCount; i++) {
+                    float[] centroid = centroids[random.nextInt(CLUSTERS)];
+                    queries.add(normalize(add(centroid, gaussian(random, dimensions, 0.25f))));
+                }
+
+                // 精确检索结果作为召回率的基准
+                List<List<Long>> exact = new ArrayList<>();
+                long[] exactLatency = new long[queryCount];
+                for (int i = 0; i < queryCount; i++) {
+                    long start = System.nanoTime();
+                    exact.add(search(connection, queries.get(i), topK, null));
+                    exactLatency[i] = System.nanoTime() - start;
+                }
+
+                System.out.printf("%-10s %-10s %-10s %-10s%n", "ef_search", "recall@" + topK, "p50(ms)", "p99(ms)");
+                System.out.printf("%-10s %-10s %-10s %-10s%n", "exact", "1.0000",
+                        format(percentile(exactLatency, 50)), format(percentile(exactLatency, 99)));
+                for (int efSearch : efSearchValues) {
+                    long[] latency = new long[queryCount];
+                    int hits = 0;
+                    for (int i = 0; i < queryCount; i++) {
+                        long start = System.nanoTime();
+                        List<Long> approximate = search(connection, queries.get(i), topK, efSearch);
+                        latency[i] = System.nanoTime() - start;
+                        Set<Long> expected = new HashSet<>(exact.get(i));
+                        hits += (int) approximate.stream().filter(expected::contains).count();
+                    }
+                    double recall = (double) hits / ((long) queryCount * topK);
+                    System.out.printf("%-10d %-10.4f %-10s %-10s%n", efSearch, recall,
+                            format(percentile(latency, 50)), format(percentile(latency, 99)));
+                }
+            } finally {
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("DROP TABLE IF EXISTS " + TABLE);
+                }
+            }
+        }
+    }
+
+    private static void createCorpus(Connection connection, Random random, float[][] centroids, int rows,
+                                     int dimensions) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE EXTENSION IF NOT EXISTS vector");
+            statement.execute("DROP TABLE IF EXISTS " + TABLE);
+            statement.execute("CREATE TABLE " + TABLE + " (id bigint PRIMARY KEY, embedding vector(" + dimensions + "))");
+        }
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO " + TABLE + " (id, embedding) VALUES (?, ?)")) {
+            for (int i = 0; i < rows; i++) {
+                float[] centroid = centroids[random.nextInt(centroids.length)];
+                insert.setLong(1, i);
+                insert.setObject(2, new PGvector(normalize(add(centroid, gaussian(random, dimensions, 0.3f)))));
+                insert.addBatch();
+                if ((i + 1) % INSERT_BATCH == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        } finally {
+            connection.setAutoCommit(true);
+        }
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE INDEX ON " + TABLE + " USING hnsw (embedding vector_cosine_ops)");
+            statement.execute("ANALYZE " + TABLE);
+        }
+    }
+
+    /**
+     * 检索最相近的 topK 个向量，efSearch 为null时禁用索引扫描执行精确检索
+     */
+    private static List<Long> search(Connection connection, float[] query, int topK, Integer efSearch)
+            throws SQLException {
+        connection.setAutoCommit(false);
+        try {
+            try (Statement statement = connection.createStatement()) {
+                if (efSearch != null) {
+                    statement.execute("SET LOCAL hnsw.ef_search = " + efSearch);
+                } else {
+                    statement.execute("SET LOCAL enable_indexscan = off");
+                }
+            }
+            List<Long> ids = new ArrayList<>(topK);
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT id FROM " + TABLE + " ORDER BY embedding <=> ? LIMIT ?")) {
+                select.setObject(1, new PGvector(query));
+                select.setInt(2, topK);
+                try (ResultSet resultSet = select.executeQuery()) {
+                    while (resultSet.next()) {
+                        ids.add(resultSet.getLong(1));
+                    }
+                }
+            }
+            connection.commit();
+            return ids;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    private static float[] gaussian(Random random, int dimensions, float scale) {
+        float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian() * scale;
+        }
+        return vector;
+    }
+
+    private static float[] add(float[] a, float[] b) {
+        float[] sum = new float[a.length];
+        for (int i = 0; i < a.length; i++) {
+            sum[i] = a[i] + b[i];
+        }
+        return sum;
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float scale = (float) (1.0 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+        return vector;
+    }
+
+    private static long percentile(long[] values, int percentile) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static String format(long nanos) {
+        return String.format("%.2f", nanos / 1_000_000.0);
+    }
+
+}
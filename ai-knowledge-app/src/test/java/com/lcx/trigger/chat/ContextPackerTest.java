@@ -0,0 +1,145 @@
+package com.lcx.trigger.chat;
+
+import com.lcx.trigger.ingestion.TokenEncoding;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RAG上下文组装器测试
+ * <p>
+ * 验证文档部分的token预算、最相关文本块的截断、重复文本块的丢弃以及按相似度排序。
+ * </p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+public class ContextPackerTest {
+
+    private static final String MODEL = "gpt-4o-mini";
+    private static final String TEMPLATE = "Use the following documents to answer the question.";
+    private static final String MESSAGE = "How is the vector index partitioned?";
+
+    /**
+     * 测试放入的文本块不超过预算，放不下的计入 overBudget
+     */
+    @Test
+    public void testBudget() {
+        ContextPacker packer = new ContextPacker(properties(120));
+        List<Document> documents = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            documents.add(document("doc-" + i, sentence(i, 20), 0.9 - i * 0.01));
+        }
+
+        ContextPacker.PackedContext packed = packer.pack(MODEL, documents, TEMPLATE, MESSAGE);
+
+        assertTrue(packed.documents() > 0 && packed.documents() < documents.size(), "应放入部分文本块");
+        assertTrue(packed.tokens() <= 120, "文档部分不应超出预算: " + packed.tokens());
+        assertEquals(documents.size() - packed.documents(), packed.overBudget(), "放不下的文本块应计入overBudget");
+        assertEquals(count(TEMPLATE) + count(MESSAGE) + packed.tokens(), packed.promptTokens(),
+                "提示词token数应包含模板、问题与文档");
+    }
+
+    /**
+     * 测试相似度最高的文本块单独超出预算时截断放入
+     */
+    @Test
+    public void testTruncateFirstDocument() {
+        ContextPacker packer = new ContextPacker(properties(40));
+        String longText = sentence(0, 80);
+        List<Document> documents = List.of(document("long", longText, 0.95), document("short", "Short note.", 0.5));
+
+        ContextPacker.PackedContext packed = packer.pack(MODEL, documents, TEMPLATE, MESSAGE);
+
+        String first = packed.text().split("\n\n")[0];
+        assertFalse(first.isEmpty(), "上下文不应为空");
+        assertTrue(longText.startsWith(first), "截断后应为原文的前缀");
+        assertTrue(first.length() < longText.length(), "超出预算的文本块应被截断");
+        assertTrue(packed.tokens() <= 40, "截断后不应超出预算: " + packed.tokens());
+    }
+
+    /**
+     * 测试相同id与内容高度重合的文本块被丢弃，保留相似度更高的一个
+     */
+    @Test
+    public void testDeduplicate() {
+        ContextPacker packer = new ContextPacker(properties(3000));
+        String text = sentence(1, 30);
+        List<Document> documents = List.of(
+                document("a", text, 0.7),
+                document("a", sentence(2, 30), 0.6),
+                document("b", "  " + text.replace(" ", "  ") + "\n", 0.9),
+                document("c", sentence(3, 30), 0.8));
+
+        ContextPacker.PackedContext packed = packer.pack(MODEL, documents, TEMPLATE, MESSAGE);
+
+        assertEquals(2, packed.documents(), "应放入两个不重复的文本块");
+        assertEquals(2, packed.duplicates(), "相同id与近似重复各丢弃一个");
+        assertTrue(packed.text().startsWith(text.replace(" ", "  ").strip()),
+                "重复文本块中应保留相似度更高的一个，且按相似度排序");
+        assertTrue(packed.text().contains(sentence(3, 30)), "不重复的文本块应保留");
+    }
+
+    /**
+     * 测试模板与问题已占满上下文窗口时不放入任何文本块
+     */
+    @Test
+    public void testNoRoomForDocuments() {
+        ContextPackerProperties properties = properties(3000);
+        properties.setContextWindowTokens(properties.getAnswerReserveTokens() + 10);
+        ContextPacker packer = new ContextPacker(properties);
+        List<Document> documents = List.of(document("a", sentence(0, 10), 0.9), document("b", sentence(1, 10), 0.8));
+
+        ContextPacker.PackedContext packed = packer.pack(MODEL, documents, TEMPLATE, MESSAGE);
+
+        assertEquals("", packed.text(), "没有预算时文档部分为空");
+        assertEquals(0, packed.documents());
+        assertEquals(documents.size(), packed.overBudget(), "全部文本块计入overBudget");
+    }
+
+    /**
+     * 测试未知模型名称使用 cl100k_base 编码
+     */
+    @Test
+    public void testUnknownModelFallsBackToDefaultEncoding() {
+        assertSame(TokenEncoding.CL100K_BASE, TokenEncoding.forModel("deepseek-r1:1.5b"));
+        assertSame(TokenEncoding.CL100K_BASE, TokenEncoding.forModel(null));
+    }
+
+    private static ContextPackerProperties properties(int maxDocumentTokens) {
+        ContextPackerProperties properties = new ContextPackerProperties();
+        properties.setMaxDocumentTokens(maxDocumentTokens);
+        return properties;
+    }
+
+    private static Document document(String id, String text, double score) {
+        return Document.builder().id(id).text(text).score(score).build();
+    }
+
+    /**
+     * 以 n 为种子生成由随机字母单词组成的文本，不同种子的文本之间几乎没有共同的字符片段
+     */
+    private static String sentence(int n, int words) {
+        Random random = new Random(n);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            int length = 3 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                text.append((char) ('a' + random.nextInt(26)));
+            }
+            text.append(i % 8 == 7 ? ". " : " ");
+        }
+        return text.toString().strip();
+    }
+
+    private static int count(String text) {
+        return TokenEncoding.forModel(MODEL).countTokensOrdinary(text);
+    }
+
+}
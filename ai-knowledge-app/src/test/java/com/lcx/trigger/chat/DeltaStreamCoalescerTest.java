@@ -0,0 +1,124 @@
+package com.lcx.trigger.chat;
+
+import com.lcx.api.dto.ChatStreamFrame;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 增量流式回复编码器测试
+ * <p>
+ * 验证时间窗口与token数上限内的增量合并为一个事件、流结束后追加 done 事件，
+ * 以及下游逐个请求事件（Spring MVC的SSE写出方式）且窗口到期时暂无请求的情况下，回复流不会以错误结束。
+ * </p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+public class DeltaStreamCoalescerTest {
+
+    private static final Duration WINDOW = Duration.ofMillis(20);
+
+    /**
+     * 测试窗口内的增量合并为一个事件，达到token数上限时立即发出，结束后追加 done 事件
+     */
+    @Test
+    public void testCoalesce() {
+        DeltaStreamCoalescer coalescer = new DeltaStreamCoalescer(properties(WINDOW, 3));
+        Sinks.Many<ChatResponse> upstream = Sinks.many().unicast().onBackpressureBuffer();
+
+        StepVerifier.withVirtualTime(() -> coalescer.coalesce(upstream.asFlux()))
+                .then(() -> emit(upstream, "a", "b", "c", "d"))
+                .assertNext(event -> assertEquals("abc", deltaOf(event), "达到token数上限时立即合并发出"))
+                .expectNoEvent(Duration.ofMillis(10))
+                .thenAwait(WINDOW)
+                .assertNext(event -> assertEquals("d", deltaOf(event), "窗口到期时发出已缓冲的增量"))
+                .then(upstream::tryEmitComplete)
+                .assertNext(event -> {
+                    assertEquals("done", event.event());
+                    assertTrue(event.data().getDone());
+                })
+                .verifyComplete();
+    }
+
+    /**
+     * 测试慢速订阅者：窗口到期时下游没有请求，缓冲保留到下一次请求，不丢失内容也不出错
+     */
+    @Test
+    public void testSlowSubscriber() {
+        DeltaStreamCoalescer coalescer = new DeltaStreamCoalescer(properties(WINDOW, 16));
+        Sinks.Many<ChatResponse> upstream = Sinks.many().unicast().onBackpressureBuffer();
+
+        StepVerifier.withVirtualTime(() -> coalescer.coalesce(upstream.asFlux()), 0)
+                .expectSubscription()
+                .thenRequest(1)
+                .then(() -> emit(upstream, "Hello"))
+                .thenAwait(WINDOW)
+                .assertNext(event -> assertEquals("Hello", deltaOf(event)))
+                // 下游的请求已用完，窗口多次到期
+                .then(() -> emit(upstream, ", ", "world"))
+                .thenAwait(WINDOW.multipliedBy(5))
+                .expectNoEvent(WINDOW)
+                .thenRequest(1)
+                .assertNext(event -> assertEquals(", world", deltaOf(event), "下游请求后发出保留的缓冲"))
+                .then(upstream::tryEmitComplete)
+                .thenRequest(1)
+                .assertNext(event -> assertEquals("done", event.event()))
+                .verifyComplete();
+    }
+
+    /**
+     * 测试慢速订阅者收到的增量拼接后与模型输出一致
+     */
+    @Test
+    public void testSlowSubscriberReceivesAllText() {
+        DeltaStreamCoalescer coalescer = new DeltaStreamCoalescer(properties(WINDOW, 2));
+        Sinks.Many<ChatResponse> upstream = Sinks.many().unicast().onBackpressureBuffer();
+        StringBuilder received = new StringBuilder();
+
+        StepVerifier.withVirtualTime(() -> coalescer.coalesce(upstream.asFlux()), 0)
+                .expectSubscription()
+                .then(() -> emit(upstream, "a", "b", "c", "d", "e"))
+                .thenAwait(WINDOW.multipliedBy(3))
+                .thenRequest(1)
+                .consumeNextWith(event -> received.append(deltaOf(event)))
+                .thenAwait(WINDOW.multipliedBy(3))
+                .then(upstream::tryEmitComplete)
+                .thenRequest(Long.MAX_VALUE)
+                .thenConsumeWhile(event -> event.event() == null, event -> received.append(deltaOf(event)))
+                .assertNext(event -> assertEquals("done", event.event()))
+                .verifyComplete();
+
+        assertEquals("abcde", received.toString(), "增量拼接后应与模型输出一致");
+    }
+
+    private static StreamProperties properties(Duration window, int maxTokens) {
+        StreamProperties properties = new StreamProperties();
+        properties.setCoalesceWindow(window);
+        properties.setCoalesceMaxTokens(maxTokens);
+        return properties;
+    }
+
+    private static void emit(Sinks.Many<ChatResponse> upstream, String... texts) {
+        for (String text : texts) {
+            upstream.tryEmitNext(new ChatResponse(List.of(new Generation(new AssistantMessage(text)))));
+        }
+    }
+
+    private static String deltaOf(ServerSentEvent<ChatStreamFrame> event) {
+        ChatStreamFrame frame = event.data();
+        assertNotNull(frame);
+        return frame.getDelta();
+    }
+
+}
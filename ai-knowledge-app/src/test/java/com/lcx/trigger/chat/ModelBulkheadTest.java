@@ -0,0 +1,198 @@
+package com.lcx.trigger.chat;
+
+import com.lcx.api.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 按模型隔离的并发限制测试
+ * <p>
+ * 验证并发已满时排队、队列已满与等待超时时以 {@link TooManyRequestsException} 拒绝、
+ * 返回回复流之前的容量检查同步抛出、
+ * 等待中被取消的请求不占用许可，以及未登记的模型名称共用一个隔离舱。
+ * </p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+public class ModelBulkheadTest {
+
+    private static final String MODEL = "qwen3";
+
+    /**
+     * 测试并发已满时进入队列，队列已满时直接拒绝
+     */
+    @Test
+    public void testQueueFull() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ModelBulkhead bulkhead = bulkhead(meterRegistry, properties(1, 1, Duration.ofSeconds(10)), List.of());
+        Upstream running = new Upstream();
+        Upstream queued = new Upstream();
+
+        bulkhead.guard(MODEL, running.flux()).subscribe();
+        bulkhead.guard(MODEL, queued.flux()).subscribe();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        bulkhead.guard(MODEL, new Upstream().flux()).subscribe(value -> { }, error::set);
+
+        assertEquals(1, running.subscriptions.get(), "取得许可后应订阅回复流");
+        assertEquals(0, queued.subscriptions.get(), "排队期间不应订阅回复流");
+        assertInstanceOf(TooManyRequestsException.class, error.get(), "队列已满时应拒绝");
+        assertEquals(1.0, rejected(meterRegistry, MODEL, "queue-full"));
+        assertEquals(1.0, gauge(meterRegistry, "rag.chat.bulkhead.queued", MODEL));
+
+        // 测试许可按先来先得转交给队列中的请求
+        running.complete();
+        assertEquals(1, queued.subscriptions.get(), "归还的许可应转交给队列中的请求");
+        assertEquals(1.0, gauge(meterRegistry, "rag.chat.bulkhead.active", MODEL));
+        assertEquals(0.0, gauge(meterRegistry, "rag.chat.bulkhead.queued", MODEL));
+    }
+
+    /**
+     * 测试返回回复流之前的容量检查：并发与队列都已满时同步抛出，队列仍有空位时通过
+     */
+    @Test
+    public void testCheckCapacity() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ModelBulkhead bulkhead = bulkhead(meterRegistry, properties(1, 1, Duration.ofSeconds(10)), List.of());
+
+        assertDoesNotThrow(() -> bulkhead.checkCapacity(MODEL), "空闲时应通过");
+        bulkhead.guard(MODEL, new Upstream().flux()).subscribe();
+        assertDoesNotThrow(() -> bulkhead.checkCapacity(MODEL), "队列仍有空位时应通过");
+        bulkhead.guard(MODEL, new Upstream().flux()).subscribe();
+
+        TooManyRequestsException rejected = assertThrows(TooManyRequestsException.class,
+                () -> bulkhead.checkCapacity(MODEL), "并发与队列都已满时应同步抛出");
+        assertTrue(rejected.getRetryAfterSeconds() > 0, "应携带Retry-After");
+        assertEquals(1.0, rejected(meterRegistry, MODEL, "queue-full"));
+    }
+
+    /**
+     * 测试在队列中等待超过 max-wait 时拒绝
+     */
+    @Test
+    public void testQueueTimeout() throws Exception {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ModelBulkhead bulkhead = bulkhead(meterRegistry, properties(1, 1, Duration.ofMillis(50)), List.of());
+        bulkhead.guard(MODEL, new Upstream().flux()).subscribe();
+
+        Upstream queued = new Upstream();
+        CountDownLatch done = new CountDownLatch(1);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        bulkhead.guard(MODEL, queued.flux()).subscribe(value -> { }, e -> {
+            error.set(e);
+            done.countDown();
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS), "等待超时后应结束");
+        assertInstanceOf(TooManyRequestsException.class, error.get(), "等待超时应拒绝");
+        assertEquals(0, queued.subscriptions.get(), "超时的请求不应订阅回复流");
+        assertEquals(1.0, rejected(meterRegistry, MODEL, "queue-timeout"));
+        assertEquals(0.0, gauge(meterRegistry, "rag.chat.bulkhead.queued", MODEL));
+        assertEquals(1.0, gauge(meterRegistry, "rag.chat.bulkhead.active", MODEL), "超时不应影响进行中的许可");
+    }
+
+    /**
+     * 测试等待中被取消的请求离开队列，之后归还的许可不会交给它
+     */
+    @Test
+    public void testCancelWhileQueuedReleasesPermit() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ModelBulkhead bulkhead = bulkhead(meterRegistry, properties(1, 1, Duration.ofSeconds(10)), List.of());
+        Upstream running = new Upstream();
+        Upstream cancelled = new Upstream();
+
+        bulkhead.guard(MODEL, running.flux()).subscribe();
+        Disposable waiting = bulkhead.guard(MODEL, cancelled.flux()).subscribe();
+        waiting.dispose();
+        assertEquals(0.0, gauge(meterRegistry, "rag.chat.bulkhead.queued", MODEL), "取消后应离开队列");
+
+        running.complete();
+        assertEquals(0, cancelled.subscriptions.get(), "已取消的请求不应订阅回复流");
+        assertEquals(0.0, gauge(meterRegistry, "rag.chat.bulkhead.active", MODEL), "许可应全部归还");
+
+        // 测试进行中的回复流被取消时同样归还许可
+        Upstream next = new Upstream();
+        Disposable subscription = bulkhead.guard(MODEL, next.flux()).subscribe();
+        assertEquals(1, next.subscriptions.get(), "许可已归还，新请求应立即取得许可");
+        subscription.dispose();
+        assertEquals(0.0, gauge(meterRegistry, "rag.chat.bulkhead.active", MODEL));
+    }
+
+    /**
+     * 测试未登记的模型名称共用 other 隔离舱，默认模型与已登记的模型各自独立
+     */
+    @Test
+    public void testUnknownModelsShareCompartment() {
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ModelBulkhead bulkhead = bulkhead(meterRegistry, properties(1, 0, Duration.ofSeconds(10)), List.of("llama3"));
+
+        bulkhead.guard("QWEN3 ", new Upstream().flux()).subscribe();
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        bulkhead.guard("qwen-3", new Upstream().flux()).subscribe(value -> { }, error::set);
+        assertInstanceOf(TooManyRequestsException.class, error.get(), "不同的未知名称应共用一个隔离舱");
+        assertEquals(1.0, rejected(meterRegistry, "other", "queue-full"));
+
+        Upstream registered = new Upstream();
+        Upstream defaultModel = new Upstream();
+        bulkhead.guard("llama3", registered.flux()).subscribe();
+        bulkhead.guard(MODEL, defaultModel.flux()).subscribe();
+        assertEquals(1, registered.subscriptions.get(), "已登记的模型应有独立的隔离舱");
+        assertEquals(1, defaultModel.subscriptions.get(), "默认模型应有独立的隔离舱");
+        assertNull(meterRegistry.find("rag.chat.bulkhead.active").tag("model", "qwen-3").gauge(),
+                "未知名称不应产生独立的指标");
+    }
+
+    private static ModelBulkhead bulkhead(MeterRegistry meterRegistry, ModelBulkheadProperties properties,
+                                          List<String> registered) {
+        return new ModelBulkhead(properties, meterRegistry, () -> registered, MODEL);
+    }
+
+    private static ModelBulkheadProperties properties(int maxConcurrent, int maxQueue, Duration maxWait) {
+        ModelBulkheadProperties properties = new ModelBulkheadProperties();
+        properties.setMaxConcurrent(maxConcurrent);
+        properties.setMaxQueue(maxQueue);
+        properties.setMaxWait(maxWait);
+        return properties;
+    }
+
+    private static double gauge(MeterRegistry meterRegistry, String name, String model) {
+        return meterRegistry.get(name).tag("model", model).gauge().value();
+    }
+
+    private static double rejected(MeterRegistry meterRegistry, String model, String reason) {
+        return meterRegistry.get("rag.chat.bulkhead.rejected").tag("model", model).tag("reason", reason)
+                .counter().count();
+    }
+
+    /**
+     * 手动控制的上游回复流，记录订阅次数
+     */
+    private static final class Upstream {
+
+        private final Sinks.Many<String> sink = Sinks.many().unicast().onBackpressureBuffer();
+        private final AtomicInteger subscriptions = new AtomicInteger();
+
+        Flux<String> flux() {
+            return sink.asFlux().doOnSubscribe(subscription -> subscriptions.incrementAndGet());
+        }
+
+        void complete() {
+            sink.tryEmitComplete();
+        }
+    }
+
+}
@@ -0,0 +1,174 @@
+package com.lcx.trigger.chat;
+
+import com.lcx.api.dto.RagSearchOptions;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 相同RAG请求合并器测试
+ * <p>
+ * 验证相同请求共享一次上游订阅并回放已发出的事件，全部订阅者断开后取消上游，
+ * 以及回复流结束（完成、出错、取消）后合并记录被移除，之后的相同请求重新订阅上游。
+ * </p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+public class RequestCoalescerTest {
+
+    private static final String KEY = RequestCoalescer.key("qwen3", List.of("docs"), "What is HNSW?", null);
+
+    /**
+     * 测试相同请求只订阅一次上游，后加入的订阅者从第一个事件开始回放
+     */
+    @Test
+    public void testJoinReplaysFromFirstEvent() {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        Upstream first = new Upstream();
+        Upstream second = new Upstream();
+
+        List<String> leader = new CopyOnWriteArrayList<>();
+        List<String> follower = new CopyOnWriteArrayList<>();
+        coalescer.coalesce(KEY, first.flux()).subscribe(response -> leader.add(textOf(response)));
+        first.emit("a");
+        coalescer.coalesce(KEY, second.flux()).subscribe(response -> follower.add(textOf(response)));
+        first.emit("b");
+        first.complete();
+
+        assertEquals(List.of("a", "b"), leader);
+        assertEquals(List.of("a", "b"), follower, "后加入的订阅者应回放已发出的事件");
+        assertEquals(1, first.subscriptions.get(), "上游只应被订阅一次");
+        assertEquals(0, second.subscriptions.get(), "合并期间不应订阅第二个上游");
+    }
+
+    /**
+     * 测试单个订阅者断开不影响其他订阅者，全部断开后取消上游并移除合并记录
+     */
+    @Test
+    public void testRefCountTeardown() {
+        RequestCoalescer coalescer = new RequestCoalescer();
+        Upstream upstream = new Upstream();
+
+        List<String> remaining = new CopyOnWriteArrayList<>();
+        Disposable leaving = coalescer.coalesce(KEY, upstream.flux()).subscribe();
+        Disposable staying = coalescer.coalesce(KEY, new Upstream().flux())
+                .subscribe(response -> remaining.add(textOf(response)));
+
+        leaving.dispose();
+        assertFalse(upstream.cancelled.get(), "仍有订阅者时不应取消上游");
+        upstream.emit("a");
+        assertEquals(List.of("a"), remaining, "其余订阅者应继续收到事件");
+
+        staying.dispose();
+        assertTrue(upstream.cancelled.get(), "全部订阅者断开后应取消上游");
+
+        // 测试合并记录已移除：相同请求重新订阅新的上游
+        Upstream next = new Upstream();
+        coalescer.coalesce(KEY, next.flux()).subscribe();
+        assertEquals(1, next.subscriptions.get(), "合并记录应在上游取消后移除");
+    }
+
+    /**
+     * 测试回复流完成或出错后移除合并记录
+     */
+    @Test
+    public void testCleanupAfterTermination() {
+        RequestCoalescer coalescer = new RequestCoalescer();
+
+        Upstream completed = new Upstream();
+        coalescer.coalesce(KEY, completed.flux()).subscribe();
+        completed.complete();
+        Upstream afterComplete = new Upstream();
+        AtomicReference<Throwable> leaderError = new AtomicReference<>();
+        coalescer.coalesce(KEY, afterComplete.flux()).subscribe(response -> { }, leaderError::set);
+        assertEquals(1, afterComplete.subscriptions.get(), "完成后相同请求应重新订阅上游");
+
+        AtomicReference<Throwable> followerError = new AtomicReference<>();
+        coalescer.coalesce(KEY, Flux.empty()).subscribe(response -> { }, followerError::set);
+        afterComplete.fail(new IllegalStateException("upstream failed"));
+        assertNotNull(leaderError.get(), "出错时所有订阅者都应收到错误");
+        assertNotNull(followerError.get(), "出错时所有订阅者都应收到错误");
+
+        Upstream afterError = new Upstream();
+        coalescer.coalesce(KEY, afterError.flux()).subscribe();
+        assertEquals(1, afterError.subscriptions.get(), "出错后相同请求应重新订阅上游");
+    }
+
+    /**
+     * 测试合并键：标签顺序、空白标签与问题中的空白差异不影响结果，模型与检索参数不同则不合并
+     */
+    @Test
+    public void testKey() {
+        assertEquals(RequestCoalescer.key("qwen3", List.of("a", "b"), "What  is\tHNSW? ", null),
+                RequestCoalescer.key("qwen3", List.of("b", " ", "a"), "What is HNSW?", null));
+        assertNotEquals(KEY, RequestCoalescer.key("llama3", List.of("docs"), "What is HNSW?", null));
+        assertNotEquals(KEY, RequestCoalescer.key("qwen3", List.of("docs"), "What is HNSW?", options(3, null, null)));
+    }
+
+    /**
+     * 测试合并键按检索参数的各个字段区分，字段相同的参数对象合并
+     */
+    @Test
+    public void testKeySearchOptions() {
+        String topK = RequestCoalescer.key("qwen3", List.of("docs"), "What is HNSW?", options(3, null, null));
+        assertEquals(topK, RequestCoalescer.key("qwen3", List.of("docs"), "What is HNSW?", options(3, null, null)));
+        assertNotEquals(topK, RequestCoalescer.key("qwen3", List.of("docs"), "What is HNSW?", options(5, null, null)));
+        assertNotEquals(topK, RequestCoalescer.key("qwen3", List.of("docs"), "What is HNSW?", options(3, 100, null)));
+        assertNotEquals(topK, RequestCoalescer.key("qwen3", List.of("docs"), "What is HNSW?", options(3, null, 0.5)));
+    }
+
+    private static RagSearchOptions options(Integer topK, Integer efSearch, Double similarityThreshold) {
+        RagSearchOptions options = new RagSearchOptions();
+        options.setTopK(topK);
+        options.setEfSearch(efSearch);
+        options.setSimilarityThreshold(similarityThreshold);
+        return options;
+    }
+
+    private static String textOf(ChatResponse response) {
+        return response.getResult().getOutput().getText();
+    }
+
+    /**
+     * 手动控制的上游回复流，记录订阅次数与是否被取消
+     */
+    private static final class Upstream {
+
+        private final Sinks.Many<ChatResponse> sink = Sinks.many().unicast().onBackpressureBuffer();
+        private final AtomicInteger subscriptions = new AtomicInteger();
+        private final AtomicBoolean cancelled = new AtomicBoolean();
+
+        Flux<ChatResponse> flux() {
+            return sink.asFlux()
+                    .doOnSubscribe(subscription -> subscriptions.incrementAndGet())
+                    .doOnCancel(() -> cancelled.set(true));
+        }
+
+        void emit(String text) {
+            sink.tryEmitNext(new ChatResponse(List.of(new Generation(new AssistantMessage(text)))));
+        }
+
+        void complete() {
+            sink.tryEmitComplete();
+        }
+
+        void fail(Throwable error) {
+            sink.tryEmitError(error);
+        }
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.lcx.trigger.ingestion;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.core.io.ByteArrayResource;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 源代码分割器测试
+ * <p>
+ * 解析阶段按 parse-segment-chars（默认65536）把大文件切成多个片段，片段边界可能落在类或方法内部，
+ * 每个片段独立扫描括号深度。这里验证跨越片段边界时切分结果仍然完整、不丢内容，
+ * 且边界两侧未被截断的方法保持在同一个文本块内。
+ * </p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+public class CodeTextSplitterTest {
+
+    private static final int SEGMENT_CHARS = 65536;
+    private static final int CHUNK_TOKENS = 400;
+
+    /**
+     * 测试大文件跨越片段边界后的括号深度与方法完整性
+     */
+    @Test
+    public void testBraceDepthAcrossSegmentCut() throws Exception {
+        List<String> methods = new ArrayList<>();
+        StringBuilder source = new StringBuilder("package demo;\n\npublic class Large {\n\n");
+        for (int i = 0; source.length() < SEGMENT_CHARS * 2; i++) {
+            String method = method(i);
+            methods.add(method);
+            source.append(method).append('\n');
+        }
+        source.append("}\n");
+
+        List<Document> segments = read(source.toString());
+        assertTrue(segments.size() > 1, "源文件应被切成多个片段");
+
+        CodeTextSplitter splitter = new CodeTextSplitter(CodeTextSplitter.Syntax.BRACE, CHUNK_TOKENS);
+        List<Document> chunks = splitter.apply(segments);
+        StringBuilder joined = new StringBuilder();
+        for (Document chunk : chunks) {
+            joined.append(chunk.getText()).append('\n');
+        }
+
+        // 测试不丢失、不重复内容：去掉空白后与原文一致
+        assertEquals(stripWhitespace(source), stripWhitespace(joined), "切分后的文本块拼接应与原文一致");
+
+        // 测试未跨越片段边界的方法完整保留在一个文本块内
+        int intact = 0;
+        for (String method : methods) {
+            String body = method.strip();
+            if (segments.stream().noneMatch(segment -> segment.getText().contains(body))) {
+                continue;
+            }
+            assertTrue(chunks.stream().anyMatch(chunk -> chunk.getText().contains(body)),
+                    "方法不应被切开: " + body.lines().findFirst().orElse(""));
+            intact++;
+        }
+        assertTrue(intact >= methods.size() - segments.size(), "只有跨越片段边界的方法允许被切开");
+    }
+
+    /**
+     * 测试字符串与注释中的括号不影响深度
+     */
+    @Test
+    public void testBracesInStringsAndComments() {
+        String source = """
+                public class Braces {
+
+                    // 注释中的 { 不计入深度
+                    public String open() {
+                        return "{{{";
+                    }
+
+                    /* 块注释中的 } */
+                    public char close() {
+                        return '}';
+                    }
+                }
+                """;
+        CodeTextSplitter splitter = new CodeTextSplitter(CodeTextSplitter.Syntax.BRACE, 64);
+        List<Document> chunks = splitter.apply(List.of(new Document(source)));
+
+        assertTrue(chunks.stream().anyMatch(chunk -> chunk.getText().contains("return \"{{{\";\n    }")),
+                "open 方法应完整保留");
+        assertTrue(chunks.stream().anyMatch(chunk -> chunk.getText().contains("return '}';\n    }")),
+                "close 方法应完整保留");
+    }
+
+    private static String method(int i) {
+        return """
+                    /**
+                     * 计算第 %1$d 项
+                     */
+                    public int compute%1$d(int value) {
+                        if (value > %1$d) {
+                            String text = "}" + value;
+                            return text.length();
+                        }
+                        return value * %1$d;
+                    }
+                """.formatted(i);
+    }
+
+    private static List<Document> read(String source) throws Exception {
+        List<Document> segments = new ArrayList<>();
+        ByteArrayResource resource = new ByteArrayResource(source.getBytes(StandardCharsets.UTF_8)) {
+            @Override
+            public String getFilename() {
+                return "Large.java";
+            }
+        };
+        new PlainTextReader(SEGMENT_CHARS).read(new IngestionFile("Large.java", resource), segments::add);
+        return segments;
+    }
+
+    private static String stripWhitespace(CharSequence text) {
+        return text.toString().replaceAll("\\s+", "");
+    }
+
+}
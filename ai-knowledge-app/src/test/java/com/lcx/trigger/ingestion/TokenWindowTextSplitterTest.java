@@ -0,0 +1,114 @@
+package com.lcx.trigger.ingestion;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 字符窗口分割器测试
+ * <p>
+ * {@link TokenWindowTextSplitter} 用于替代Spring AI的 {@link TokenTextSplitter}，
+ * 这里在固定种子生成的语料上验证两者切出的文本块一致，且块之间没有重叠、按原文顺序排列。
+ * </p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+public class TokenWindowTextSplitterTest {
+
+    private static final String[] WORDS = {
+            "vector", "index", "query", "embedding", "token", "chunk", "search", "model", "context", "answer",
+            "document", "knowledge", "pipeline", "latency", "batch", "cache", "partition", "recall", "graph", "node"
+    };
+
+    /**
+     * 测试默认参数下与TokenTextSplitter的切分结果一致
+     */
+    @Test
+    public void testParityWithDefaults() {
+        String text = corpus(42L, 2000);
+        assertParity(new TokenTextSplitter(), new TokenWindowTextSplitter(), text);
+    }
+
+    /**
+     * 测试小块参数下与TokenTextSplitter的切分结果一致，块数较多，覆盖窗口比例调整与扩窗重试
+     */
+    @Test
+    public void testParityWithSmallChunks() {
+        String text = corpus(7L, 1500);
+        assertParity(new TokenTextSplitter(100, 50, 5, 10000, true),
+                new TokenWindowTextSplitter(100, 50, 5, 10000, true), text);
+    }
+
+    /**
+     * 测试达到最大块数后剩余文本作为最后一块
+     */
+    @Test
+    public void testParityWithMaxNumChunks() {
+        String text = corpus(11L, 800);
+        assertParity(new TokenTextSplitter(100, 50, 5, 3, true),
+                new TokenWindowTextSplitter(100, 50, 5, 3, true), text);
+    }
+
+    /**
+     * 测试空白文本不产生文本块
+     */
+    @Test
+    public void testBlankText() {
+        List<Document> chunks = new TokenWindowTextSplitter().apply(List.of(new Document("   ")));
+        assertTrue(chunks.isEmpty(), "空白文本不应产生文本块");
+    }
+
+    private static void assertParity(TextSplitter expectedSplitter, TextSplitter actualSplitter, String text) {
+        List<String> expected = texts(expectedSplitter.apply(List.of(new Document(text))));
+        List<String> actual = texts(actualSplitter.apply(List.of(new Document(text))));
+
+        // 测试块数与每个块的内容一致
+        assertTrue(expected.size() > 1, "语料应切出多个文本块");
+        assertEquals(expected.size(), actual.size(), "文本块数量应一致");
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i), "第" + i + "个文本块应一致");
+        }
+
+        // 测试块之间没有重叠：每个块都在上一个块结束之后出现
+        int position = 0;
+        for (String chunk : actual) {
+            int found = text.indexOf(chunk, position);
+            assertTrue(found >= position, "文本块应按原文顺序排列且互不重叠");
+            position = found + chunk.length();
+        }
+    }
+
+    private static List<String> texts(List<Document> documents) {
+        return documents.stream().map(Document::getText).toList();
+    }
+
+    /**
+     * 生成由短句组成的英文语料，句末为句点，以句点结尾
+     */
+    private static String corpus(long seed, int sentences) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        for (int s = 0; s < sentences; s++) {
+            int words = 5 + random.nextInt(11);
+            for (int w = 0; w < words; w++) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                if (w == 0) {
+                    text.append(Character.toUpperCase(word.charAt(0))).append(word, 1, word.length());
+                } else {
+                    text.append(' ').append(word);
+                }
+            }
+            text.append(s == sentences - 1 ? "." : ". ");
+        }
+        return text.toString();
+    }
+
+}
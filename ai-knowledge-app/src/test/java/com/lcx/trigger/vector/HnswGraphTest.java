@@ -0,0 +1,150 @@
+package com.lcx.trigger.vector;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 内存HNSW图索引测试
+ * <p>
+ * 在固定种子生成的向量集上与暴力检索比较召回率，并验证结果顺序、距离计算与边界情况。
+ * </p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+public class HnswGraphTest {
+
+    private static final int DIMENSIONS = 32;
+    private static final int CORPUS_SIZE = 3000;
+    private static final int QUERIES = 100;
+    private static final int K = 10;
+
+    /**
+     * 测试召回率：与暴力检索的前K个结果相比，平均召回率不低于0.95
+     */
+    @Test
+    public void testRecallAgainstBruteForce() {
+        Random random = new Random(20240601L);
+        float[][] corpus = new float[CORPUS_SIZE][];
+        // 初始容量远小于数据量，同时覆盖扩容路径
+        HnswGraph graph = new HnswGraph(DIMENSIONS, 16, 64, 64);
+        for (int i = 0; i < CORPUS_SIZE; i++) {
+            corpus[i] = randomVector(random);
+            assertEquals(i, graph.append(corpus[i]), "节点编号应按写入顺序分配");
+        }
+        graph.build();
+        assertEquals(CORPUS_SIZE, graph.size());
+
+        int hits = 0;
+        for (int q = 0; q < QUERIES; q++) {
+            float[] query = randomVector(random);
+            Set<Integer> expected = new HashSet<>();
+            for (int node : bruteForce(corpus, query, K)) {
+                expected.add(node);
+            }
+            List<HnswGraph.Candidate> results = graph.search(query, K, 64);
+            assertEquals(K, results.size(), "应返回K个结果");
+            for (HnswGraph.Candidate candidate : results) {
+                if (expected.contains(candidate.node())) {
+                    hits++;
+                }
+            }
+        }
+        double recall = (double) hits / (QUERIES * K);
+        assertTrue(recall >= 0.95, "召回率过低: " + recall);
+    }
+
+    /**
+     * 测试结果按距离升序排列，且距离等于余弦距离
+     */
+    @Test
+    public void testOrderAndDistance() {
+        Random random = new Random(7L);
+        float[][] corpus = new float[500][];
+        HnswGraph graph = new HnswGraph(DIMENSIONS, 8, 32, 500);
+        for (int i = 0; i < corpus.length; i++) {
+            corpus[i] = randomVector(random);
+            graph.append(corpus[i]);
+        }
+        graph.build();
+
+        float[] query = randomVector(random);
+        List<HnswGraph.Candidate> results = graph.search(query, K, 40);
+        for (int i = 0; i < results.size(); i++) {
+            HnswGraph.Candidate candidate = results.get(i);
+            assertEquals(cosineDistance(corpus[candidate.node()], query), candidate.distance(), 1e-4,
+                    "距离应为余弦距离");
+            if (i > 0) {
+                assertTrue(results.get(i - 1).distance() <= candidate.distance(), "结果应按距离升序排列");
+            }
+        }
+
+        // 测试查询向量与某个节点相同时，该节点排在第一位且距离接近0
+        List<HnswGraph.Candidate> self = graph.search(corpus[123], 1, 40);
+        assertEquals(123, self.get(0).node());
+        assertEquals(0f, self.get(0).distance(), 1e-4);
+    }
+
+    /**
+     * 测试边界情况：空图、ef小于k、维度不匹配
+     */
+    @Test
+    public void testEdgeCases() {
+        HnswGraph empty = new HnswGraph(DIMENSIONS, 16, 64, 16);
+        assertTrue(empty.search(new float[DIMENSIONS], K, 64).isEmpty(), "空图应返回空结果");
+
+        Random random = new Random(3L);
+        HnswGraph graph = new HnswGraph(DIMENSIONS, 16, 64, 16);
+        for (int i = 0; i < 200; i++) {
+            graph.append(randomVector(random));
+        }
+        graph.build();
+        assertEquals(K, graph.search(randomVector(random), K, 1).size(), "ef小于k时按k检索");
+        assertTrue(graph.search(randomVector(random), 0, 64).isEmpty(), "k为0时返回空结果");
+
+        assertThrows(IllegalArgumentException.class, () -> graph.append(new float[DIMENSIONS + 1]),
+                "维度不匹配时应拒绝写入");
+    }
+
+    private static float[] randomVector(Random random) {
+        float[] vector = new float[DIMENSIONS];
+        for (int i = 0; i < DIMENSIONS; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        return vector;
+    }
+
+    private static int[] bruteForce(float[][] corpus, float[] query, int k) {
+        float[] distances = new float[corpus.length];
+        for (int i = 0; i < corpus.length; i++) {
+            distances[i] = cosineDistance(corpus[i], query);
+        }
+        return IntStream.range(0, corpus.length)
+                .boxed()
+                .sorted((a, b) -> Float.compare(distances[a], distances[b]))
+                .limit(k)
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    private static float cosineDistance(float[] a, float[] b) {
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return (float) (1.0 - dot / (Math.sqrt(normA) * Math.sqrt(normB)));
+    }
+
+}
@@ -0,0 +1,279 @@
+package com.lcx.trigger.chat;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.lcx.trigger.embedding.QueryEmbeddingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * RAG回答缓存
+ *
+ * <p>以"模型 + 知识库标签 + 规范化问题文本"为键缓存完整生成的流式回答，命中时按原有的
+ * {@link ChatResponse} 序列回放，SSE事件的格式与实时生成一致：</p>
+ * <ul>
+ *   <li>精确匹配：规范化规则与 {@link QueryEmbeddingCache} 相同</li>
+ *   <li>相似匹配：配置了相似度阈值时，比较问题向量与同一模型、标签下已缓存问题的余弦相似度</li>
+ *   <li>失效：每个标签在Redis中维护一个版本号，标签导入新文档时递增；条目记录生成开始时的版本号，
+ *       版本号变化后不再命中，多个节点之间同样生效。未指定标签或同时检索多个标签时
+ *       使用全局版本号，任一标签更新都会使其失效</li>
+ * </ul>
+ *
+ * <p>只缓存正常结束的回答，生成出错或客户端中途断开的回答不会写入。
+ * Redis不可用时本次请求不读也不写缓存。</p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Slf4j
+@Component
+public class AnswerCache {
+
+    private static final String GENERATION_KEY = "ai:rag:answer:generation";
+
+    private final AnswerCacheProperties properties;
+    private final RedissonClient redissonClient;
+    private final EmbeddingModel embeddingModel;
+    private final Cache<String, CachedAnswer> answers;
+
+    public AnswerCache(AnswerCacheProperties properties, RedissonClient redissonClient, EmbeddingModel embeddingModel) {
+        this.properties = properties;
+        this.redissonClient = redissonClient;
+        this.embeddingModel = embeddingModel;
+        this.answers = CacheBuilder.newBuilder()
+                .maximumSize(properties.getMaxSize())
+                .expireAfterWrite(properties.getExpireAfterWrite())
+                .build();
+    }
+
+    /**
+     * 读取标签当前的版本号，应在检索之前读取并传给 {@link #lookup} 与 {@link #cache}
+     *
+     * @param ragTags 检索的知识库标签，为空表示检索全部文档
+     * @return 版本号，未启用缓存或Redis不可用时返回null
+     */
+    public Long generation(List<String> ragTags) {
+        if (!properties.isEnabled()) {
+            return null;
+        }
+        List<String> tags = normalizeTags(ragTags);
+        String key = tags.size() == 1 ? generationKey(tags.get(0)) : GENERATION_KEY;
+        try {
+            return redissonClient.getAtomicLong(key).get();
+        } catch (Exception e) {
+            log.warn("BIZ_WARN: op=answerCache, action=generation-error, ragTags={}", ragTags, e);
+            return null;
+        }
+    }
+
+    /**
+     * 读取单个标签的版本号，不受回答缓存开关影响
+     *
+     * <p>标签导入文档时版本号递增，其他随标签内容变化的本地缓存（如热点标签内存索引）据此判断是否需要重新载入。</p>
+     *
+     * @param ragTag 知识库标签
+     * @return 版本号，Redis不可用时返回null
+     */
+    public Long version(String ragTag) {
+        try {
+            return redissonClient.getAtomicLong(generationKey(ragTag)).get();
+        } catch (Exception e) {
+            log.warn("BIZ_WARN: op=answerCache, action=version-error, ragTag={}", ragTag, e);
+            return null;
+        }
+    }
+
+    /**
+     * 计算相似匹配使用的问题向量，应与检索一起在阻塞调用可用的线程上执行，结果传给 {@link #lookup} 与 {@link #cache}
+     *
+     * @param message    用户问题
+     * @param generation {@link #generation} 返回的版本号，为null时不读也不写缓存，无需计算
+     * @return 问题向量，未配置相似度阈值或无需计算时返回null
+     */
+    public float[] queryVector(String message, Long generation) {
+        if (generation == null || properties.getSimilarityThreshold() <= 0) {
+            return null;
+        }
+        return embeddingModel.embed(QueryEmbeddingCache.normalize(message));
+    }
+
+    /**
+     * 查找可回放的回答
+     *
+     * @param model       模型名称
+     * @param ragTags     检索的知识库标签，为空表示检索全部文档
+     * @param message     用户问题
+     * @param generation  {@link #generation} 返回的版本号，为null时不查找
+     * @param queryVector {@link #queryVector} 返回的问题向量，为null时只做精确匹配
+     * @return 命中时返回回放流，未命中返回null
+     */
+    public Flux<ChatResponse> lookup(String model, List<String> ragTags, String message, Long generation,
+                                     float[] queryVector) {
+        if (generation == null) {
+            return null;
+        }
+        String scope = scopeOf(model, ragTags);
+        String query = QueryEmbeddingCache.normalize(message);
+
+        CachedAnswer answer = answers.getIfPresent(scope + query);
+        if (answer != null && answer.generation() == generation) {
+            log.info("BIZ_INFO: op=answerCache, action=hit, match=exact, model={}, ragTags={}", model, ragTags);
+            return Flux.fromIterable(answer.responses());
+        }
+
+        if (properties.getSimilarityThreshold() > 0 && queryVector != null) {
+            CachedAnswer best = null;
+            double bestScore = properties.getSimilarityThreshold();
+            for (CachedAnswer candidate : answers.asMap().values()) {
+                if (!candidate.scope().equals(scope) || candidate.generation() != generation
+                        || candidate.vector() == null) {
+                    continue;
+                }
+                double score = cosine(queryVector, candidate.vector());
+                if (score >= bestScore) {
+                    best = candidate;
+                    bestScore = score;
+                }
+            }
+            if (best != null) {
+                log.info("BIZ_INFO: op=answerCache, action=hit, match=similar, model={}, ragTags={}, score={}",
+                        model, ragTags, String.format("%.4f", bestScore));
+                return Flux.fromIterable(best.responses());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 判断请求是否可能由缓存回答，只检查本地条目，不读取版本号也不计算问题向量
+     *
+     * <p>用于在返回回复流之前决定是否需要检查模型的并发容量：可能命中的请求不调用模型，不应因模型繁忙被拒绝。</p>
+     *
+     * @param model   模型名称
+     * @param ragTags 检索的知识库标签
+     * @param message 用户问题
+     * @return 存在相同问题的条目，或启用相似匹配且同一模型、标签下存在条目时返回true
+     */
+    public boolean mayHit(String model, List<String> ragTags, String message) {
+        if (!properties.isEnabled()) {
+            return false;
+        }
+        String scope = scopeOf(model, ragTags);
+        if (answers.getIfPresent(scope + QueryEmbeddingCache.normalize(message)) != null) {
+            return true;
+        }
+        return properties.getSimilarityThreshold() > 0
+                && answers.asMap().values().stream().anyMatch(answer -> answer.scope().equals(scope));
+    }
+
+    /**
+     * 包装实时生成的回答流，正常结束后写入缓存
+     *
+     * <p>条目记录的是检索之前读取的版本号，检索或生成期间标签被更新时，写入的条目不会再被命中。
+     * 问题向量由调用方事先算好传入，回答流结束时（通常在网络事件循环线程上）不再调用嵌入服务。</p>
+     *
+     * @param model       模型名称
+     * @param ragTags     检索的知识库标签
+     * @param message     用户问题
+     * @param generation  {@link #generation} 返回的版本号，为null时不写入
+     * @param queryVector {@link #queryVector} 返回的问题向量，为null时条目只参与精确匹配
+     * @param response    实时生成的回答流
+     * @return 行为与原回答流一致的流
+     */
+    public Flux<ChatResponse> cache(String model, List<String> ragTags, String message, Long generation,
+                                    float[] queryVector, Flux<ChatResponse> response) {
+        if (generation == null) {
+            return response;
+        }
+        String scope = scopeOf(model, ragTags);
+        List<String> tags = normalizeTags(ragTags);
+        String query = QueryEmbeddingCache.normalize(message);
+        return Flux.defer(() -> {
+            List<ChatResponse> collected = new ArrayList<>();
+            return response
+                    .doOnNext(collected::add)
+                    .doOnComplete(() -> {
+                        if (collected.isEmpty()) {
+                            return;
+                        }
+                        answers.put(scope + query,
+                                new CachedAnswer(scope, tags, queryVector, generation, List.copyOf(collected)));
+                        log.debug("BIZ_DEBUG: op=answerCache, action=store, model={}, ragTags={}, events={}",
+                                model, ragTags, collected.size());
+                    });
+        });
+    }
+
+    /**
+     * 使标签下已缓存的回答失效，标签导入或删除文档时调用
+     *
+     * @param ragTag 知识库标签
+     */
+    public void invalidate(String ragTag) {
+        String tag = normalizeTag(ragTag);
+        answers.asMap().values().removeIf(answer -> answer.tags().isEmpty() || answer.tags().contains(tag));
+        try {
+            redissonClient.getAtomicLong(generationKey(ragTag)).incrementAndGet();
+            redissonClient.getAtomicLong(GENERATION_KEY).incrementAndGet();
+            log.info("BIZ_INFO: op=answerCache, action=invalidate, ragTag={}", ragTag);
+        } catch (Exception e) {
+            log.warn("BIZ_WARN: op=answerCache, action=invalidate-error, ragTag={}", ragTag, e);
+        }
+    }
+
+    private static String generationKey(String ragTag) {
+        String tag = normalizeTag(ragTag);
+        return tag.isEmpty() ? GENERATION_KEY : GENERATION_KEY + ":" + tag;
+    }
+
+    private static String scopeOf(String model, List<String> ragTags) {
+        return model + "\n" + String.join(",", normalizeTags(ragTags)) + "\n";
+    }
+
+    /**
+     * 去除空白标签并排序，标签顺序不同的相同请求共用缓存条目
+     */
+    private static List<String> normalizeTags(List<String> ragTags) {
+        TreeSet<String> tags = new TreeSet<>();
+        for (String ragTag : ragTags) {
+            String tag = normalizeTag(ragTag);
+            if (!tag.isEmpty()) {
+                tags.add(tag);
+            }
+        }
+        return List.copyOf(tags);
+    }
+
+    private static String normalizeTag(String ragTag) {
+        return ragTag == null ? "" : ragTag.strip();
+    }
+
+    private static double cosine(float[] a, float[] b) {
+        if (a.length != b.length) {
+            return 0;
+        }
+        double dot = 0;
+        double normA = 0;
+        double normB = 0;
+        for (int i = 0; i < a.length; i++) {
+            dot += a[i] * b[i];
+            normA += a[i] * a[i];
+            normB += b[i] * b[i];
+        }
+        return normA == 0 || normB == 0 ? 0 : dot / (Math.sqrt(normA) * Math.sqrt(normB));
+    }
+
+    private record CachedAnswer(String scope, List<String> tags, float[] vector, long generation,
+                                List<ChatResponse> responses) {
+    }
+
+}
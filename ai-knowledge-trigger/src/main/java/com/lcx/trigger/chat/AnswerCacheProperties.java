@@ -0,0 +1,55 @@
+package com.lcx.trigger.chat;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * RAG回答缓存配置属性类
+ *
+ * <p>配置前缀：rag.answer-cache</p>
+ * <p>缓存完整生成的RAG回答，相同模型、知识库标签下的相同问题直接回放，不再检索与调用大模型。
+ * 默认关闭，需要显式开启。</p>
+ *
+ * <p>使用示例（application.yml）：</p>
+ * <pre>
+ * rag:
+ *   answer-cache:
+ *     enabled: true
+ *     max-size: 500
+ *     expire-after-write: 1h
+ *     similarity-threshold: 0.97
+ * </pre>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Data
+@ConfigurationProperties(prefix = "rag.answer-cache", ignoreInvalidFields = true)
+public class AnswerCacheProperties {
+
+    /**
+     * 是否启用回答缓存，默认为false
+     */
+    private boolean enabled = false;
+
+    /**
+     * 缓存的最大回答数，默认为500
+     */
+    private long maxSize = 500;
+
+    /**
+     * 回答在写入后的过期时间，默认为1小时
+     */
+    private Duration expireAfterWrite = Duration.ofHours(1);
+
+    /**
+     * 问题向量的余弦相似度阈值，默认为0（只按规范化后的问题文本精确匹配）
+     * <p>大于0时，精确匹配未命中的问题与同一模型、标签下已缓存问题的相似度达到该值即视为命中，
+     * 建议不低于0.95，阈值过低会把不同的问题当成同一个问题</p>
+     */
+    private double similarityThreshold = 0;
+
+}
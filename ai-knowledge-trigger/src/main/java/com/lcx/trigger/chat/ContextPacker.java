@@ -0,0 +1,181 @@
+package com.lcx.trigger.chat;
+
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingResult;
+import com.lcx.trigger.ingestion.TokenEncoding;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * RAG上下文组装器
+ *
+ * <p>将检索到的文本块组装为系统提示词中的文档部分，控制提示词规模以缩短模型的预填充时间：</p>
+ * <ol>
+ *   <li>预算：按目标模型的编码统计token，文档部分不超过 rag.context.max-document-tokens，
+ *       且为提示词模板、用户问题与模型回答留出空间</li>
+ *   <li>去重：相同id或内容与已选文本块高度重合（相邻文本块的重叠部分、重复导入的文件等）的文本块被丢弃</li>
+ *   <li>填充：按相似度从高到低依次放入，放不下的跳过并继续尝试更小的文本块；
+ *       相似度最高的文本块单独超出预算时截断后放入</li>
+ * </ol>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ContextPacker {
+
+    /**
+     * 计算重合度时使用的字符片段长度，对中文与英文文本都适用
+     */
+    private static final int SHINGLE_SIZE = 5;
+
+    private static final String SEPARATOR = "\n\n";
+
+    private final ContextPackerProperties properties;
+
+    /**
+     * 组装文档部分
+     *
+     * @param model     目标模型名称，用于选择token编码
+     * @param documents 检索到的文本块
+     * @param template  系统提示词模板（不含文档）
+     * @param message   用户问题
+     * @return 组装结果
+     */
+    public PackedContext pack(String model, List<Document> documents, String template, String message) {
+        Encoding encoding = TokenEncoding.forModel(model);
+        int overhead = count(encoding, template) + count(encoding, message);
+        int budget = Math.min(properties.getMaxDocumentTokens(),
+                properties.getContextWindowTokens() - properties.getAnswerReserveTokens() - overhead);
+        if (documents == null || documents.isEmpty() || budget <= 0) {
+            return new PackedContext("", 0, 0, overhead, 0, documents != null ? documents.size() : 0);
+        }
+        int separatorTokens = count(encoding, SEPARATOR);
+
+        List<Document> ranked = new ArrayList<>(documents);
+        ranked.sort(Comparator.comparingDouble(ContextPacker::scoreOf).reversed());
+
+        StringBuilder context = new StringBuilder();
+        Set<String> ids = new HashSet<>();
+        List<Set<Integer>> selected = new ArrayList<>();
+        int used = 0;
+        int duplicates = 0;
+        int overBudget = 0;
+        for (Document document : ranked) {
+            String text = document.getText();
+            if (text == null || text.isBlank()) {
+                continue;
+            }
+            text = text.strip();
+            Set<Integer> shingles = shingles(text);
+            if ((document.getId() != null && !ids.add(document.getId())) || isDuplicate(shingles, selected)) {
+                duplicates++;
+                continue;
+            }
+            int extra = selected.isEmpty() ? 0 : separatorTokens;
+            int remaining = budget - used - extra;
+            int tokens = count(encoding, text);
+            if (tokens > remaining) {
+                if (!selected.isEmpty()) {
+                    overBudget++;
+                    continue;
+                }
+                // 最相关的文本块单独超出预算时截断，保证上下文不为空
+                EncodingResult result = encoding.encodeOrdinary(text, remaining);
+                int end = result.getLastProcessedCharacterIndex();
+                text = end > 0 ? text.substring(0, Math.min(text.length(), end)) : "";
+                tokens = result.getTokens().size();
+                if (text.isEmpty()) {
+                    overBudget++;
+                    continue;
+                }
+            }
+            if (!selected.isEmpty()) {
+                context.append(SEPARATOR);
+            }
+            context.append(text);
+            selected.add(shingles);
+            used += tokens + extra;
+        }
+
+        log.debug("BIZ_DEBUG: op=packContext, model={}, docs={}, packed={}, duplicates={}, overBudget={}, "
+                        + "tokens={}, budget={}",
+                model, documents.size(), selected.size(), duplicates, overBudget, used, budget);
+        return new PackedContext(context.toString(), selected.size(), used, overhead + used, duplicates, overBudget);
+    }
+
+    private boolean isDuplicate(Set<Integer> shingles, List<Set<Integer>> selected) {
+        if (properties.getDuplicateThreshold() > 1 || shingles.isEmpty()) {
+            return false;
+        }
+        for (Set<Integer> other : selected) {
+            Set<Integer> smaller = shingles.size() <= other.size() ? shingles : other;
+            Set<Integer> larger = smaller == shingles ? other : shingles;
+            if (smaller.isEmpty()) {
+                continue;
+            }
+            int common = 0;
+            for (Integer shingle : smaller) {
+                if (larger.contains(shingle)) {
+                    common++;
+                }
+            }
+            if ((double) common / smaller.size() >= properties.getDuplicateThreshold()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 以去除空白后的定长字符片段的哈希表示文本，用于估算两段文本的重合度
+     */
+    private static Set<Integer> shingles(String text) {
+        StringBuilder compact = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                compact.append(Character.toLowerCase(c));
+            }
+        }
+        Set<Integer> shingles = new HashSet<>();
+        for (int i = 0; i + SHINGLE_SIZE <= compact.length(); i++) {
+            shingles.add(compact.substring(i, i + SHINGLE_SIZE).hashCode());
+        }
+        return shingles;
+    }
+
+    private static int count(Encoding encoding, String text) {
+        return text == null || text.isEmpty() ? 0 : encoding.countTokensOrdinary(text);
+    }
+
+    private static double scoreOf(Document document) {
+        return document.getScore() != null ? document.getScore() : 0.0;
+    }
+
+    /**
+     * 上下文组装结果
+     *
+     * @param text         文档部分的文本
+     * @param documents    放入的文本块数
+     * @param tokens       文档部分的token数
+     * @param promptTokens 整个提示词（提示词模板、文档与问题）的token数
+     * @param duplicates   因重复被丢弃的文本块数
+     * @param overBudget   因超出预算被丢弃的文本块数
+     */
+    public record PackedContext(String text, int documents, int tokens, int promptTokens, int duplicates,
+                                int overBudget) {
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.lcx.trigger.chat;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * RAG上下文组装配置属性类
+ *
+ * <p>配置前缀：rag.context</p>
+ * <p>控制检索结果写入系统提示词时的token预算与去重规则。</p>
+ *
+ * <p>使用示例（application.yml）：</p>
+ * <pre>
+ * rag:
+ *   context:
+ *     context-window-tokens: 8192
+ *     answer-reserve-tokens: 1024
+ *     max-document-tokens: 3000
+ *     duplicate-threshold: 0.8
+ * </pre>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Data
+@ConfigurationProperties(prefix = "rag.context", ignoreInvalidFields = true)
+public class ContextPackerProperties {
+
+    /**
+     * 模型的上下文窗口大小（token），默认为8192
+     */
+    private int contextWindowTokens = 8192;
+
+    /**
+     * 为模型回答预留的token数，默认为1024
+     */
+    private int answerReserveTokens = 1024;
+
+    /**
+     * 文档部分的token上限，默认为3000
+     * <p>实际预算取该值与"上下文窗口 - 回答预留 - 提示词模板与问题"两者中较小的一个</p>
+     */
+    private int maxDocumentTokens = 3000;
+
+    /**
+     * 近似重复判定阈值，默认为0.8
+     * <p>两个文本块的字符片段重合度（交集 / 较小集合）达到该值时，只保留相似度更高的一个；
+     * 设为1以上可关闭去重</p>
+     */
+    private double duplicateThreshold = 0.8;
+
+}
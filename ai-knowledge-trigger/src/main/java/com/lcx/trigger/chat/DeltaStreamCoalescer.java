@@ -0,0 +1,109 @@
+package com.lcx.trigger.chat;
+
+import com.lcx.api.dto.ChatStreamFrame;
+import lombok.RequiredArgsConstructor;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 增量流式回复编码器
+ *
+ * <p>将模型的 {@link ChatResponse} 流转换为精简的 {@link ChatStreamFrame} SSE事件流：</p>
+ * <ul>
+ *   <li>每个 ChatResponse 只取出新增文本，元数据不再逐个token序列化</li>
+ *   <li>在 rag.stream.coalesce-window 时间窗口内或累计 coalesce-max-tokens 个token后合并为一个事件</li>
+ *   <li>流正常结束后追加一个 done 事件，携带结束原因与token用量</li>
+ * </ul>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Component
+@RequiredArgsConstructor
+public class DeltaStreamCoalescer {
+
+    private static final String DONE_EVENT = "done";
+
+    private final StreamProperties properties;
+
+    /**
+     * 转换回复流
+     *
+     * @param responses 模型的回复流
+     * @return 增量帧事件流，错误照常向下游传递
+     */
+    public Flux<ServerSentEvent<ChatStreamFrame>> coalesce(Flux<ChatResponse> responses) {
+        Duration window = properties.getCoalesceWindow();
+        int maxTokens = Math.max(1, properties.getCoalesceMaxTokens());
+        return Flux.defer(() -> {
+            AtomicReference<String> finishReason = new AtomicReference<>();
+            AtomicReference<Usage> usage = new AtomicReference<>();
+            Flux<String> deltas = responses
+                    .doOnNext(response -> capture(response, finishReason, usage))
+                    .map(DeltaStreamCoalescer::textOf)
+                    .filter(text -> !text.isEmpty());
+            Flux<String> merged = window == null || window.isZero() || window.isNegative() || maxTokens == 1
+                    ? deltas
+                    // 公平背压：SSE写出端逐个请求事件，窗口到期而下游暂无请求时保留缓冲，而不是以错误结束回复流
+                    : deltas.bufferTimeout(maxTokens, window, true).map(DeltaStreamCoalescer::join);
+            return merged
+                    .map(text -> ServerSentEvent.builder(ChatStreamFrame.delta(text)).build())
+                    .concatWith(Mono.fromSupplier(() -> done(finishReason.get(), usage.get())));
+        });
+    }
+
+    /**
+     * 记录结束原因与token用量，二者通常只出现在最后一个或几个 ChatResponse 中
+     */
+    private static void capture(ChatResponse response, AtomicReference<String> finishReason,
+                                AtomicReference<Usage> usage) {
+        Generation result = response.getResult();
+        if (result != null && result.getMetadata() != null && result.getMetadata().getFinishReason() != null) {
+            finishReason.set(result.getMetadata().getFinishReason());
+        }
+        if (response.getMetadata() != null) {
+            Usage current = response.getMetadata().getUsage();
+            if (current != null && current.getTotalTokens() != null && current.getTotalTokens() > 0) {
+                usage.set(current);
+            }
+        }
+    }
+
+    private static String textOf(ChatResponse response) {
+        Generation result = response.getResult();
+        if (result == null || result.getOutput() == null || result.getOutput().getText() == null) {
+            return "";
+        }
+        return result.getOutput().getText();
+    }
+
+    private static String join(List<String> texts) {
+        if (texts.size() == 1) {
+            return texts.get(0);
+        }
+        StringBuilder builder = new StringBuilder();
+        for (String text : texts) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+
+    private static ServerSentEvent<ChatStreamFrame> done(String finishReason, Usage usage) {
+        ChatStreamFrame frame = usage != null
+                ? ChatStreamFrame.done(finishReason, usage.getPromptTokens(), usage.getCompletionTokens(),
+                usage.getTotalTokens())
+                : ChatStreamFrame.done(finishReason, null, null, null);
+        return ServerSentEvent.builder(frame).event(DONE_EVENT).build();
+    }
+
+}
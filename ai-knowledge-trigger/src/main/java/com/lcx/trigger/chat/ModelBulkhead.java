@@ -0,0 +1,317 @@
+package com.lcx.trigger.chat;
+
+import com.lcx.api.exception.TooManyRequestsException;
+import com.lcx.trigger.registry.RegistryCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 按模型隔离的流式生成并发限制
+ *
+ * <p>每个模型名称有独立的并发上限与等待队列，一个模型变慢或被大量请求时不会占满其他模型的连接：</p>
+ * <ul>
+ *   <li>订阅回复流时先取得许可，流结束、出错或被取消后归还，归还的许可按先来先得交给队列中的请求</li>
+ *   <li>并发已满时进入等待队列，等待期间不占用线程；队列已满或等待超过 rag.bulkhead.max-wait 时
+ *       以 {@link TooManyRequestsException} 结束，此时尚未发送任何事件</li>
+ *   <li>流式响应在控制器返回回复流之后才开始订阅，订阅时的拒绝只能作为流中的错误送达。
+ *       调用方应在返回回复流之前调用 {@link #checkCapacity}，并发与队列都已满时同步抛出，
+ *       客户端才能收到HTTP 429与Retry-After；检查之后容量被占满或排队超时的请求仍以流中的错误结束</li>
+ *   <li>指标：rag.chat.bulkhead.active（进行中）、rag.chat.bulkhead.queued（等待中）、
+ *       rag.chat.bulkhead.rejected（按原因统计的拒绝次数），均带有model标签</li>
+ * </ul>
+ *
+ * <p>模型名称来自请求，只有默认模型、已登记的模型与 rag.bulkhead.models 中配置的模型有独立的隔离舱，
+ * 最多 rag.bulkhead.max-models 个；其余名称（未登记、拼写变体等）共用一个名为 other 的隔离舱，
+ * 不能借助不同的名称绕过并发限制，隔离舱与指标的数量也不随请求增长。</p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Slf4j
+@Component
+public class ModelBulkhead {
+
+    private static final String OTHER = "other";
+
+    private final ModelBulkheadProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Supplier<List<String>> registeredModels;
+    private final String defaultModel;
+
+    private final Map<String, Compartment> compartments = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ModelBulkhead(ModelBulkheadProperties properties,
+                         MeterRegistry meterRegistry,
+                         RegistryCache registryCache,
+                         @Value("${spring.ai.openai.chat.options.model}") String defaultModel) {
+        this(properties, meterRegistry, () -> registryCache.members(RegistryCache.MODELS_KEY), defaultModel);
+    }
+
+    ModelBulkhead(ModelBulkheadProperties properties,
+                  MeterRegistry meterRegistry,
+                  Supplier<List<String>> registeredModels,
+                  String defaultModel) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.registeredModels = registeredModels;
+        this.defaultModel = defaultModel;
+    }
+
+    /**
+     * 在模型的并发限制内执行回复流
+     *
+     * @param model  模型名称
+     * @param stream 回复流，取得许可后才被订阅
+     * @return 行为与回复流一致的流，被拒绝时以 {@link TooManyRequestsException} 结束
+     */
+    public <T> Flux<T> guard(String model, Flux<T> stream) {
+        if (!properties.isEnabled()) {
+            return stream;
+        }
+        Compartment compartment = compartmentOf(model);
+        return Flux.usingWhen(compartment.acquire(),
+                acquired -> stream,
+                acquired -> Mono.fromRunnable(acquired::release),
+                (acquired, error) -> Mono.fromRunnable(acquired::release),
+                acquired -> Mono.fromRunnable(acquired::release));
+    }
+
+    /**
+     * 检查模型当前能否接纳请求，在返回回复流之前调用
+     *
+     * @param model 模型名称
+     * @throws TooManyRequestsException 并发与等待队列都已满时抛出
+     */
+    public void checkCapacity(String model) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        compartmentOf(model).checkCapacity();
+    }
+
+    /**
+     * 模型名称对应的隔离舱，未知的名称与超出 max-models 的模型使用共用的 other 隔离舱
+     */
+    private Compartment compartmentOf(String model) {
+        if (model == null || model.isBlank()) {
+            return compartments.computeIfAbsent(OTHER, Compartment::new);
+        }
+        Compartment compartment = compartments.get(model);
+        if (compartment != null) {
+            return compartment;
+        }
+        if (!isKnown(model)) {
+            return compartments.computeIfAbsent(OTHER, Compartment::new);
+        }
+        synchronized (compartments) {
+            // other 隔离舱不计入上限
+            long named = compartments.keySet().stream().filter(key -> !OTHER.equals(key)).count();
+            if (!compartments.containsKey(model) && named >= properties.getMaxModels()) {
+                log.warn("BIZ_WARN: op=modelBulkhead, reason=max-models, model={}, maxModels={}",
+                        model, properties.getMaxModels());
+                return compartments.computeIfAbsent(OTHER, Compartment::new);
+            }
+            return compartments.computeIfAbsent(model, Compartment::new);
+        }
+    }
+
+    private boolean isKnown(String model) {
+        if (OTHER.equals(model)) {
+            return false;
+        }
+        if (model.equals(defaultModel) || properties.getModels().containsKey(model)) {
+            return true;
+        }
+        try {
+            return registeredModels.get().contains(model);
+        } catch (Exception e) {
+            log.debug("BIZ_DEBUG: op=modelBulkhead, action=registry-error, model={}", model, e);
+            return false;
+        }
+    }
+
+    private enum WaiterState {WAITING, GRANTED, EXPIRED, CANCELLED}
+
+    /**
+     * 队列中等待许可的请求，状态只在所属 {@link Compartment} 的锁内修改
+     */
+    private static final class Waiter {
+
+        private final MonoSink<Compartment> sink;
+        private WaiterState state = WaiterState.WAITING;
+
+        private Waiter(MonoSink<Compartment> sink) {
+            this.sink = sink;
+        }
+
+    }
+
+    /**
+     * 单个模型的许可与等待队列
+     */
+    private final class Compartment {
+
+        private final String model;
+        private final int maxConcurrent;
+        private final int maxQueue;
+        private final Deque<Waiter> waiters = new ArrayDeque<>();
+        private final Counter queueFull;
+        private final Counter queueTimeout;
+        private int active;
+
+        private Compartment(String model) {
+            ModelBulkheadProperties.ModelLimit limit = properties.getModels().get(model);
+            this.model = model;
+            this.maxConcurrent = Math.max(1, limit != null && limit.getMaxConcurrent() != null
+                    ? limit.getMaxConcurrent() : properties.getMaxConcurrent());
+            this.maxQueue = Math.max(0, limit != null && limit.getMaxQueue() != null
+                    ? limit.getMaxQueue() : properties.getMaxQueue());
+            this.queueFull = rejectedCounter(model, "queue-full");
+            this.queueTimeout = rejectedCounter(model, "queue-timeout");
+            Gauge.builder("rag.chat.bulkhead.active", this, Compartment::active)
+                    .description("进行中的流式生成数")
+                    .tag("model", model)
+                    .register(meterRegistry);
+            Gauge.builder("rag.chat.bulkhead.queued", this, Compartment::queued)
+                    .description("等待并发许可的流式生成数")
+                    .tag("model", model)
+                    .register(meterRegistry);
+        }
+
+        private Mono<Compartment> acquire() {
+            return Mono.create(sink -> {
+                Waiter waiter = new Waiter(sink);
+                boolean granted = false;
+                boolean queued = false;
+                synchronized (this) {
+                    if (active < maxConcurrent) {
+                        active++;
+                        granted = true;
+                    } else if (waiters.size() < maxQueue) {
+                        waiters.addLast(waiter);
+                        queued = true;
+                    }
+                }
+                if (granted) {
+                    sink.success(this);
+                } else if (queued) {
+                    long maxWaitMs = Math.max(1L, properties.getMaxWait().toMillis());
+                    Disposable timer = Schedulers.parallel().schedule(() -> expire(waiter), maxWaitMs,
+                            TimeUnit.MILLISECONDS);
+                    sink.onDispose(timer);
+                    sink.onCancel(() -> abandon(waiter));
+                } else {
+                    queueFull.increment();
+                    log.warn("BIZ_WARN: op=modelBulkhead, reason=queue-full, model={}, maxConcurrent={}, maxQueue={}",
+                            model, maxConcurrent, maxQueue);
+                    sink.error(rejected());
+                }
+            });
+        }
+
+        private void checkCapacity() {
+            boolean full;
+            synchronized (this) {
+                full = active >= maxConcurrent && waiters.size() >= maxQueue;
+            }
+            if (full) {
+                queueFull.increment();
+                log.warn("BIZ_WARN: op=modelBulkhead, reason=queue-full, action=check, model={}, maxConcurrent={}, maxQueue={}",
+                        model, maxConcurrent, maxQueue);
+                throw rejected();
+            }
+        }
+
+        /**
+         * 归还许可，队列中有请求时直接转交给最早的一个
+         */
+        private void release() {
+            Waiter next;
+            synchronized (this) {
+                next = waiters.pollFirst();
+                if (next == null) {
+                    active--;
+                    return;
+                }
+                next.state = WaiterState.GRANTED;
+            }
+            next.sink.success(this);
+        }
+
+        private void expire(Waiter waiter) {
+            synchronized (this) {
+                if (waiter.state != WaiterState.WAITING) {
+                    return;
+                }
+                waiter.state = WaiterState.EXPIRED;
+                waiters.remove(waiter);
+            }
+            queueTimeout.increment();
+            log.warn("BIZ_WARN: op=modelBulkhead, reason=queue-timeout, model={}, maxWaitMs={}",
+                    model, properties.getMaxWait().toMillis());
+            waiter.sink.error(rejected());
+        }
+
+        /**
+         * 等待中的请求被取消：仍在队列中时移除；许可已转交但尚未送达时归还
+         */
+        private void abandon(Waiter waiter) {
+            synchronized (this) {
+                if (waiter.state == WaiterState.WAITING) {
+                    waiter.state = WaiterState.CANCELLED;
+                    waiters.remove(waiter);
+                    return;
+                }
+                if (waiter.state != WaiterState.GRANTED) {
+                    return;
+                }
+            }
+            release();
+        }
+
+        private synchronized int active() {
+            return active;
+        }
+
+        private synchronized int queued() {
+            return waiters.size();
+        }
+
+        private TooManyRequestsException rejected() {
+            Duration retryAfter = properties.getRetryAfter();
+            long retryAfterSeconds = Math.max(1L, retryAfter != null ? retryAfter.toSeconds() : 1L);
+            return new TooManyRequestsException("模型 " + model + " 请求过多，请稍后重试", retryAfterSeconds);
+        }
+
+    }
+
+    private Counter rejectedCounter(String model, String reason) {
+        return Counter.builder("rag.chat.bulkhead.rejected")
+                .description("并发限制拒绝的流式生成次数")
+                .tag("model", model)
+                .tag("reason", reason)
+                .register(meterRegistry);
+    }
+
+}
@@ -0,0 +1,92 @@
+package com.lcx.trigger.chat;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 模型并发隔离配置属性类
+ *
+ * <p>配置前缀：rag.bulkhead</p>
+ * <p>按模型名称限制同时进行的流式生成数，超出的请求在有界队列中等待，队列已满或等待超时时返回HTTP 429。</p>
+ *
+ * <p>使用示例（application.yml）：</p>
+ * <pre>
+ * rag:
+ *   bulkhead:
+ *     enabled: true
+ *     max-concurrent: 20
+ *     max-queue: 50
+ *     max-wait: 10s
+ *     retry-after: 5s
+ *     max-models: 20
+ *     models:
+ *       gpt-4o:
+ *         max-concurrent: 5
+ * </pre>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Data
+@ConfigurationProperties(prefix = "rag.bulkhead", ignoreInvalidFields = true)
+public class ModelBulkheadProperties {
+
+    /**
+     * 是否启用，默认为true
+     */
+    private boolean enabled = true;
+
+    /**
+     * 每个模型同时进行的流式生成数上限，默认为20
+     */
+    private int maxConcurrent = 20;
+
+    /**
+     * 每个模型的等待队列长度，默认为50，为0时并发已满即拒绝
+     */
+    private int maxQueue = 50;
+
+    /**
+     * 在队列中等待的最长时间，默认为10秒，超时后拒绝
+     */
+    private Duration maxWait = Duration.ofSeconds(10);
+
+    /**
+     * 拒绝时通过Retry-After响应头建议客户端等待的时间，默认为5秒
+     */
+    private Duration retryAfter = Duration.ofSeconds(5);
+
+    /**
+     * 有独立隔离舱的模型数上限，默认为20，超出的模型与未登记的模型共用一个隔离舱
+     */
+    private int maxModels = 20;
+
+    /**
+     * 按模型名称覆盖的限制，未配置的项使用上面的全局值
+     */
+    private Map<String, ModelLimit> models = new HashMap<>();
+
+    /**
+     * 单个模型的并发限制
+     */
+    @Data
+    public static class ModelLimit {
+
+        /**
+         * 同时进行的流式生成数上限
+         */
+        private Integer maxConcurrent;
+
+        /**
+         * 等待队列长度
+         */
+        private Integer maxQueue;
+
+    }
+
+}
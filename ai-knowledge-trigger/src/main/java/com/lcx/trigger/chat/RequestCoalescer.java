@@ -0,0 +1,108 @@
+package com.lcx.trigger.chat;
+
+import com.lcx.api.dto.RagSearchOptions;
+import com.lcx.trigger.embedding.QueryEmbeddingCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 相同RAG请求合并器
+ *
+ * <p>同一时刻只为相同的请求（模型、知识库标签、检索参数与规范化后的问题均相同）执行一次检索与生成：</p>
+ * <ul>
+ *   <li>第一个请求建立共享的回复流，之后到达的相同请求直接订阅该流，从第一个事件开始回放，
+ *       突发的重复提问不会使检索与模型调用成倍增加</li>
+ *   <li>回复流结束（完成、出错或全部订阅者断开）后移除，之后的相同请求重新生成或由回答缓存处理</li>
+ *   <li>只要还有订阅者，单个订阅者断开不会中断共享的回复流</li>
+ * </ul>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Slf4j
+@Component
+public class RequestCoalescer {
+
+    private final Map<String, Flux<ChatResponse>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 生成请求的合并键
+     *
+     * @param model         模型名称
+     * @param ragTags       知识库标签，顺序不影响结果
+     * @param message       用户问题，规范化规则与 {@link QueryEmbeddingCache} 相同
+     * @param searchOptions 检索参数，为null表示使用全局配置；逐个字段写入合并键，新增检索参数时须同时加入
+     * @return 合并键
+     */
+    public static String key(String model, List<String> ragTags, String message, RagSearchOptions searchOptions) {
+        TreeSet<String> tags = new TreeSet<>();
+        for (String ragTag : ragTags) {
+            if (ragTag != null && !ragTag.isBlank()) {
+                tags.add(ragTag.strip());
+            }
+        }
+        return model + "\n" + String.join(",", tags) + "\n" + optionsOf(searchOptions) + "\n"
+                + QueryEmbeddingCache.normalize(message);
+    }
+
+    private static String optionsOf(RagSearchOptions searchOptions) {
+        if (searchOptions == null) {
+            return "default";
+        }
+        return "topK=" + searchOptions.getTopK()
+                + ",efSearch=" + searchOptions.getEfSearch()
+                + ",similarityThreshold=" + searchOptions.getSimilarityThreshold();
+    }
+
+    /**
+     * 判断相同请求是否正在进行
+     *
+     * @param key {@link #key} 生成的合并键
+     * @return 正在进行时返回true，此时 {@link #coalesce} 会加入其回复流
+     */
+    public boolean isInFlight(String key) {
+        return inFlight.containsKey(key);
+    }
+
+    /**
+     * 订阅相同请求正在进行的回复流，没有时以 upstream 建立新的共享流
+     *
+     * @param key      {@link #key} 生成的合并键
+     * @param upstream 回复流，只在没有相同请求进行中时被订阅
+     * @return 行为与回复流一致的流
+     */
+    public Flux<ChatResponse> coalesce(String key, Flux<ChatResponse> upstream) {
+        return Flux.defer(() -> {
+            boolean[] leader = {false};
+            Flux<ChatResponse> shared = inFlight.computeIfAbsent(key, k -> {
+                leader[0] = true;
+                return share(k, upstream);
+            });
+            if (!leader[0]) {
+                log.info("BIZ_INFO: op=requestCoalesce, action=join, inFlight={}", inFlight.size());
+            }
+            return shared;
+        });
+    }
+
+    private Flux<ChatResponse> share(String key, Flux<ChatResponse> upstream) {
+        AtomicReference<Flux<ChatResponse>> self = new AtomicReference<>();
+        Flux<ChatResponse> shared = upstream
+                // 只移除自己，避免误删结束后新建立的同键共享流
+                .doFinally(signal -> inFlight.remove(key, self.get()))
+                .replay()
+                .refCount();
+        self.set(shared);
+        return shared;
+    }
+
+}
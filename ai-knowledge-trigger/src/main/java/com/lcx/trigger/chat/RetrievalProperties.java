@@ -0,0 +1,40 @@
+package com.lcx.trigger.chat;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * RAG检索阶段调度配置属性类
+ *
+ * <p>配置前缀：rag.retrieval</p>
+ * <p>RAG请求的检索与提示词组装阶段（问题嵌入、向量检索、上下文组装）在独立的有界调度器上执行，
+ * 不占用Web容器的请求线程。</p>
+ *
+ * <p>使用示例（application.yml）：</p>
+ * <pre>
+ * rag:
+ *   retrieval:
+ *     workers: 8
+ *     queue-capacity: 256
+ * </pre>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Data
+@ConfigurationProperties(prefix = "rag.retrieval", ignoreInvalidFields = true)
+public class RetrievalProperties {
+
+    /**
+     * 同时执行检索阶段的线程数上限，默认为8
+     * <p>单标签检索时每个线程占用一个数据库连接，应不大于连接池大小</p>
+     */
+    private int workers = 8;
+
+    /**
+     * 等待执行检索阶段的请求数上限，默认为256，超出时请求失败（4029）
+     */
+    private int queueCapacity = 256;
+
+}
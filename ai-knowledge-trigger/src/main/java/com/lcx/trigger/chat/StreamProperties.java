@@ -0,0 +1,41 @@
+package com.lcx.trigger.chat;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 增量流式回复配置属性类
+ *
+ * <p>配置前缀：rag.stream</p>
+ * <p>控制增量流式接口合并token的方式：在一个时间窗口内或累计到一定数量的token后，合并为一个SSE事件发送。</p>
+ *
+ * <p>使用示例（application.yml）：</p>
+ * <pre>
+ * rag:
+ *   stream:
+ *     coalesce-window: 20ms
+ *     coalesce-max-tokens: 16
+ * </pre>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Data
+@ConfigurationProperties(prefix = "rag.stream", ignoreInvalidFields = true)
+public class StreamProperties {
+
+    /**
+     * token合并的时间窗口，默认为20毫秒，为0时每个token单独发送
+     * <p>窗口越大事件数越少，首个token之后的显示延迟最多增加一个窗口</p>
+     */
+    private Duration coalesceWindow = Duration.ofMillis(20);
+
+    /**
+     * 单个事件最多合并的token数，默认为16，达到后不等窗口结束立即发送
+     */
+    private int coalesceMaxTokens = 16;
+
+}
@@ -1,17 +1,21 @@
 package com.lcx.trigger.controller;
 
 import com.lcx.api.dto.ChatRequest;
+import com.lcx.api.dto.ChatStreamFrame;
 import com.lcx.api.dto.RagChatRequest;
 import com.lcx.api.response.Response;
+import com.lcx.trigger.chat.DeltaStreamCoalescer;
 import com.lcx.trigger.service.OpenAiServiceImpl;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Slf4j
@@ -22,6 +26,7 @@ import java.util.List;
 public class ChatController {
 
     private final OpenAiServiceImpl aiService;
+    private final DeltaStreamCoalescer deltaStreamCoalescer;
 
     @GetMapping(value = "/models")
     public Response<List<String>> queryAvailableModels() {
@@ -41,7 +46,39 @@ public class ChatController {
 
     @PostMapping(value = "generate_stream_rag", produces = "text/event-stream")
     public Flux<ChatResponse> generateStreamRag(@Valid @RequestBody RagChatRequest request) {
-        return aiService.generateStreamRag(request.getModel(), request.getRagTag(), request.getMessage());
+        return aiService.generateStreamRag(request.getModel(), ragTagsOf(request), request.getMessage(),
+                request.getSearchOptions());
     }
 
-}    
\ No newline at end of file
+    /**
+     * 增量流式生成，每个事件只包含合并后的新增文本，结束原因与token用量在最后的 done 事件中
+     */
+    @PostMapping(value = "/generate_stream_delta", produces = "text/event-stream")
+    public Flux<ServerSentEvent<ChatStreamFrame>> generateStreamDelta(@Valid @RequestBody ChatRequest request) {
+        return deltaStreamCoalescer.coalesce(aiService.generateStream(request.getModel(), request.getMessage()));
+    }
+
+    /**
+     * RAG增量流式生成，事件格式与 generate_stream_delta 相同
+     */
+    @PostMapping(value = "/generate_stream_rag_delta", produces = "text/event-stream")
+    public Flux<ServerSentEvent<ChatStreamFrame>> generateStreamRagDelta(@Valid @RequestBody RagChatRequest request) {
+        return deltaStreamCoalescer.coalesce(aiService.generateStreamRag(request.getModel(), ragTagsOf(request),
+                request.getMessage(), request.getSearchOptions()));
+    }
+
+    /**
+     * 合并 ragTag 与 ragTags 并去重
+     */
+    private static List<String> ragTagsOf(RagChatRequest request) {
+        List<String> ragTags = new ArrayList<>();
+        if (request.getRagTag() != null && !request.getRagTag().isBlank()) {
+            ragTags.add(request.getRagTag());
+        }
+        if (request.getRagTags() != null) {
+            ragTags.addAll(request.getRagTags());
+        }
+        return ragTags.stream().distinct().toList();
+    }
+
+}
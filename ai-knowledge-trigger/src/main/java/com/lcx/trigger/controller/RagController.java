@@ -3,12 +3,15 @@ package com.lcx.trigger.controller;
 import com.lcx.api.IRagService;
 import com.lcx.api.dto.FileUploadRequest;
 import com.lcx.api.dto.GitRepositoryRequest;
+import com.lcx.api.dto.IngestionJobStatus;
 import com.lcx.api.response.Response;
+import com.lcx.trigger.ingestion.IngestionJobManager;
 import jakarta.annotation.Resource;
 import jakarta.validation.Valid;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -20,6 +23,7 @@ import java.util.List;
  *   <li>查询知识库标签列表</li>
  *   <li>上传文档到知识库</li>
  *   <li>分析Git仓库并导入知识库</li>
+ *   <li>查询导入任务状态与进度</li>
  * </ul>
  *
  * <p>控制器职责：</p>
@@ -43,6 +47,9 @@ public class RagController {
     @Resource
     private IRagService ragService;
 
+    @Resource
+    private IngestionJobManager ingestionJobManager;
+
     /**
      * 查询RAG标签列表
      *
@@ -59,9 +66,10 @@ public class RagController {
      * 上传文件到知识库
      *
      * <p>处理用户上传的文档文件，支持多种格式的文档解析和向量化存储。</p>
+     * <p>文件转存后以后台任务方式导入，接口立即返回任务ID，导入进度通过任务状态接口查询。</p>
      *
      * @param request 文件上传请求对象
-     * @return 上传结果的响应信息
+     * @return 导入任务ID
      */
     @RequestMapping(value = "file/upload", method = RequestMethod.POST, headers = "content-type=multipart/form-data")
     public Response<String> uploadFileWithDto(@Valid FileUploadRequest request) {
@@ -72,10 +80,11 @@ public class RagController {
      * 分析Git仓库并导入知识库
      *
      * <p>克隆指定的Git仓库，解析其中的文档文件，并将内容导入到知识库中。</p>
+     * <p>导入以后台任务方式执行，接口立即返回任务ID，导入进度通过任务状态接口查询。</p>
      * <p>支持的操作流程：</p>
      * <ol>
-     *   <li>使用提供的凭据克隆Git仓库到本地临时目录</li>
-     *   <li>遍历仓库中的所有文件，过滤出支持的文档类型</li>
+     *   <li>使用提供的凭据克隆Git仓库到本地目录，已有本地副本时只拉取新提交</li>
+     *   <li>有上次导入的提交记录时只处理变更文件，否则遍历仓库中的所有文件，过滤出支持的文档类型</li>
      *   <li>使用Tika解析文档内容并进行文本分割</li>
      *   <li>将处理后的文档存储到PostgreSQL向量数据库</li>
      *   <li>更新Redis中的知识库标签列表</li>
@@ -97,10 +106,36 @@ public class RagController {
      * </ul>
      *
      * @param request Git仓库分析请求对象，包含仓库地址、用户名和访问令牌
-     * @return 分析结果的响应信息
+     * @return 导入任务ID
      */
     @RequestMapping(value = "analyze_git_repository", method = RequestMethod.POST)
     public Response<String> analyzeGitRepository(@Valid @RequestBody GitRepositoryRequest request) {
         return Response.success(ragService.analyzeGitRepository(request));
     }
+
+    /**
+     * 查询导入任务状态
+     *
+     * <p>返回任务状态（QUEUED/RUNNING/SUCCEEDED/FAILED）及文件数、文本块数、失败数、耗时等计数。</p>
+     *
+     * @param jobId 导入任务ID
+     * @return 任务状态
+     */
+    @RequestMapping(value = "ingestion/job/{jobId}", method = RequestMethod.GET)
+    public Response<IngestionJobStatus> queryIngestionJob(@PathVariable("jobId") String jobId) {
+        return Response.success(ingestionJobManager.getStatus(jobId));
+    }
+
+    /**
+     * 订阅导入任务进度
+     *
+     * <p>以SSE方式持续推送 progress 事件，事件数据为任务状态，任务结束后推送最终状态并关闭连接。</p>
+     *
+     * @param jobId 导入任务ID
+     * @return SSE连接
+     */
+    @RequestMapping(value = "ingestion/job/{jobId}/progress", method = RequestMethod.GET, produces = "text/event-stream")
+    public SseEmitter streamIngestionProgress(@PathVariable("jobId") String jobId) {
+        return ingestionJobManager.subscribe(jobId);
+    }
 }
@@ -0,0 +1,240 @@
+package com.lcx.trigger.embedding;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBatch;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+import org.springframework.ai.tokenizer.JTokkitTokenCountEstimator;
+import org.springframework.ai.tokenizer.TokenCountEstimator;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 带内容寻址缓存的嵌入模型
+ *
+ * <p>包装实际的嵌入模型，以"模型名称 + 文本内容SHA-256"为键缓存文档向量：</p>
+ * <ul>
+ *   <li>本地缓存：进程内有界LRU缓存，命中时无任何网络开销</li>
+ *   <li>Redis缓存：可选的共享缓存层，多节点及重启后仍可复用</li>
+ * </ul>
+ *
+ * <p>向量库写入文档时只对未命中的文本块调用嵌入模型，同一批次内的重复内容也只计算一次。
+ * 缓存读写失败只记录日志并按未命中处理，不影响导入流程。</p>
+ *
+ * <p>向量库检索时对问题文本的嵌入（{@link #embed(String)}）走单独的 {@link QueryEmbeddingCache}。</p>
+ *
+ * <p>指标：</p>
+ * <ul>
+ *   <li>rag.embedding.cache.lookups{result=local_hit|redis_hit|miss}：查询次数</li>
+ *   <li>rag.embedding.cache.saved.tokens：命中缓存节省的嵌入token数（估算）</li>
+ * </ul>
+ *
+ * <p>批量嵌入的耗时由被包装的 {@link TimedEmbeddingModel} 记录，只包含实际调用嵌入服务的部分。</p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Slf4j
+public class CachingEmbeddingModel implements EmbeddingModel {
+
+    private static final String REDIS_KEY_PREFIX = "ai:embedding:cache:";
+
+    private final EmbeddingModel delegate;
+    private final String modelName;
+    private final EmbeddingCacheProperties properties;
+    private final RedissonClient redissonClient;
+    private final Cache<String, float[]> localCache;
+    private final QueryEmbeddingCache queryCache;
+    private final TokenCountEstimator tokenCountEstimator = new JTokkitTokenCountEstimator();
+
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+    private final Counter savedTokens;
+
+    /**
+     * @param delegate       实际的嵌入模型，通常为 {@link TimedEmbeddingModel}
+     * @param modelName      嵌入模型名称，作为缓存键的一部分
+     * @param dimensions     配置的向量维度，作为查询缓存键的一部分；未配置（不大于0）时向嵌入模型探测
+     * @param properties     缓存配置
+     * @param redissonClient Redis客户端，未启用Redis缓存层时可为null
+     * @param meterRegistry  指标注册表
+     */
+    public CachingEmbeddingModel(EmbeddingModel delegate, String modelName, int dimensions,
+                                 EmbeddingCacheProperties properties, RedissonClient redissonClient,
+                                 MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.modelName = modelName;
+        this.properties = properties;
+        this.redissonClient = properties.isRedisEnabled() ? redissonClient : null;
+        this.localCache = CacheBuilder.newBuilder()
+                .maximumSize(properties.getLocalMaxSize())
+                .expireAfterAccess(properties.getLocalExpireAfterAccess())
+                .build();
+        this.queryCache = properties.getQuery().isEnabled()
+                ? new QueryEmbeddingCache(modelName, dimensions > 0 ? dimensions : delegate.dimensions(),
+                properties.getQuery(), redissonClient, meterRegistry)
+                : null;
+
+        this.localHits = lookupCounter(meterRegistry, "local_hit");
+        this.redisHits = lookupCounter(meterRegistry, "redis_hit");
+        this.misses = lookupCounter(meterRegistry, "miss");
+        this.savedTokens = Counter.builder("rag.embedding.cache.saved.tokens")
+                .description("命中嵌入缓存节省的token数（估算）")
+                .tag("model", modelName)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return delegate.call(request);
+    }
+
+    @Override
+    public float[] embed(String text) {
+        if (queryCache == null) {
+            return delegate.embed(text);
+        }
+        return queryCache.get(text, delegate::embed);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return embedCached(List.of(document), missed -> List.of(delegate.embed(missed.get(0)))).get(0);
+    }
+
+    @Override
+    public List<float[]> embed(List<Document> documents, EmbeddingOptions options, BatchingStrategy batchingStrategy) {
+        return embedCached(documents, missed -> delegate.embed(missed, options, batchingStrategy));
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+    private List<float[]> embedCached(List<Document> documents, Function<List<Document>, List<float[]>> loader) {
+        int size = documents.size();
+        float[][] vectors = new float[size][];
+        String[] keys = new String[size];
+        List<Integer> pending = new ArrayList<>();
+
+        for (int i = 0; i < size; i++) {
+            String text = textOf(documents.get(i));
+            keys[i] = cacheKey(text);
+            vectors[i] = localCache.getIfPresent(keys[i]);
+            if (vectors[i] != null) {
+                localHits.increment();
+                savedTokens.increment(tokenCountEstimator.estimate(text));
+            } else {
+                pending.add(i);
+            }
+        }
+
+        if (!pending.isEmpty() && redissonClient != null) {
+            pending = lookupRedis(documents, keys, vectors, pending);
+        }
+
+        if (!pending.isEmpty()) {
+            // 同一批次内的重复内容只计算一次
+            Map<String, Document> uniqueMisses = new LinkedHashMap<>();
+            for (int i : pending) {
+                uniqueMisses.putIfAbsent(keys[i], documents.get(i));
+            }
+            misses.increment(pending.size());
+
+            List<float[]> embedded = loader.apply(new ArrayList<>(uniqueMisses.values()));
+
+            Map<String, float[]> computed = new LinkedHashMap<>();
+            int index = 0;
+            for (String key : uniqueMisses.keySet()) {
+                computed.put(key, embedded.get(index++));
+            }
+            for (int i : pending) {
+                vectors[i] = computed.get(keys[i]);
+            }
+            localCache.putAll(computed);
+            storeRedis(computed);
+        }
+
+        log.debug("BIZ_DEBUG: op=embeddingCache, model={}, docs={}, misses={}", modelName, size, pending.size());
+        return Arrays.asList(vectors);
+    }
+
+    private List<Integer> lookupRedis(List<Document> documents, String[] keys, float[][] vectors, List<Integer> pending) {
+        try {
+            String[] redisKeys = pending.stream().map(i -> REDIS_KEY_PREFIX + keys[i]).distinct().toArray(String[]::new);
+            Map<String, byte[]> found = redissonClient.getBuckets(ByteArrayCodec.INSTANCE).get(redisKeys);
+            if (found.isEmpty()) {
+                return pending;
+            }
+            List<Integer> remaining = new ArrayList<>();
+            for (int i : pending) {
+                byte[] bytes = found.get(REDIS_KEY_PREFIX + keys[i]);
+                if (bytes == null) {
+                    remaining.add(i);
+                    continue;
+                }
+                vectors[i] = VectorCodec.fromBytes(bytes);
+                localCache.put(keys[i], vectors[i]);
+                redisHits.increment();
+                savedTokens.increment(tokenCountEstimator.estimate(textOf(documents.get(i))));
+            }
+            return remaining;
+        } catch (Exception e) {
+            log.warn("BIZ_WARN: op=embeddingCache, action=redis-get-error, model={}, keys={}",
+                    modelName, pending.size(), e);
+            return pending;
+        }
+    }
+
+    private void storeRedis(Map<String, float[]> computed) {
+        if (redissonClient == null) {
+            return;
+        }
+        try {
+            RBatch batch = redissonClient.createBatch();
+            computed.forEach((key, vector) -> batch.<byte[]>getBucket(REDIS_KEY_PREFIX + key, ByteArrayCodec.INSTANCE)
+                    .setAsync(VectorCodec.toBytes(vector), properties.getRedisTtl()));
+            batch.execute();
+        } catch (Exception e) {
+            log.warn("BIZ_WARN: op=embeddingCache, action=redis-set-error, model={}, keys={}",
+                    modelName, computed.size(), e);
+        }
+    }
+
+    private static String textOf(Document document) {
+        return document.getText() != null ? document.getText() : "";
+    }
+
+    private String cacheKey(String text) {
+        return modelName + ":" + Hashing.sha256().hashString(text, StandardCharsets.UTF_8);
+    }
+
+    private Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("rag.embedding.cache.lookups")
+                .description("嵌入缓存查询次数")
+                .tag("model", modelName)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+}
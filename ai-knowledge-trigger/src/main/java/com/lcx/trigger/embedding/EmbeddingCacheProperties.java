@@ -0,0 +1,108 @@
+package com.lcx.trigger.embedding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 嵌入向量缓存配置属性类
+ *
+ * <p>配置前缀：rag.embedding.cache</p>
+ * <p>以文本块内容哈希与嵌入模型名称为键缓存向量，重复内容无需再次调用嵌入模型。</p>
+ *
+ * <p>使用示例（application.yml）：</p>
+ * <pre>
+ * rag:
+ *   embedding:
+ *     cache:
+ *       enabled: true
+ *       local-max-size: 10000
+ *       local-expire-after-access: 1h
+ *       redis-enabled: true
+ *       redis-ttl: 7d
+ *       query:
+ *         enabled: true
+ *         local-max-size: 2000
+ *         local-expire-after-write: 10m
+ *         redis-enabled: true
+ *         redis-ttl: 1d
+ * </pre>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Data
+@ConfigurationProperties(prefix = "rag.embedding.cache", ignoreInvalidFields = true)
+public class EmbeddingCacheProperties {
+
+    /**
+     * 是否启用嵌入向量缓存，默认为true
+     */
+    private boolean enabled = true;
+
+    /**
+     * 本地缓存最大条目数
+     * <p>768维向量每条约3KB，默认10000条约占用30MB堆内存</p>
+     */
+    private long localMaxSize = 10000;
+
+    /**
+     * 本地缓存条目在最后一次访问后的过期时间，默认为1小时
+     */
+    private Duration localExpireAfterAccess = Duration.ofHours(1);
+
+    /**
+     * 是否启用Redis共享缓存层，默认为true
+     * <p>启用后多个节点之间共享已计算的向量</p>
+     */
+    private boolean redisEnabled = true;
+
+    /**
+     * Redis缓存条目的过期时间，默认为7天
+     */
+    private Duration redisTtl = Duration.ofDays(7);
+
+    /**
+     * 查询向量缓存配置
+     */
+    private QueryProperties query = new QueryProperties();
+
+    /**
+     * 查询向量缓存配置属性
+     *
+     * <p>缓存RAG对话中用户问题的向量，相同问题（规范化后）再次检索时无需调用嵌入服务。</p>
+     */
+    @Data
+    public static class QueryProperties {
+
+        /**
+         * 是否启用查询向量缓存，默认为true
+         */
+        private boolean enabled = true;
+
+        /**
+         * 本地缓存最大条目数，默认为2000
+         */
+        private long localMaxSize = 2000;
+
+        /**
+         * 本地缓存条目在写入后的过期时间，默认为10分钟
+         */
+        private Duration localExpireAfterWrite = Duration.ofMinutes(10);
+
+        /**
+         * 是否启用Redis共享缓存层，默认为true
+         */
+        private boolean redisEnabled = true;
+
+        /**
+         * Redis缓存条目的过期时间，默认为1天
+         * <p>知识库内容变化不影响问题本身的向量，过期时间只用于控制缓存规模</p>
+         */
+        private Duration redisTtl = Duration.ofDays(1);
+
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.lcx.trigger.embedding;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.ByteArrayCodec;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * 查询向量缓存
+ *
+ * <p>RAG检索每次都要先对用户问题做嵌入，而问答场景中相同的问题会反复出现。本缓存以
+ * "模型名称 + 向量维度 + 规范化问题文本的SHA-256"为键缓存问题向量：</p>
+ * <ul>
+ *   <li>规范化：Unicode NFKC归一化、去除首尾空白、连续空白合并为一个空格</li>
+ *   <li>本地缓存：按条目数与写入时间双重限制的进程内缓存</li>
+ *   <li>Redis缓存：可选的共享缓存层，多节点之间复用</li>
+ * </ul>
+ *
+ * <p>命中时检索前不再有嵌入服务的网络往返，缩短重复问题的首字响应时间。
+ * 缓存读写失败只记录日志并按未命中处理。</p>
+ *
+ * <p>指标：rag.embedding.query.cache.lookups{result=local_hit|redis_hit|miss}</p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Slf4j
+public class QueryEmbeddingCache {
+
+    private static final String REDIS_KEY_PREFIX = "ai:embedding:query:";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final String keyPrefix;
+    private final EmbeddingCacheProperties.QueryProperties properties;
+    private final RedissonClient redissonClient;
+    private final Cache<String, float[]> localCache;
+
+    private final Counter localHits;
+    private final Counter redisHits;
+    private final Counter misses;
+
+    /**
+     * @param modelName      嵌入模型名称
+     * @param dimensions     向量维度
+     * @param properties     查询缓存配置
+     * @param redissonClient Redis客户端，未启用Redis缓存层时可为null
+     * @param meterRegistry  指标注册表
+     */
+    public QueryEmbeddingCache(String modelName, int dimensions, EmbeddingCacheProperties.QueryProperties properties,
+                               RedissonClient redissonClient, MeterRegistry meterRegistry) {
+        this.keyPrefix = modelName + ":" + dimensions + ":";
+        this.properties = properties;
+        this.redissonClient = properties.isRedisEnabled() ? redissonClient : null;
+        this.localCache = CacheBuilder.newBuilder()
+                .maximumSize(properties.getLocalMaxSize())
+                .expireAfterWrite(properties.getLocalExpireAfterWrite())
+                .build();
+
+        this.localHits = lookupCounter(meterRegistry, modelName, "local_hit");
+        this.redisHits = lookupCounter(meterRegistry, modelName, "redis_hit");
+        this.misses = lookupCounter(meterRegistry, modelName, "miss");
+    }
+
+    /**
+     * 获取问题向量，未命中时调用加载函数计算并写入缓存
+     *
+     * @param query  问题文本
+     * @param loader 嵌入函数，参数为规范化后的问题文本
+     * @return 问题向量
+     */
+    public float[] get(String query, Function<String, float[]> loader) {
+        String normalized = normalize(query);
+        String key = keyPrefix + Hashing.sha256().hashString(normalized, StandardCharsets.UTF_8);
+
+        float[] vector = localCache.getIfPresent(key);
+        if (vector != null) {
+            localHits.increment();
+            return vector;
+        }
+
+        vector = lookupRedis(key);
+        if (vector != null) {
+            localCache.put(key, vector);
+            redisHits.increment();
+            return vector;
+        }
+
+        misses.increment();
+        vector = loader.apply(normalized);
+        localCache.put(key, vector);
+        storeRedis(key, vector);
+        log.debug("BIZ_DEBUG: op=queryEmbeddingCache, action=miss, key={}", key);
+        return vector;
+    }
+
+    /**
+     * 规范化问题文本，使仅有空白或全半角差异的问题命中同一缓存条目
+     */
+    public static String normalize(String query) {
+        if (query == null) {
+            return "";
+        }
+        String text = Normalizer.normalize(query, Normalizer.Form.NFKC).strip();
+        return WHITESPACE.matcher(text).replaceAll(" ");
+    }
+
+    private float[] lookupRedis(String key) {
+        if (redissonClient == null) {
+            return null;
+        }
+        try {
+            byte[] bytes = redissonClient.<byte[]>getBucket(REDIS_KEY_PREFIX + key, ByteArrayCodec.INSTANCE).get();
+            return bytes != null ? VectorCodec.fromBytes(bytes) : null;
+        } catch (Exception e) {
+            log.warn("BIZ_WARN: op=queryEmbeddingCache, action=redis-get-error, key={}", key, e);
+            return null;
+        }
+    }
+
+    private void storeRedis(String key, float[] vector) {
+        if (redissonClient == null) {
+            return;
+        }
+        try {
+            redissonClient.<byte[]>getBucket(REDIS_KEY_PREFIX + key, ByteArrayCodec.INSTANCE)
+                    .setAsync(VectorCodec.toBytes(vector), properties.getRedisTtl());
+        } catch (Exception e) {
+            log.warn("BIZ_WARN: op=queryEmbeddingCache, action=redis-set-error, key={}", key, e);
+        }
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String modelName, String result) {
+        return Counter.builder("rag.embedding.query.cache.lookups")
+                .description("查询向量缓存查询次数")
+                .tag("model", modelName)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+}
@@ -0,0 +1,68 @@
+package com.lcx.trigger.embedding;
+
+import com.lcx.trigger.metrics.RagMetrics;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.BatchingStrategy;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingOptions;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+import java.util.List;
+
+/**
+ * 记录批量嵌入耗时的嵌入模型
+ *
+ * <p>直接包装实际的嵌入模型，文档批量嵌入的耗时交给 {@link RagMetrics}，导入流水线据此区分一次写入中
+ * 嵌入与插入数据库各自的耗时。启用嵌入缓存时位于 {@link CachingEmbeddingModel} 之内，只统计实际调用
+ * 嵌入服务的耗时，全部命中缓存的批次嵌入耗时为0；未启用时直接作为首选的嵌入模型。</p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+public class TimedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final RagMetrics ragMetrics;
+
+    /**
+     * @param delegate   实际的嵌入模型
+     * @param ragMetrics 流水线指标，记录批量嵌入耗时
+     */
+    public TimedEmbeddingModel(EmbeddingModel delegate, RagMetrics ragMetrics) {
+        this.delegate = delegate;
+        this.ragMetrics = ragMetrics;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return delegate.call(request);
+    }
+
+    @Override
+    public float[] embed(String text) {
+        return delegate.embed(text);
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return delegate.embed(document);
+    }
+
+    @Override
+    public List<float[]> embed(List<Document> documents, EmbeddingOptions options, BatchingStrategy batchingStrategy) {
+        long startTime = System.nanoTime();
+        try {
+            return delegate.embed(documents, options, batchingStrategy);
+        } finally {
+            ragMetrics.recordEmbedBatch(System.nanoTime() - startTime);
+        }
+    }
+
+    @Override
+    public int dimensions() {
+        return delegate.dimensions();
+    }
+
+}
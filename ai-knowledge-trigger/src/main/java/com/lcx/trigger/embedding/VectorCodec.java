@@ -0,0 +1,31 @@
+package com.lcx.trigger.embedding;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 向量与Redis缓存值之间的编解码
+ *
+ * <p>向量按大端float数组原样存储（768维约3KB），文本块向量缓存与查询向量缓存共用同一格式。</p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+final class VectorCodec {
+
+    private VectorCodec() {
+    }
+
+    static byte[] toBytes(float[] vector) {
+        ByteBuffer buffer = ByteBuffer.allocate(vector.length * Float.BYTES);
+        buffer.asFloatBuffer().put(vector);
+        return buffer.array();
+    }
+
+    static float[] fromBytes(byte[] bytes) {
+        float[] vector = new float[bytes.length / Float.BYTES];
+        ByteBuffer.wrap(bytes).asFloatBuffer().get(vector);
+        return vector;
+    }
+
+}
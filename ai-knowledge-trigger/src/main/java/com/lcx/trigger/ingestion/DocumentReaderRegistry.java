@@ -0,0 +1,63 @@
+package com.lcx.trigger.ingestion;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 文档读取器注册表
+ *
+ * <p>按文件扩展名选择读取器：</p>
+ * <ul>
+ *   <li>文本与源代码（rag.ingestion.text-extensions）：{@link PlainTextReader} 直接按UTF-8解码</li>
+ *   <li>二进制文档与标记语言（rag.ingestion.tika-extensions，如 .pdf、.docx、.html、.xml）：{@link StreamingTikaReader}</li>
+ * </ul>
+ *
+ * <p>两个列表合起来就是可导入的文件类型，Git仓库导入据此过滤文件。</p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Slf4j
+@Component
+public class DocumentReaderRegistry {
+
+    private final Map<String, DocumentSegmentReader> readers = new HashMap<>();
+    private final DocumentSegmentReader defaultReader;
+
+    public DocumentReaderRegistry(IngestionProperties properties) {
+        PlainTextReader textReader = new PlainTextReader(properties.getParseSegmentChars());
+        StreamingTikaReader tikaReader = new StreamingTikaReader(properties.getParseSegmentChars());
+        properties.getTikaExtensions().forEach(ext -> readers.put(FileExtensions.normalize(ext), tikaReader));
+        properties.getTextExtensions().forEach(ext -> readers.put(FileExtensions.normalize(ext), textReader));
+        // 未注册扩展名的文件（如直接上传的其他格式）仍交给Tika探测类型
+        this.defaultReader = tikaReader;
+        log.info("BIZ_INFO: op=readerRegistry, text={}, tika={}",
+                properties.getTextExtensions().size(), properties.getTikaExtensions().size());
+    }
+
+    /**
+     * 获取文件对应的读取器
+     *
+     * @param fileName 文件名或路径
+     * @return 读取器，未注册的扩展名返回Tika读取器
+     */
+    public DocumentSegmentReader readerFor(String fileName) {
+        DocumentSegmentReader reader = readers.get(FileExtensions.of(fileName));
+        return reader != null ? reader : defaultReader;
+    }
+
+    /**
+     * 判断文件是否为可导入的文档类型
+     *
+     * @param fileName 文件名或路径
+     * @return 扩展名已注册时返回true
+     */
+    public boolean isSupported(String fileName) {
+        return readers.containsKey(FileExtensions.of(fileName));
+    }
+
+}
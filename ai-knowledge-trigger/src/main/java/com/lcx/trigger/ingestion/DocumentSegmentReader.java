@@ -0,0 +1,35 @@
+package com.lcx.trigger.ingestion;
+
+import org.springframework.ai.document.Document;
+
+/**
+ * 分段文档读取器
+ *
+ * <p>将文件正文按片段逐段交给调用方，而不是一次性返回整篇文档。
+ * 解析阶段按文件扩展名从 {@link DocumentReaderRegistry} 选择具体实现。</p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+public interface DocumentSegmentReader {
+
+    /**
+     * 读取文件并逐段回调
+     *
+     * @param file     待读取文件
+     * @param consumer 片段回调，在读取线程中同步调用
+     * @throws Exception 读取或解析失败，或回调被中断
+     */
+    void read(IngestionFile file, SegmentConsumer consumer) throws Exception;
+
+    /**
+     * 片段回调
+     */
+    @FunctionalInterface
+    interface SegmentConsumer {
+
+        void accept(Document segment) throws InterruptedException;
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.lcx.trigger.ingestion;
+
+import java.util.Locale;
+
+/**
+ * 文件扩展名工具，读取器与分割器注册表按同一规则识别扩展名
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+final class FileExtensions {
+
+    private FileExtensions() {
+    }
+
+    /**
+     * 获取文件扩展名
+     *
+     * @param fileName 文件名或路径
+     * @return 小写的扩展名（不含点），没有扩展名时返回空字符串
+     */
+    static String of(String fileName) {
+        if (fileName == null) {
+            return "";
+        }
+        int slash = fileName.lastIndexOf('/');
+        int dot = fileName.lastIndexOf('.');
+        return dot > slash ? fileName.substring(dot + 1).toLowerCase(Locale.ROOT) : "";
+    }
+
+    /**
+     * 规范化配置中的扩展名：去掉首尾空白与开头的点并转为小写
+     *
+     * @param extension 配置的扩展名，如 ".Java"
+     * @return 规范化后的扩展名，如 "java"
+     */
+    static String normalize(String extension) {
+        String ext = extension.trim().toLowerCase(Locale.ROOT);
+        return ext.startsWith(".") ? ext.substring(1) : ext;
+    }
+
+}
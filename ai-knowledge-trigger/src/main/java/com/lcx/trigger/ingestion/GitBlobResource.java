@@ -0,0 +1,69 @@
+package com.lcx.trigger.ingestion;
+
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.springframework.core.io.AbstractResource;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Git对象库中的文件资源
+ *
+ * <p>直接从JGit对象库读取blob内容，无需检出工作区。内容在解析线程调用
+ * {@link #getInputStream()} 时才按需打开，大对象以流的方式读取，不会整体载入内存。</p>
+ *
+ * <p>资源在所属 {@link Repository} 关闭前有效。</p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+public class GitBlobResource extends AbstractResource {
+
+    private final Repository repository;
+    private final ObjectId blobId;
+    private final String path;
+    private final long size;
+
+    /**
+     * @param repository 仓库
+     * @param blobId     blob对象ID
+     * @param path       仓库内相对路径
+     * @param size       blob大小（字节）
+     */
+    public GitBlobResource(Repository repository, ObjectId blobId, String path, long size) {
+        this.repository = repository;
+        this.blobId = blobId;
+        this.path = path;
+        this.size = size;
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return repository.open(blobId, Constants.OBJ_BLOB).openStream();
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return size;
+    }
+
+    @Override
+    public String getFilename() {
+        int index = path.lastIndexOf('/');
+        return index >= 0 ? path.substring(index + 1) : path;
+    }
+
+    @Override
+    public String getDescription() {
+        return "Git blob [" + path + "@" + blobId.abbreviate(8).name() + "]";
+    }
+
+}
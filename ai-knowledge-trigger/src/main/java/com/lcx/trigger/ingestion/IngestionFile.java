@@ -0,0 +1,30 @@
+package com.lcx.trigger.ingestion;
+
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+
+/**
+ * 待导入文件
+ *
+ * <p>导入流水线的输入单元，由遍历阶段产生，交给解析阶段读取。</p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Getter
+@RequiredArgsConstructor
+public class IngestionFile {
+
+    /**
+     * 文件路径（仓库内相对路径或上传文件名），用于日志与元数据
+     */
+    private final String path;
+
+    /**
+     * 文件内容资源
+     */
+    private final Resource resource;
+
+}
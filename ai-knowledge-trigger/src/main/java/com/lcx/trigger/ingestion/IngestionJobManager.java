@@ -0,0 +1,493 @@
+package com.lcx.trigger.ingestion;
+
+import com.lcx.api.dto.IngestionJobStatus;
+import com.lcx.api.exception.BusinessException;
+import com.lcx.api.exception.SystemException;
+import com.lcx.api.logging.context.LogContext;
+import com.lcx.api.response.ResponseCode;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RBatch;
+import org.redisson.api.RLock;
+import org.redisson.api.RMap;
+import org.redisson.api.RMapAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 知识库导入任务管理器
+ *
+ * <p>文件上传与Git仓库导入提交为后台任务后立即返回任务ID，HTTP请求线程不再等待导入完成：</p>
+ * <ul>
+ *   <li>执行：固定大小的工作线程池加有界等待队列，队列已满时拒绝新任务（4029）</li>
+ *   <li>互斥：同一知识库标签的任务通过Redisson锁 ai:rag:job:lock:{ragTag} 串行执行，多节点之间同样互斥。
+ *       工作线程只尝试加锁而不等待，标签被占用时任务让出线程，按 progress-interval 稍后重新排队，
+ *       同一标签的任务不会占住工作线程而阻塞其他标签；后提交的任务保持排队状态直到前一个结束；通过 {@link #submitOnce} 提交时，
+ *       同一标签已有尚未开始、且请求参数完全相同的同类任务则直接返回其任务ID，不重复排队</li>
+ *   <li>状态：任务状态与计数器（文件数、文本块数、失败数、耗时）保存在Redis哈希 ai:rag:job:{jobId} 中，
+ *       多节点均可查询，保留时长由 rag.ingestion.jobs.status-ttl 控制</li>
+ *   <li>进度：运行中任务按 progress-interval 定时刷新Redis状态，并推送给订阅该任务的SSE连接</li>
+ * </ul>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Slf4j
+@Component
+public class IngestionJobManager {
+
+    private static final String JOB_KEY_PREFIX = "ai:rag:job:";
+    private static final String TAG_LOCK_PREFIX = "ai:rag:job:lock:";
+
+    private final RedissonClient redissonClient;
+    private final IngestionProperties.JobProperties properties;
+    private final ThreadPoolExecutor executor;
+    private final ScheduledExecutorService reporter;
+    private final Map<String, Job> activeJobs = new ConcurrentHashMap<>();
+
+    /**
+     * 通过 {@link #submitOnce} 提交且尚未开始执行的任务，键为 类型:标签:请求标识
+     */
+    private final Map<String, Job> pendingJobs = new ConcurrentHashMap<>();
+    private final Map<String, Set<SseEmitter>> subscribers = new ConcurrentHashMap<>();
+
+    public IngestionJobManager(RedissonClient redissonClient, IngestionProperties ingestionProperties) {
+        this.redissonClient = redissonClient;
+        this.properties = ingestionProperties.getJobs();
+        int workers = Math.max(1, properties.getWorkers());
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())),
+                new IngestionThreadFactory("ingest-job-"));
+        this.reporter = Executors.newSingleThreadScheduledExecutor(new IngestionThreadFactory("ingest-job-progress-"));
+        long interval = Math.max(100, properties.getProgressInterval().toMillis());
+        reporter.scheduleWithFixedDelay(this::reportProgress, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 提交后台导入任务
+     *
+     * @param type   任务类型：upload 或 git
+     * @param ragTag 知识库标签
+     * @param task   任务逻辑，返回值作为任务完成后的结果描述
+     * @return 任务ID
+     * @throws BusinessException 等待队列已满时抛出（4029）
+     */
+    public String submit(String type, String ragTag, JobTask task) {
+        return enqueue(newJob(type, ragTag, null), task);
+    }
+
+    /**
+     * 提交后台导入任务，同一标签已有尚未开始、请求标识相同的同类任务时直接返回该任务的ID
+     *
+     * <p>适用于结果只取决于请求参数、而数据在任务开始时才读取的任务（如同步Git仓库）：
+     * 排队中的任务开始时才读取最新数据，完全相同的重复提交合并为一次。请求标识须包含影响任务结果的全部参数，
+     * 参数不同的请求各自排队，不会被合并而丢失参数；正在执行的任务不参与合并，新任务排在其后执行。</p>
+     *
+     * @param type      任务类型
+     * @param ragTag    知识库标签
+     * @param requestId 请求标识，如请求参数的摘要
+     * @param task      任务逻辑，返回值作为任务完成后的结果描述
+     * @return 新任务或已排队任务的ID
+     * @throws BusinessException 等待队列已满时抛出（4029）
+     */
+    public String submitOnce(String type, String ragTag, String requestId, JobTask task) {
+        String pendingKey = type + ":" + ragTag + ":" + requestId;
+        Job[] created = new Job[1];
+        Job job = pendingJobs.computeIfAbsent(pendingKey, key -> created[0] = newJob(type, ragTag, key));
+        if (created[0] == null) {
+            log.info("BIZ_INFO: op=ingestJob, action=reuse-pending, jobId={}, type={}, tag={}", job.id, type, ragTag);
+            return job.id;
+        }
+        try {
+            return enqueue(job, task);
+        } catch (RuntimeException e) {
+            pendingJobs.remove(pendingKey, job);
+            throw e;
+        }
+    }
+
+    private Job newJob(String type, String ragTag, String pendingKey) {
+        return new Job(UUID.randomUUID().toString().replace("-", ""), type, ragTag, pendingKey);
+    }
+
+    private String enqueue(Job job, JobTask task) {
+        String type = job.type;
+        String ragTag = job.ragTag;
+        // 保存当前MDC上下文（用于任务线程日志）
+        Map<String, String> mdcContext = LogContext.getContext();
+        activeJobs.put(job.id, job);
+        save(job.snapshot());
+        try {
+            executor.execute(() -> run(job, task, mdcContext));
+        } catch (RejectedExecutionException e) {
+            activeJobs.remove(job.id);
+            job.finish(IngestionJobStatus.State.FAILED, "导入任务排队已满");
+            save(job.snapshot());
+            log.warn("BIZ_WARN: op=ingestJob, reason=queue-full, jobId={}, type={}, tag={}, queued={}",
+                    job.id, type, ragTag, executor.getQueue().size());
+            throw new BusinessException(ResponseCode.TOO_MANY_REQUESTS.getCode(), "导入任务过多，请稍后重试", e);
+        }
+        log.info("BIZ_INFO: op=ingestJob, action=submit, jobId={}, type={}, tag={}, active={}, queued={}",
+                job.id, type, ragTag, executor.getActiveCount(), executor.getQueue().size());
+        return job.id;
+    }
+
+    /**
+     * 查询任务状态
+     *
+     * @param jobId 任务ID
+     * @return 任务状态
+     * @throws BusinessException 任务不存在或已过期时抛出（4004）
+     */
+    public IngestionJobStatus getStatus(String jobId) {
+        IngestionJobStatus status = findStatus(jobId);
+        if (status == null) {
+            throw new BusinessException(ResponseCode.NOT_FOUND.getCode(), "导入任务不存在或已过期");
+        }
+        return status;
+    }
+
+    /**
+     * 订阅任务进度
+     *
+     * <p>立即推送一次当前状态，之后每个上报周期推送一次 progress 事件，任务结束后推送最终状态并关闭连接。</p>
+     *
+     * @param jobId 任务ID
+     * @return SSE连接
+     * @throws BusinessException 任务不存在或已过期时抛出（4004）
+     */
+    public SseEmitter subscribe(String jobId) {
+        IngestionJobStatus status = getStatus(jobId);
+        SseEmitter emitter = new SseEmitter(properties.getSseTimeout().toMillis());
+        if (!send(emitter, status)) {
+            return emitter;
+        }
+        if (status.isFinished()) {
+            emitter.complete();
+            return emitter;
+        }
+
+        subscribers.computeIfAbsent(jobId, id -> new CopyOnWriteArraySet<>()).add(emitter);
+        Runnable unsubscribe = () -> unsubscribe(jobId, emitter);
+        emitter.onCompletion(unsubscribe);
+        emitter.onTimeout(unsubscribe);
+        emitter.onError(e -> unsubscribe.run());
+        log.debug("BIZ_DEBUG: op=ingestJob, action=subscribe, jobId={}", jobId);
+        return emitter;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reporter.shutdownNow();
+        executor.shutdownNow();
+        subscribers.values().forEach(emitters -> emitters.forEach(SseEmitter::complete));
+        subscribers.clear();
+    }
+
+    private void run(Job job, JobTask task, Map<String, String> mdcContext) {
+        LogContext.setContext(mdcContext);
+        RLock tagLock = null;
+        boolean deferred = false;
+        try {
+            tagLock = redissonClient.getLock(TAG_LOCK_PREFIX + job.ragTag);
+            if (!tagLock.tryLock()) {
+                // 不在工作线程上等待锁：让出线程给其他标签的任务，稍后重新排队
+                defer(job, task, mdcContext);
+                deferred = true;
+                return;
+            }
+            // 取得锁之后才开始读取数据，此后提交的同类任务不能再合并到本任务
+            removePending(job);
+            job.describe(null);
+            job.start();
+            save(job.snapshot());
+            log.info("BIZ_BEGIN: op=ingestJob, jobId={}, type={}, tag={}", job.id, job.type, job.ragTag);
+            String message = task.run(job);
+            job.finish(IngestionJobStatus.State.SUCCEEDED, message);
+            log.info("BIZ_END: op=ingestJob, jobId={}, type={}, tag={}, costMs={}",
+                    job.id, job.type, job.ragTag, job.snapshot().getElapsedMs());
+        } catch (Exception e) {
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            job.finish(IngestionJobStatus.State.FAILED,
+                    e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName());
+            log.error("BIZ_ERROR: op=ingestJob, jobId={}, type={}, tag={}", job.id, job.type, job.ragTag, e);
+        } finally {
+            if (!deferred) {
+                removePending(job);
+                unlock(tagLock, job);
+                IngestionJobStatus status = job.snapshot();
+                save(status);
+                activeJobs.remove(job.id);
+                publish(job.id, status);
+            }
+            LogContext.clear();
+        }
+    }
+
+    /**
+     * 标签被其他任务占用，经过一个 progress-interval 后重新放入等待队列
+     */
+    private void defer(Job job, JobTask task, Map<String, String> mdcContext) {
+        if (job.message == null) {
+            job.describe("等待同一知识库的其他导入任务完成");
+            save(job.snapshot());
+            log.info("BIZ_INFO: op=ingestJob, action=wait-tag-lock, jobId={}, tag={}", job.id, job.ragTag);
+        }
+        reporter.schedule(() -> requeue(job, task, mdcContext),
+                Math.max(100, properties.getProgressInterval().toMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    private void requeue(Job job, JobTask task, Map<String, String> mdcContext) {
+        if (executor.isShutdown()) {
+            return;
+        }
+        try {
+            executor.execute(() -> run(job, task, mdcContext));
+        } catch (RejectedExecutionException e) {
+            // 任务已被接受，等待队列已满时不拒绝，继续等待
+            defer(job, task, mdcContext);
+        }
+    }
+
+    private void unlock(RLock tagLock, Job job) {
+        try {
+            if (tagLock != null && tagLock.isHeldByCurrentThread()) {
+                tagLock.unlock();
+            }
+        } catch (Exception e) {
+            // 锁由看门狗续期，本节点释放失败时最迟在续期停止后自动过期
+            log.warn("BIZ_WARN: op=ingestJob, action=unlock-error, jobId={}, tag={}", job.id, job.ragTag, e);
+        }
+    }
+
+    private void removePending(Job job) {
+        if (job.pendingKey != null) {
+            pendingJobs.remove(job.pendingKey, job);
+        }
+    }
+
+    private void reportProgress() {
+        try {
+            for (Job job : activeJobs.values()) {
+                if (job.state == IngestionJobStatus.State.RUNNING) {
+                    save(job.snapshot());
+                }
+            }
+            // 其他节点执行的任务从Redis读取状态
+            for (String jobId : subscribers.keySet()) {
+                IngestionJobStatus status = findStatus(jobId);
+                if (status != null) {
+                    publish(jobId, status);
+                } else {
+                    Set<SseEmitter> expired = subscribers.remove(jobId);
+                    if (expired != null) {
+                        expired.forEach(SseEmitter::complete);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.warn("BIZ_WARN: op=ingestJob, action=report-progress-error, active={}, subscribed={}",
+                    activeJobs.size(), subscribers.size(), e);
+        }
+    }
+
+    private void publish(String jobId, IngestionJobStatus status) {
+        Set<SseEmitter> emitters = status.isFinished() ? subscribers.remove(jobId) : subscribers.get(jobId);
+        if (emitters == null) {
+            return;
+        }
+        for (SseEmitter emitter : emitters) {
+            if (send(emitter, status) && status.isFinished()) {
+                emitter.complete();
+            }
+        }
+    }
+
+    private boolean send(SseEmitter emitter, IngestionJobStatus status) {
+        try {
+            emitter.send(SseEmitter.event().name("progress").data(status));
+            return true;
+        } catch (Exception e) {
+            log.debug("BIZ_DEBUG: op=ingestJob, action=send-error, jobId={}", status.getJobId(), e);
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private void unsubscribe(String jobId, SseEmitter emitter) {
+        subscribers.computeIfPresent(jobId, (id, emitters) -> {
+            emitters.remove(emitter);
+            return emitters.isEmpty() ? null : emitters;
+        });
+    }
+
+    private IngestionJobStatus findStatus(String jobId) {
+        Job job = activeJobs.get(jobId);
+        return job != null ? job.snapshot() : load(jobId);
+    }
+
+    private void save(IngestionJobStatus status) {
+        String key = JOB_KEY_PREFIX + status.getJobId();
+        Map<String, String> fields = new HashMap<>();
+        fields.put("type", status.getType());
+        fields.put("ragTag", status.getRagTag());
+        fields.put("state", status.getState().name());
+        fields.put("files", String.valueOf(status.getFiles()));
+        fields.put("chunks", String.valueOf(status.getChunks()));
+        fields.put("errors", String.valueOf(status.getErrors()));
+        fields.put("elapsedMs", String.valueOf(status.getElapsedMs()));
+        fields.put("createdAt", String.valueOf(status.getCreatedAt()));
+        fields.put("updatedAt", String.valueOf(status.getUpdatedAt()));
+        if (status.getMessage() != null) {
+            fields.put("message", status.getMessage());
+        }
+        try {
+            RBatch batch = redissonClient.createBatch();
+            RMapAsync<String, String> map = batch.getMap(key, StringCodec.INSTANCE);
+            map.putAllAsync(fields);
+            map.expireAsync(properties.getStatusTtl());
+            batch.execute();
+        } catch (Exception e) {
+            // 状态持久化失败不影响任务执行，运行中的任务仍可从本节点查询
+            log.warn("BIZ_WARN: op=ingestJob, action=save-status-error, jobId={}, key={}",
+                    status.getJobId(), key, e);
+        }
+    }
+
+    private IngestionJobStatus load(String jobId) {
+        String key = JOB_KEY_PREFIX + jobId;
+        Map<String, String> fields;
+        try {
+            RMap<String, String> map = redissonClient.getMap(key, StringCodec.INSTANCE);
+            fields = map.readAllMap();
+        } catch (Exception e) {
+            log.error("BIZ_ERROR: op=ingestJob, action=load-status, jobId={}, key={}", jobId, key, e);
+            throw SystemException.redisError("查询导入任务状态", key, e);
+        }
+        if (fields.isEmpty()) {
+            return null;
+        }
+        IngestionJobStatus status = new IngestionJobStatus();
+        status.setJobId(jobId);
+        status.setType(fields.get("type"));
+        status.setRagTag(fields.get("ragTag"));
+        status.setState(IngestionJobStatus.State.valueOf(fields.get("state")));
+        status.setFiles(Integer.parseInt(fields.getOrDefault("files", "0")));
+        status.setChunks(Integer.parseInt(fields.getOrDefault("chunks", "0")));
+        status.setErrors(Integer.parseInt(fields.getOrDefault("errors", "0")));
+        status.setElapsedMs(Long.parseLong(fields.getOrDefault("elapsedMs", "0")));
+        status.setCreatedAt(Long.parseLong(fields.getOrDefault("createdAt", "0")));
+        status.setUpdatedAt(Long.parseLong(fields.getOrDefault("updatedAt", "0")));
+        status.setMessage(fields.get("message"));
+        return status;
+    }
+
+    /**
+     * 后台导入任务逻辑
+     */
+    @FunctionalInterface
+    public interface JobTask {
+
+        /**
+         * @param job 当前任务，用于关联流水线统计与更新阶段描述
+         * @return 任务完成后的结果描述
+         */
+        String run(Job job) throws Exception;
+    }
+
+    /**
+     * 运行中的导入任务
+     *
+     * <p>计数器直接读取所关联流水线会话的 {@link IngestionStats}，无需任务逻辑主动上报。</p>
+     */
+    public static final class Job {
+
+        private final String id;
+        private final String type;
+        private final String ragTag;
+        private final String pendingKey;
+        private final long createdAt = System.currentTimeMillis();
+        private volatile IngestionJobStatus.State state = IngestionJobStatus.State.QUEUED;
+        private volatile long startedAt;
+        private volatile long finishedAt;
+        private volatile String message;
+        private volatile IngestionStats stats;
+
+        private Job(String id, String type, String ragTag, String pendingKey) {
+            this.id = id;
+            this.type = type;
+            this.ragTag = ragTag;
+            this.pendingKey = pendingKey;
+        }
+
+        /**
+         * 关联流水线会话的统计，进度上报时读取其计数器
+         *
+         * @param stats 导入统计
+         */
+        public void track(IngestionStats stats) {
+            this.stats = stats;
+        }
+
+        /**
+         * 更新当前阶段描述，如"正在克隆仓库"
+         *
+         * @param message 阶段描述
+         */
+        public void describe(String message) {
+            this.message = message;
+        }
+
+        private void start() {
+            startedAt = System.currentTimeMillis();
+            state = IngestionJobStatus.State.RUNNING;
+        }
+
+        private void finish(IngestionJobStatus.State finalState, String finalMessage) {
+            finishedAt = System.currentTimeMillis();
+            message = finalMessage;
+            state = finalState;
+        }
+
+        private IngestionJobStatus snapshot() {
+            long now = System.currentTimeMillis();
+            IngestionJobStatus status = new IngestionJobStatus();
+            status.setJobId(id);
+            status.setType(type);
+            status.setRagTag(ragTag);
+            status.setState(state);
+            status.setMessage(message);
+            status.setCreatedAt(createdAt);
+            status.setUpdatedAt(now);
+            if (startedAt > 0) {
+                status.setElapsedMs((finishedAt > 0 ? finishedAt : now) - startedAt);
+            }
+            IngestionStats current = stats;
+            if (current != null) {
+                status.setFiles(current.getFiles());
+                status.setChunks(current.getChunks());
+                status.setErrors(current.getErrors());
+            }
+            return status;
+        }
+    }
+
+}
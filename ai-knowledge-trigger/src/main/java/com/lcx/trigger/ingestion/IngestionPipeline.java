@@ -0,0 +1,523 @@
+package com.lcx.trigger.ingestion;
+
+import com.lcx.api.logging.context.LogContext;
+import com.lcx.trigger.metrics.RagMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 知识库导入流水线
+ *
+ * <p>将导入过程拆分为多个阶段，每个阶段由独立的工作线程组并发处理：</p>
+ * <ol>
+ *   <li>遍历：由调用方线程通过 {@link Session#submit(IngestionFile)} 提交文件</li>
+ *   <li>解析：按扩展名选择读取器，文本与源代码直接解码，二进制文档使用Tika流式解析，
+ *       正文按片段逐段交给下游，大文件不会整篇载入内存</li>
+ *   <li>分割：按文件类型选择分割器，源代码按类、方法等语法边界切分，其余使用TokenTextSplitter，
+ *       并添加知识库标签（knowledge）与文件路径（path）元数据</li>
+ *   <li>存储：跨文件累积文本块，达到token或条数预算、或等待超时后批量生成向量并写入PostgreSQL向量数据库</li>
+ * </ol>
+ *
+ * <p>阶段之间通过有界阻塞队列连接，下游处理不过来时上游阻塞等待，
+ * 从而保证内存占用受控，整体吞吐取决于最慢的阶段（通常是嵌入服务）。
+ * 一个文件的全部片段都写入成功后才计入文件数，任一片段失败则该文件计为失败。</p>
+ *
+ * <p>所有会话共用一个线程池，容量为 rag.ingestion.jobs.workers 个会话的工作线程之和，另留一个会话的余量，
+ * 空闲线程超时后回收。会话结束或中止时等待本会话的工作线程全部退出后才返回，导入任务的名额释放时线程也已归还；
+ * 中止时卡在不可中断调用（JDBC、嵌入服务HTTP请求）中的线程最多等待 {@link #ABORT_WAIT_MS}，之后由余量吸收。
+ * 线程仍然不足时开启会话失败，不会让部分阶段无线程处理而永久阻塞。</p>
+ *
+ * <p>使用示例：</p>
+ * <pre>{@code
+ * try (IngestionPipeline.Session session = ingestionPipeline.open("my-tag")) {
+ *     session.submit(new IngestionFile("README.md", resource));
+ *     IngestionStats stats = session.complete();
+ * }
+ * }</pre>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Slf4j
+@Component
+public class IngestionPipeline {
+
+    /**
+     * 中止会话时等待工作线程退出的最长时间
+     */
+    private static final long ABORT_WAIT_MS = 30_000L;
+
+    private final PgVectorStore pgVectorStore;
+    private final TextSplitterRegistry textSplitterRegistry;
+    private final IngestionProperties properties;
+    private final DocumentReaderRegistry documentReaderRegistry;
+    private final RagMetrics ragMetrics;
+    private final ThreadPoolExecutor executor;
+
+    public IngestionPipeline(PgVectorStore pgVectorStore, TextSplitterRegistry textSplitterRegistry,
+                             IngestionProperties properties, DocumentReaderRegistry documentReaderRegistry,
+                             RagMetrics ragMetrics) {
+        this.pgVectorStore = pgVectorStore;
+        this.textSplitterRegistry = textSplitterRegistry;
+        this.properties = properties;
+        this.documentReaderRegistry = documentReaderRegistry;
+        this.ragMetrics = ragMetrics;
+        int threads = (Math.max(1, properties.getJobs().getWorkers()) + 1) * workersPerSession();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new IngestionThreadFactory("ingest-worker-"));
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 开启一次导入会话
+     *
+     * @param knowledgeTag 知识库标签，写入每个文本块的 knowledge 元数据
+     * @return 导入会话，使用完毕后必须关闭
+     */
+    public Session open(String knowledgeTag) {
+        return open(knowledgeTag, Map.of());
+    }
+
+    /**
+     * 开启一次导入会话，并为本次写入的每个文本块附加相同的元数据
+     *
+     * @param knowledgeTag 知识库标签，写入每个文本块的 knowledge 元数据
+     * @param metadata     附加元数据，如来源（origin）与版本（revision），用于之后按来源清理旧文本块
+     * @return 导入会话，使用完毕后必须关闭
+     */
+    public Session open(String knowledgeTag, Map<String, Object> metadata) {
+        return new Session(knowledgeTag, metadata);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private int workersPerSession() {
+        return Math.max(1, properties.getParseWorkers()) + Math.max(1, properties.getSplitWorkers())
+                + Math.max(1, properties.getStoreWorkers());
+    }
+
+    /**
+     * 一次导入会话
+     *
+     * <p>会话在共享线程池中占用本次导入的全部工作线程，{@link #complete()} 等待所有阶段处理完毕，
+     * {@link #close()} 用于异常情况下中止尚未完成的处理；二者都在本会话的工作线程退出后才返回。</p>
+     */
+    public class Session implements AutoCloseable {
+
+        private final String knowledgeTag;
+        private final Map<String, Object> metadata;
+        private final IngestionStats stats = new IngestionStats();
+        private final CountDownLatch finished = new CountDownLatch(1);
+        private final List<Worker> workers = new ArrayList<>();
+        private final CountDownLatch exited;
+        private volatile boolean completed;
+        private final Stage<IngestionFile> parseStage;
+        private final Stage<FileDocuments> splitStage;
+        private final Stage<FileDocuments> storeStage;
+
+        private Session(String knowledgeTag, Map<String, Object> metadata) {
+            this.knowledgeTag = knowledgeTag;
+            this.metadata = Map.copyOf(metadata);
+            int parseWorkers = Math.max(1, properties.getParseWorkers());
+            int splitWorkers = Math.max(1, properties.getSplitWorkers());
+            int storeWorkers = Math.max(1, properties.getStoreWorkers());
+            this.exited = new CountDownLatch(parseWorkers + splitWorkers + storeWorkers);
+
+            this.storeStage = new Stage<FileDocuments>("store", storeWorkers, StoreBatch::new,
+                    properties.getBatch().getMaxWait().toMillis(), finished::countDown);
+            this.splitStage = new Stage<FileDocuments>("split", splitWorkers, () -> this::split,
+                    0, storeStage::end);
+            this.parseStage = new Stage<IngestionFile>("parse", parseWorkers, () -> this::parse,
+                    0, splitStage::end);
+
+            // 保存当前MDC上下文（用于工作线程日志）
+            Map<String, String> mdcContext = LogContext.getContext();
+            try {
+                storeStage.start(mdcContext);
+                splitStage.start(mdcContext);
+                parseStage.start(mdcContext);
+            } catch (RejectedExecutionException e) {
+                abort();
+                log.warn("BIZ_WARN: op=ingest, reason=no-worker-threads, tag={}, active={}, max={}",
+                        knowledgeTag, executor.getActiveCount(), executor.getMaximumPoolSize());
+                throw e;
+            }
+            log.info("BIZ_INFO: op=ingest, action=open, tag={}, workers={}/{}/{}, queue={}",
+                    knowledgeTag, parseWorkers, splitWorkers, storeWorkers, properties.getQueueCapacity());
+        }
+
+        /**
+         * 提交一个待导入文件
+         *
+         * <p>解析队列已满时阻塞，直到下游腾出空间。</p>
+         *
+         * @param file 待导入文件
+         * @throws InterruptedException 等待期间线程被中断
+         */
+        public void submit(IngestionFile file) throws InterruptedException {
+            parseStage.put(file);
+        }
+
+        /**
+         * 标记文件提交结束并等待所有阶段处理完毕
+         *
+         * @return 导入统计
+         * @throws InterruptedException 等待期间线程被中断
+         */
+        public IngestionStats complete() throws InterruptedException {
+            parseStage.end();
+            finished.await();
+            // 最后一个存储线程在计数归零后才退出，等待全部线程归还线程池
+            exited.await();
+            completed = true;
+            log.info("BIZ_INFO: op=ingest, action=complete, tag={}, files={}, chunks={}, errors={}, costMs={}",
+                    knowledgeTag, stats.getFiles(), stats.getChunks(), stats.getErrors(), stats.getElapsedMs());
+            return stats;
+        }
+
+        /**
+         * 获取实时导入统计
+         *
+         * @return 导入统计
+         */
+        public IngestionStats getStats() {
+            return stats;
+        }
+
+        /**
+         * 关闭会话，中止尚未完成的处理
+         */
+        @Override
+        public void close() {
+            if (completed) {
+                return;
+            }
+            log.warn("BIZ_WARN: op=ingest, action=abort, tag={}, files={}", knowledgeTag, stats.getFiles());
+            abort();
+            try {
+                if (!exited.await(ABORT_WAIT_MS, TimeUnit.MILLISECONDS)) {
+                    log.warn("BIZ_WARN: op=ingest, reason=abort-timeout, tag={}, running={}, waitMs={}",
+                            knowledgeTag, exited.getCount(), ABORT_WAIT_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * 中止全部工作线程：尚未开始的由本线程计为已退出，运行中的通过中断结束
+         */
+        private void abort() {
+            for (Worker worker : workers) {
+                if (worker.claimed.compareAndSet(false, true)) {
+                    exited.countDown();
+                }
+                if (worker.future != null) {
+                    worker.future.cancel(true);
+                }
+            }
+        }
+
+        /**
+         * 提交到线程池的一个工作线程，开始执行或被中止时认领，保证退出计数只减一次
+         */
+        private final class Worker {
+
+            private final AtomicBoolean claimed = new AtomicBoolean();
+            private Future<?> future;
+        }
+
+        private void parse(IngestionFile file) throws Exception {
+            FileProgress progress = new FileProgress(file);
+            boolean parsed = false;
+            try {
+                documentReaderRegistry.readerFor(file.getPath()).read(file, segment -> {
+                    progress.retain();
+                    splitStage.put(new FileDocuments(progress, List.of(segment)));
+                });
+                parsed = true;
+            } finally {
+                // 释放解析阶段持有的引用，其余片段全部处理完后计入统计
+                if (parsed) {
+                    progress.release(0);
+                } else {
+                    progress.fail();
+                }
+            }
+            if (progress.segments == 0) {
+                log.warn("BIZ_WARN: op=ingest, reason=empty-docs, file={}", file.getPath());
+            }
+        }
+
+        private void split(FileDocuments parsed) throws Exception {
+            List<Document> chunks = textSplitterRegistry.splitterFor(parsed.progress.file.getPath())
+                    .apply(parsed.documents);
+            if (chunks.isEmpty()) {
+                parsed.progress.release(0);
+                return;
+            }
+            chunks.forEach(doc -> {
+                doc.getMetadata().putAll(metadata);
+                doc.getMetadata().put("knowledge", knowledgeTag);
+                doc.getMetadata().put("path", parsed.progress.file.getPath());
+            });
+            storeStage.put(new FileDocuments(parsed.progress, chunks));
+        }
+
+        /**
+         * 单个文件的处理进度
+         *
+         * <p>文件被切分为多个片段并发流经下游阶段，引用计数归零时才计入统计：
+         * 解析阶段持有一个引用，每个片段持有一个引用，片段写入成功或失败时释放。</p>
+         */
+        private final class FileProgress {
+
+            private final IngestionFile file;
+            private final AtomicInteger pending = new AtomicInteger(1);
+            private final AtomicInteger chunks = new AtomicInteger();
+            private volatile boolean failed;
+            private int segments;
+
+            private FileProgress(IngestionFile file) {
+                this.file = file;
+            }
+
+            void retain() {
+                segments++;
+                pending.incrementAndGet();
+            }
+
+            void release(int storedChunks) {
+                chunks.addAndGet(storedChunks);
+                if (pending.decrementAndGet() == 0) {
+                    if (failed) {
+                        stats.error();
+                        ragMetrics.recordIngestedFile(knowledgeTag, false, 0);
+                    } else if (chunks.get() > 0) {
+                        stats.fileProcessed(chunks.get());
+                        ragMetrics.recordIngestedFile(knowledgeTag, true, chunks.get());
+                    }
+                }
+            }
+
+            void fail() {
+                failed = true;
+                release(0);
+            }
+        }
+
+        /**
+         * 存储阶段工作线程持有的批次缓冲
+         *
+         * <p>多个小文件的文本块合并为一次向量库写入，嵌入请求与JDBC批量插入都因此变大、变少。
+         * 批次写入成功后才计入文件数，失败时批次内的所有文件计为失败。</p>
+         */
+        private final class StoreBatch implements StageWorker<FileDocuments> {
+
+            private final List<Document> chunks = new ArrayList<>();
+            private final List<FileDocuments> files = new ArrayList<>();
+            private int tokens;
+            private long firstAddedAt;
+
+            @Override
+            public void handle(FileDocuments split) {
+                if (chunks.isEmpty()) {
+                    firstAddedAt = System.currentTimeMillis();
+                }
+                files.add(split);
+                chunks.addAll(split.documents);
+                for (Document chunk : split.documents) {
+                    tokens += TokenEncoding.countTokens(chunk.getText());
+                }
+
+                IngestionProperties.BatchProperties batch = properties.getBatch();
+                if (tokens >= batch.getMaxTokens() || chunks.size() >= batch.getMaxChunks()
+                        || System.currentTimeMillis() - firstAddedAt >= batch.getMaxWait().toMillis()) {
+                    flush();
+                }
+            }
+
+            @Override
+            public void flush() {
+                if (chunks.isEmpty()) {
+                    return;
+                }
+                long begin = System.currentTimeMillis();
+                long startNanos = System.nanoTime();
+                ragMetrics.takeEmbedNanos();
+                try {
+                    pgVectorStore.accept(chunks);
+                    // 向量库在当前线程上先批量嵌入再插入，嵌入耗时由嵌入模型记录，其余为插入耗时
+                    ragMetrics.recordStoreBatch(knowledgeTag, chunks.size(), System.nanoTime() - startNanos,
+                            ragMetrics.takeEmbedNanos());
+                    files.forEach(file -> file.progress.release(file.documents.size()));
+                    log.debug("BIZ_DEBUG: op=ingest, action=flush, segments={}, chunks={}, tokens={}, costMs={}",
+                            files.size(), chunks.size(), tokens, System.currentTimeMillis() - begin);
+                } catch (Exception e) {
+                    files.forEach(file -> file.progress.fail());
+                    log.warn("BIZ_WARN: op=ingest, reason=store-error, tag={}, segments={}, first={}",
+                            knowledgeTag, files.size(), files.get(0).progress.file.getPath(), e);
+                } finally {
+                    chunks.clear();
+                    files.clear();
+                    tokens = 0;
+                }
+            }
+        }
+
+        /**
+         * 流水线阶段：一个有界队列加一组消费该队列的工作线程
+         */
+        private final class Stage<T> {
+
+            private final Object endOfStream = new Object();
+            private final String name;
+            private final int workers;
+            private final Supplier<StageWorker<T>> workerFactory;
+            private final long pollTimeoutMs;
+            private final Runnable onDrained;
+            private final BlockingQueue<Object> queue;
+            private final AtomicInteger running;
+
+            /**
+             * @param pollTimeoutMs 大于0时，队列空闲超过该时长即调用工作线程的 {@link StageWorker#flush()}
+             */
+            private Stage(String name, int workers, Supplier<StageWorker<T>> workerFactory, long pollTimeoutMs,
+                          Runnable onDrained) {
+                this.name = name;
+                this.workers = workers;
+                this.workerFactory = workerFactory;
+                this.pollTimeoutMs = pollTimeoutMs;
+                this.onDrained = onDrained;
+                this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+                this.running = new AtomicInteger(workers);
+            }
+
+            void start(Map<String, String> mdcContext) {
+                for (int i = 0; i < workers; i++) {
+                    Worker worker = new Worker();
+                    Session.this.workers.add(worker);
+                    worker.future = executor.submit(() -> {
+                        if (!worker.claimed.compareAndSet(false, true)) {
+                            return;
+                        }
+                        LogContext.setContext(mdcContext);
+                        try {
+                            loop();
+                        } finally {
+                            LogContext.clear();
+                            exited.countDown();
+                        }
+                    });
+                }
+            }
+
+            void put(T item) throws InterruptedException {
+                queue.put(item);
+            }
+
+            void end() {
+                try {
+                    queue.put(endOfStream);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @SuppressWarnings("unchecked")
+            private void loop() {
+                StageWorker<T> worker = workerFactory.get();
+                try {
+                    while (true) {
+                        Object item = pollTimeoutMs > 0
+                                ? queue.poll(pollTimeoutMs, TimeUnit.MILLISECONDS)
+                                : queue.take();
+                        if (item == null) {
+                            worker.flush();
+                            continue;
+                        }
+                        if (item == endOfStream) {
+                            // 放回结束标记，让同阶段的其他工作线程也能退出
+                            queue.put(endOfStream);
+                            worker.flush();
+                            return;
+                        }
+                        try {
+                            worker.handle((T) item);
+                        } catch (InterruptedException e) {
+                            throw e;
+                        } catch (Exception e) {
+                            // 解析阶段的失败已在 parse 中计入文件进度
+                            if (item instanceof FileDocuments documents) {
+                                documents.progress.fail();
+                            }
+                            log.warn("BIZ_WARN: op=ingest, reason={}-error, tag={}, file={}",
+                                    name, knowledgeTag, pathOf(item), e);
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    if (running.decrementAndGet() == 0) {
+                        onDrained.run();
+                    }
+                }
+            }
+
+            private String pathOf(Object item) {
+                if (item instanceof IngestionFile file) {
+                    return file.getPath();
+                }
+                return item instanceof FileDocuments documents ? documents.progress.file.getPath() : "N/A";
+            }
+        }
+    }
+
+    /**
+     * 阶段工作线程的处理逻辑，每个工作线程持有一个实例
+     */
+    @FunctionalInterface
+    private interface StageWorker<T> {
+
+        void handle(T item) throws Exception;
+
+        /**
+         * 队列空闲超时或阶段结束时调用，用于提交缓冲中的数据
+         */
+        default void flush() {
+        }
+    }
+
+    /**
+     * 阶段间传递的数据：文件的一个片段在当前阶段产出的文档
+     */
+    @RequiredArgsConstructor
+    private static final class FileDocuments {
+        private final Session.FileProgress progress;
+        private final List<Document> documents;
+    }
+
+}
@@ -0,0 +1,236 @@
+package com.lcx.trigger.ingestion;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 知识库导入流水线配置属性类
+ *
+ * <p>配置前缀：rag.ingestion</p>
+ * <p>用于控制导入流水线各阶段的并发度以及阶段间队列的容量。</p>
+ *
+ * <p>使用示例（application.yml）：</p>
+ * <pre>
+ * rag:
+ *   ingestion:
+ *     parse-workers: 4
+ *     split-workers: 2
+ *     store-workers: 2
+ *     queue-capacity: 64
+ *     parse-segment-chars: 65536
+ *     text-extensions: [txt, md, java, py]
+ *     tika-extensions: [pdf, doc, docx, rtf]
+ *     chunking:
+ *       token-window: true
+ *       code-aware: true
+ *       code-chunk-tokens: 800
+ *     batch:
+ *       max-chunks: 512
+ *       max-tokens: 65536
+ *       max-wait: 2s
+ *       embed-request-max-tokens: 8191
+ *     git:
+ *       checkout-free: true
+ *     jobs:
+ *       workers: 2
+ *       queue-capacity: 16
+ * </pre>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Data
+@ConfigurationProperties(prefix = "rag.ingestion", ignoreInvalidFields = true)
+public class IngestionProperties {
+
+    /**
+     * 解析阶段工作线程数
+     * <p>负责读取文件并解析为文档，通常是CPU密集型，默认为4</p>
+     */
+    private int parseWorkers = 4;
+
+    /**
+     * 分割阶段工作线程数
+     * <p>负责将文档分割为文本块，默认为2</p>
+     */
+    private int splitWorkers = 2;
+
+    /**
+     * 存储阶段工作线程数
+     * <p>负责调用嵌入模型并写入向量数据库，受限于嵌入服务的并发能力，默认为2</p>
+     */
+    private int storeWorkers = 2;
+
+    /**
+     * 阶段间队列容量
+     * <p>队列写满时上游阶段阻塞等待，以此形成背压，默认为64</p>
+     */
+    private int queueCapacity = 64;
+
+    /**
+     * 解析阶段单个文本片段的最大字符数
+     * <p>文件正文按该大小逐段交给分割阶段，单个文件在内存中的文本量不超过
+     * 该值乘以队列容量，与文件本身大小无关，默认为65536</p>
+     */
+    private int parseSegmentChars = 65536;
+
+    /**
+     * 按UTF-8文本直接解码的文件扩展名
+     * <p>纯文本、配置与源代码文件，不经过Tika的类型探测与解析；
+     * html/xml 不在此列，仍由Tika提取正文，避免把原始标签写入向量库</p>
+     */
+    private List<String> textExtensions = new ArrayList<>(List.of(
+            "txt", "md", "java", "json", "yml", "yaml", "properties", "sql",
+            "js", "ts", "css", "py", "cpp", "c", "h", "go", "rs", "kt", "scala"));
+
+    /**
+     * 使用Tika解析的文档扩展名
+     * <p>二进制文档，以及需要去除标签后提取正文的 html/xml</p>
+     */
+    private List<String> tikaExtensions = new ArrayList<>(List.of("pdf", "doc", "docx", "rtf", "html", "xml"));
+
+    /**
+     * 分割阶段配置
+     */
+    private ChunkingProperties chunking = new ChunkingProperties();
+
+    /**
+     * 存储阶段批量写入配置
+     */
+    private BatchProperties batch = new BatchProperties();
+
+    /**
+     * Git仓库导入配置
+     */
+    private GitProperties git = new GitProperties();
+
+    /**
+     * 后台导入任务配置
+     */
+    private JobProperties jobs = new JobProperties();
+
+    /**
+     * 分割阶段配置属性
+     */
+    @Data
+    public static class ChunkingProperties {
+
+        /**
+         * 非源代码文件是否使用基于字符窗口的分割器，默认为true
+         * <p>切分规则与TokenTextSplitter相同但内存分配更少，关闭时回退到TokenTextSplitter</p>
+         */
+        private boolean tokenWindow = true;
+
+        /**
+         * 是否对源代码按语法结构切分，关闭时所有文件使用默认的TokenTextSplitter，默认为true
+         */
+        private boolean codeAware = true;
+
+        /**
+         * 源代码文本块的token预算，相邻的小方法、字段等合并到该大小，默认为800
+         */
+        private int codeChunkTokens = 800;
+
+        /**
+         * 以花括号界定代码块的源文件扩展名
+         */
+        private List<String> braceExtensions = new ArrayList<>(List.of(
+                "java", "js", "ts", "c", "cpp", "h", "go", "rs", "kt", "scala", "css"));
+
+        /**
+         * 以缩进界定代码块的源文件扩展名
+         */
+        private List<String> indentExtensions = new ArrayList<>(List.of("py"));
+
+    }
+
+    /**
+     * 存储阶段批量写入配置属性
+     */
+    @Data
+    public static class BatchProperties {
+
+        /**
+         * 单批次最大文本块数，同时决定一次JDBC批量插入的行数，默认为512
+         */
+        private int maxChunks = 512;
+
+        /**
+         * 单批次最大token数，默认为65536
+         */
+        private int maxTokens = 65536;
+
+        /**
+         * 批次最长等待时间
+         * <p>批次未满时，自第一个文本块加入起超过该时长或队列空闲超过该时长即写入，默认为2秒</p>
+         */
+        private Duration maxWait = Duration.ofSeconds(2);
+
+        /**
+         * 单次嵌入请求的最大输入token数
+         * <p>一个批次按该预算拆分为若干次嵌入请求，需不超过嵌入模型的上下文长度，默认为8191</p>
+         */
+        private int embedRequestMaxTokens = 8191;
+
+    }
+
+    /**
+     * Git仓库导入配置属性
+     */
+    @Data
+    public static class GitProperties {
+
+        /**
+         * 本地仓库副本的根目录，默认为 git-cloned-repo
+         */
+        private String cloneDirectory = "git-cloned-repo";
+
+        /**
+         * 是否启用免检出模式
+         * <p>启用时以裸仓库（bare）方式克隆，不生成工作区，直接从对象库流式读取文件内容，默认为true</p>
+         * <p>关闭时克隆完整工作区并从磁盘读取文件</p>
+         */
+        private boolean checkoutFree = true;
+
+    }
+
+    /**
+     * 后台导入任务配置属性
+     */
+    @Data
+    public static class JobProperties {
+
+        /**
+         * 同时执行的导入任务数，默认为2
+         * <p>每个任务内部还会按流水线配置启动各阶段工作线程</p>
+         */
+        private int workers = 2;
+
+        /**
+         * 等待执行的任务队列容量，队列已满时拒绝新任务，默认为16
+         */
+        private int queueCapacity = 16;
+
+        /**
+         * 任务状态在Redis中的保留时长，默认为24小时
+         */
+        private Duration statusTtl = Duration.ofHours(24);
+
+        /**
+         * 运行中任务的进度上报间隔，默认为1秒
+         */
+        private Duration progressInterval = Duration.ofSeconds(1);
+
+        /**
+         * SSE进度流的最长连接时间，默认为30分钟
+         */
+        private Duration sseTimeout = Duration.ofMinutes(30);
+
+    }
+
+}
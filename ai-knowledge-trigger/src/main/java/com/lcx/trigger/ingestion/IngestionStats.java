@@ -0,0 +1,58 @@
+package com.lcx.trigger.ingestion;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 导入统计
+ *
+ * <p>流水线各阶段并发更新的计数器，线程安全。</p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+public class IngestionStats {
+
+    private final long startTime = System.currentTimeMillis();
+    private final AtomicInteger files = new AtomicInteger();
+    private final AtomicInteger chunks = new AtomicInteger();
+    private final AtomicInteger errors = new AtomicInteger();
+
+    void fileProcessed(int chunkCount) {
+        files.incrementAndGet();
+        chunks.addAndGet(chunkCount);
+    }
+
+    void error() {
+        errors.incrementAndGet();
+    }
+
+    /**
+     * @return 已写入向量库的文件数
+     */
+    public int getFiles() {
+        return files.get();
+    }
+
+    /**
+     * @return 已写入向量库的文本块数
+     */
+    public int getChunks() {
+        return chunks.get();
+    }
+
+    /**
+     * @return 处理失败的文件数
+     */
+    public int getErrors() {
+        return errors.get();
+    }
+
+    /**
+     * @return 自开始导入以来的耗时（毫秒）
+     */
+    public long getElapsedMs() {
+        return System.currentTimeMillis() - startTime;
+    }
+
+}
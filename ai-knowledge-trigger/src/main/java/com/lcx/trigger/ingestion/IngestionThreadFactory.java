@@ -0,0 +1,27 @@
+package com.lcx.trigger.ingestion;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 导入相关线程池的线程工厂，线程名为前缀加序号，便于在线程转储与日志中区分
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+final class IngestionThreadFactory implements ThreadFactory {
+
+    private final String prefix;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    IngestionThreadFactory(String prefix) {
+        this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        return new Thread(runnable, prefix + counter.incrementAndGet());
+    }
+
+}
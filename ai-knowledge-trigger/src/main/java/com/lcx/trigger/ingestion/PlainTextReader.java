@@ -0,0 +1,131 @@
+package com.lcx.trigger.ingestion;
+
+import org.springframework.core.io.Resource;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 纯文本与源代码文件读取器
+ *
+ * <p>文本类文件（.md、.java、.json、.yml、.py 等）本身就是UTF-8文本，无需Tika的类型探测、
+ * 解析器查找与SAX事件处理，直接按UTF-8解码即可：</p>
+ * <ul>
+ *   <li>磁盘文件：内存映射（mmap）后直接解码，不经过额外的堆内字节拷贝</li>
+ *   <li>其他资源（如Git对象库中的blob）：通过NIO通道以固定大小的缓冲区流式解码</li>
+ *   <li>非法字节序列以替换字符代替，不会因个别乱码导致整个文件失败</li>
+ * </ul>
+ *
+ * <p>解码结果与 {@link StreamingTikaReader} 一样按片段输出，片段元数据格式相同。</p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+public class PlainTextReader implements DocumentSegmentReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 超过该大小的文件不做内存映射，改为流式读取
+     */
+    private static final long MAX_MAPPED_BYTES = 256L * 1024 * 1024;
+
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    private final int segmentChars;
+
+    /**
+     * @param segmentChars 单个片段的最大字符数
+     */
+    public PlainTextReader(int segmentChars) {
+        this.segmentChars = segmentChars;
+    }
+
+    @Override
+    public void read(IngestionFile file, SegmentConsumer consumer) throws Exception {
+        Resource resource = file.getResource();
+        String source = resource.getFilename() != null ? resource.getFilename() : file.getPath();
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        try (SegmentingWriter writer = new SegmentingWriter(source, segmentChars, consumer)) {
+            CharSink sink = new CharSink(writer);
+            if (resource.isFile() && resource.contentLength() <= MAX_MAPPED_BYTES) {
+                try (FileChannel channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ)) {
+                    ByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                    decode(decoder, bytes, true, sink);
+                }
+            } else {
+                try (ReadableByteChannel channel = Channels.newChannel(resource.getInputStream())) {
+                    ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+                    boolean endOfInput = false;
+                    while (!endOfInput) {
+                        endOfInput = channel.read(bytes) < 0;
+                        bytes.flip();
+                        decode(decoder, bytes, endOfInput, sink);
+                        bytes.compact();
+                    }
+                }
+            }
+            sink.finish(decoder);
+            writer.emitRemaining();
+        }
+    }
+
+    private static void decode(CharsetDecoder decoder, ByteBuffer bytes, boolean endOfInput, CharSink sink)
+            throws IOException {
+        CoderResult result;
+        do {
+            result = decoder.decode(bytes, sink.chars, endOfInput);
+            sink.drain();
+        } while (result.isOverflow());
+    }
+
+    /**
+     * 复用的字符缓冲区，解码后立即写出，并去掉文件开头的BOM
+     */
+    private static final class CharSink {
+
+        private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+        private final SegmentingWriter writer;
+        private boolean started;
+
+        private CharSink(SegmentingWriter writer) {
+            this.writer = writer;
+        }
+
+        void drain() throws IOException {
+            chars.flip();
+            if (!started && chars.hasRemaining()) {
+                started = true;
+                if (chars.get(chars.position()) == BYTE_ORDER_MARK) {
+                    chars.position(chars.position() + 1);
+                }
+            }
+            if (chars.hasRemaining()) {
+                writer.write(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+            }
+            chars.clear();
+        }
+
+        void finish(CharsetDecoder decoder) throws IOException {
+            CoderResult result;
+            do {
+                result = decoder.flush(chars);
+                drain();
+            } while (result.isOverflow());
+        }
+    }
+
+}
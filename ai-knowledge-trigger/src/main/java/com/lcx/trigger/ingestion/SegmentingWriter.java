@@ -0,0 +1,88 @@
+package com.lcx.trigger.ingestion;
+
+import org.springframework.ai.document.Document;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按片段输出正文的Writer
+ *
+ * <p>缓冲写入的字符，达到片段大小后切出一个片段交给回调。片段尽量在换行处切分，
+ * 避免把一句话截成两半；缓冲区只保留不足一个片段的尾部文本。</p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+class SegmentingWriter extends Writer {
+
+    private final String source;
+    private final int segmentChars;
+    private final DocumentSegmentReader.SegmentConsumer consumer;
+    private final StringBuilder buffer;
+
+    /**
+     * @param source       写入片段 source 元数据的文件名
+     * @param segmentChars 单个片段的最大字符数
+     * @param consumer     片段回调
+     */
+    SegmentingWriter(String source, int segmentChars, DocumentSegmentReader.SegmentConsumer consumer) {
+        this.source = source;
+        this.segmentChars = Math.max(1024, segmentChars);
+        this.consumer = consumer;
+        this.buffer = new StringBuilder(this.segmentChars + 1024);
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length) throws IOException {
+        buffer.append(chars, offset, length);
+        while (buffer.length() >= segmentChars) {
+            // 在片段后半部分找最后一个换行作为切分点，找不到时按长度硬切
+            int cut = buffer.lastIndexOf("\n", segmentChars);
+            if (cut < segmentChars / 2) {
+                cut = segmentChars;
+            } else {
+                cut++;
+            }
+            emit(buffer.substring(0, cut));
+            buffer.delete(0, cut);
+        }
+    }
+
+    /**
+     * 输出缓冲区中剩余的文本，读取结束时调用
+     */
+    void emitRemaining() throws IOException {
+        if (!buffer.isEmpty()) {
+            emit(buffer.toString());
+            buffer.setLength(0);
+        }
+    }
+
+    private void emit(String text) throws IOException {
+        if (text.isBlank()) {
+            return;
+        }
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("source", source);
+        try {
+            consumer.accept(new Document(text, metadata));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("文档读取被中断: " + source);
+        }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+
+}
@@ -0,0 +1,65 @@
+package com.lcx.trigger.ingestion;
+
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.metadata.TikaCoreProperties;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.parser.pdf.PDFParserConfig;
+import org.apache.tika.sax.BodyContentHandler;
+
+import java.io.InputStream;
+
+/**
+ * 流式Tika文档读取器
+ *
+ * <p>与 TikaDocumentReader 一次性返回整篇文本不同，本读取器在Tika以SAX事件输出正文的同时
+ * 按 {@code segmentChars} 将文本切成片段逐段交给调用方，整篇文档的文本不会同时驻留在堆内存中：</p>
+ * <ul>
+ *   <li>输入以流的方式读取，PDF等需要随机访问的格式由 {@link TikaInputStream} 落盘到临时文件</li>
+ *   <li>片段回调阻塞（下游队列已满）时解析随之暂停，内存占用与文件大小无关</li>
+ * </ul>
+ *
+ * <p>每个片段都是一个带 source 元数据的文档，与 TikaDocumentReader 的输出保持一致。</p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+public class StreamingTikaReader implements DocumentSegmentReader {
+
+    /**
+     * PDFBox解析时可使用的最大堆内存，超出部分使用临时文件
+     */
+    private static final long PDF_MAX_MAIN_MEMORY_BYTES = 64L * 1024 * 1024;
+
+    private final Parser parser = new AutoDetectParser();
+    private final int segmentChars;
+
+    /**
+     * @param segmentChars 单个片段的最大字符数
+     */
+    public StreamingTikaReader(int segmentChars) {
+        this.segmentChars = segmentChars;
+    }
+
+    @Override
+    public void read(IngestionFile file, SegmentConsumer consumer) throws Exception {
+        String source = file.getResource().getFilename() != null ? file.getResource().getFilename() : file.getPath();
+        Metadata metadata = new Metadata();
+        metadata.set(TikaCoreProperties.RESOURCE_NAME_KEY, source);
+
+        PDFParserConfig pdfConfig = new PDFParserConfig();
+        pdfConfig.setMaxMainMemoryBytes(PDF_MAX_MAIN_MEMORY_BYTES);
+        ParseContext context = new ParseContext();
+        context.set(PDFParserConfig.class, pdfConfig);
+
+        try (InputStream input = TikaInputStream.get(file.getResource().getInputStream());
+             SegmentingWriter writer = new SegmentingWriter(source, segmentChars, consumer)) {
+            parser.parse(input, new BodyContentHandler(writer), metadata, context);
+            writer.emitRemaining();
+        }
+    }
+
+}
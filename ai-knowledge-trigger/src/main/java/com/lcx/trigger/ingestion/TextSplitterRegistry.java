@@ -0,0 +1,59 @@
+package com.lcx.trigger.ingestion;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 文本分割策略注册表
+ *
+ * <p>按文件扩展名选择分割器：</p>
+ * <ul>
+ *   <li>花括号语言（rag.ingestion.chunking.brace-extensions）：{@link CodeTextSplitter} 按括号深度切分</li>
+ *   <li>缩进语言（rag.ingestion.chunking.indent-extensions）：{@link CodeTextSplitter} 按定义缩进切分</li>
+ *   <li>其他文件：{@link TokenWindowTextSplitter}，关闭 token-window 时使用Spring AI的 {@link TokenTextSplitter}</li>
+ * </ul>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Slf4j
+@Component
+public class TextSplitterRegistry {
+
+    private final Map<String, TextSplitter> splitters = new HashMap<>();
+    private final TextSplitter defaultSplitter;
+
+    public TextSplitterRegistry(IngestionProperties properties, TokenTextSplitter tokenTextSplitter,
+                                TokenWindowTextSplitter tokenWindowTextSplitter) {
+        IngestionProperties.ChunkingProperties chunking = properties.getChunking();
+        this.defaultSplitter = chunking.isTokenWindow() ? tokenWindowTextSplitter : tokenTextSplitter;
+        if (chunking.isCodeAware()) {
+            CodeTextSplitter braceSplitter = new CodeTextSplitter(CodeTextSplitter.Syntax.BRACE,
+                    chunking.getCodeChunkTokens());
+            CodeTextSplitter indentSplitter = new CodeTextSplitter(CodeTextSplitter.Syntax.INDENT,
+                    chunking.getCodeChunkTokens());
+            chunking.getBraceExtensions().forEach(ext -> splitters.put(FileExtensions.normalize(ext), braceSplitter));
+            chunking.getIndentExtensions().forEach(ext -> splitters.put(FileExtensions.normalize(ext), indentSplitter));
+        }
+        log.info("BIZ_INFO: op=splitterRegistry, tokenWindow={}, codeAware={}, codeExtensions={}, codeChunkTokens={}",
+                chunking.isTokenWindow(), chunking.isCodeAware(), splitters.size(), chunking.getCodeChunkTokens());
+    }
+
+    /**
+     * 获取文件对应的分割器
+     *
+     * @param fileName 文件名或路径
+     * @return 分割器，未注册的扩展名返回默认分割器
+     */
+    public TextSplitter splitterFor(String fileName) {
+        TextSplitter splitter = splitters.get(FileExtensions.of(fileName));
+        return splitter != null ? splitter : defaultSplitter;
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.lcx.trigger.ingestion;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import com.knuddels.jtokkit.api.EncodingRegistry;
+import com.knuddels.jtokkit.api.EncodingType;
+
+/**
+ * 共享的token编码器
+ *
+ * <p>JTokkit的 {@link Encoding} 实现是线程安全的，构建时需要加载词表，
+ * 因此整个进程复用同一个 cl100k_base 实例，而不是每个分割器、每个线程各建一份。</p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+public final class TokenEncoding {
+
+    private static final EncodingRegistry REGISTRY = Encodings.newLazyEncodingRegistry();
+
+    /**
+     * cl100k_base编码器，与嵌入请求分批策略使用的编码一致
+     */
+    public static final Encoding CL100K_BASE = REGISTRY.getEncoding(EncodingType.CL100K_BASE);
+
+    private TokenEncoding() {
+    }
+
+    /**
+     * 统计文本的token数，特殊token按普通文本处理
+     *
+     * @param text 文本
+     * @return token数
+     */
+    public static int countTokens(String text) {
+        return text == null || text.isEmpty() ? 0 : CL100K_BASE.countTokensOrdinary(text);
+    }
+
+    /**
+     * 获取模型对应的编码器
+     *
+     * <p>OpenAI模型使用其实际的编码；其他模型（如通过Ollama部署的开源模型）没有可用的词表，
+     * 使用 cl100k_base 估算，结果为近似值。模型名称来自请求，这里不按名称缓存：
+     * 名称到编码类型的映射只是查表，编码器本身由注册表按类型缓存，不会随请求中的模型名称增长。</p>
+     *
+     * @param model 模型名称
+     * @return 编码器
+     */
+    public static Encoding forModel(String model) {
+        if (model == null || model.isBlank()) {
+            return CL100K_BASE;
+        }
+        return REGISTRY.getEncodingForModel(model).orElse(CL100K_BASE);
+    }
+
+}
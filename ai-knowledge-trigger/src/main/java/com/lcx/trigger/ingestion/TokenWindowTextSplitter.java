@@ -0,0 +1,148 @@
+package com.lcx.trigger.ingestion;
+
+import com.knuddels.jtokkit.api.EncodingResult;
+import org.springframework.ai.transformer.splitter.TextSplitter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于字符窗口的token文本分割器
+ *
+ * <p>切分规则与Spring AI的 TokenTextSplitter 相同（按token数切块，在句末标点或换行处收尾，
+ * 过短的块丢弃），但实现上避免了其在导入热路径上的大量内存分配：</p>
+ * <ul>
+ *   <li>不对整篇文档编码成token列表，也不把token子列表解码回字符串再重新编码</li>
+ *   <li>每个块只对一个略大于块长度的字符窗口做限长编码，由编码结果直接得到块在原文中的结束位置</li>
+ *   <li>标点查找与首尾空白裁剪都在原文的下标上进行，不产生中间字符串</li>
+ *   <li>JTokkit只接受String，每次编码需要复制一次字符窗口（窗口内token不足时加倍窗口重新复制），
+ *       输出块时再复制一次；复制量与块长度成正比，与整篇文档长度无关</li>
+ *   <li>所有实例共享一个线程安全的编码器（{@link TokenEncoding}），可被多个分割线程并发使用</li>
+ * </ul>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+public class TokenWindowTextSplitter extends TextSplitter {
+
+    /**
+     * 首个窗口按每token 6个字符估算，之后按已切出的块实际比例调整
+     */
+    private static final double INITIAL_CHARS_PER_TOKEN = 6.0;
+
+    /**
+     * 窗口相对估算长度的余量
+     */
+    private static final double WINDOW_MARGIN = 1.25;
+
+    private final int chunkSize;
+    private final int minChunkSizeChars;
+    private final int minChunkLengthToEmbed;
+    private final int maxNumChunks;
+    private final boolean keepSeparator;
+
+    /**
+     * 使用与 TokenTextSplitter 相同的默认参数
+     */
+    public TokenWindowTextSplitter() {
+        this(800, 350, 5, 10000, true);
+    }
+
+    /**
+     * @param chunkSize             每个块的目标token数
+     * @param minChunkSizeChars     块在标点处收尾时的最小字符数
+     * @param minChunkLengthToEmbed 输出块的最小字符数，更短的块丢弃
+     * @param maxNumChunks          单个文档最多切出的块数，其余文本作为最后一块
+     * @param keepSeparator         是否保留块内换行
+     */
+    public TokenWindowTextSplitter(int chunkSize, int minChunkSizeChars, int minChunkLengthToEmbed,
+                                   int maxNumChunks, boolean keepSeparator) {
+        this.chunkSize = chunkSize;
+        this.minChunkSizeChars = minChunkSizeChars;
+        this.minChunkLengthToEmbed = minChunkLengthToEmbed;
+        this.maxNumChunks = maxNumChunks;
+        this.keepSeparator = keepSeparator;
+    }
+
+    @Override
+    protected List<String> splitText(String text) {
+        List<String> chunks = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return chunks;
+        }
+
+        int length = text.length();
+        int start = 0;
+        int count = 0;
+        double charsPerToken = INITIAL_CHARS_PER_TOKEN;
+        while (start < length && count < maxNumChunks) {
+            int end = windowEnd(text, start, charsPerToken);
+            if (end < length) {
+                charsPerToken = Math.max(1.0, (double) (end - start) / chunkSize);
+            }
+
+            int cut = end;
+            int punctuation = lastPunctuation(text, start, end);
+            if (punctuation >= 0 && punctuation - start > minChunkSizeChars) {
+                cut = punctuation + 1;
+            }
+            addChunk(chunks, text, start, cut);
+            start = cut;
+            count++;
+        }
+        if (start < length) {
+            addChunk(chunks, text, start, length);
+        }
+        return chunks;
+    }
+
+    /**
+     * 从start开始取chunkSize个token，返回其在原文中的结束位置（不含）
+     */
+    private int windowEnd(String text, int start, double charsPerToken) {
+        int length = text.length();
+        long span = Math.max(256, (long) (chunkSize * charsPerToken * WINDOW_MARGIN));
+        while (true) {
+            int windowEnd = (int) Math.min(length, start + span);
+            // 编码器只接受String，这里复制的是窗口而不是剩余全文
+            EncodingResult result = TokenEncoding.CL100K_BASE
+                    .encodeOrdinary(text.substring(start, windowEnd), chunkSize);
+            if (result.isTruncated()) {
+                int processed = result.getLastProcessedCharacterIndex();
+                return processed > 0 ? start + processed : windowEnd;
+            }
+            if (windowEnd == length) {
+                return length;
+            }
+            // 窗口内不足chunkSize个token，扩大窗口重试
+            span *= 2;
+        }
+    }
+
+    private static int lastPunctuation(String text, int start, int end) {
+        for (int i = end - 1; i >= start; i--) {
+            char c = text.charAt(i);
+            if (c == '.' || c == '?' || c == '!' || c == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void addChunk(List<String> chunks, String text, int start, int end) {
+        // 与String.trim()相同的空白定义，在下标上裁剪以免产生中间字符串
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end - start <= minChunkLengthToEmbed) {
+            return;
+        }
+        String chunk = text.substring(start, end);
+        chunks.add(keepSeparator ? chunk : chunk.replace(System.lineSeparator(), " "));
+    }
+
+}
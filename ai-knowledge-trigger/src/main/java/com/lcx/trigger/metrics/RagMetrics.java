@@ -0,0 +1,352 @@
+package com.lcx.trigger.metrics;
+
+import com.lcx.trigger.registry.RegistryCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * RAG流水线各阶段的指标
+ *
+ * <p>检索、生成与导入的每个阶段都记录Micrometer指标，可通过 /actuator/metrics 或 /actuator/prometheus 查看：</p>
+ * <ul>
+ *   <li>检索：rag.embedding.query（问题嵌入耗时）、rag.vector.search（向量检索耗时，path标签区分
+ *       hot/partition/fan-out/filter/mixed）、rag.vector.search.documents（返回的文本块数）</li>
+ *   <li>生成：rag.chat.prompt.tokens（提示词token数）、rag.chat.stream.first.token（首个token耗时）、
+ *       rag.chat.stream.tokens.per.second（首个token之后的生成速度）、rag.chat.stream.duration
+ *       （整个回复流耗时，outcome标签区分complete/error/cancel）、rag.chat.stream.cancelled
+ *       （客户端断开导致取消的次数）</li>
+ *   <li>导入：rag.ingest.files（result标签区分processed/failed）、rag.ingest.chunks、
+ *       rag.ingest.embed.batch（每批嵌入耗时）、rag.ingest.insert（每批写入数据库耗时）、
+ *       rag.ingest.batch.chunks（每批文本块数）</li>
+ * </ul>
+ *
+ * <p>标签取值有上限：检索与生成阶段的 ragTag 只使用已登记的知识库标签，model 只使用已登记的模型与默认模型，
+ * 均按首次出现的顺序最多保留 rag.metrics.max-rag-tags / max-models 个，其余记为 other；
+ * 未指定标签记为 all，同时检索多个标签记为 multi。回答缓存的回放不计入生成阶段的指标。</p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Slf4j
+@Component
+public class RagMetrics {
+
+    private static final String OTHER = "other";
+    private static final String ALL = "all";
+    private static final String MULTI = "multi";
+    private static final String NONE = "none";
+
+    private final MeterRegistry meterRegistry;
+    private final RegistryCache registryCache;
+    private final RagMetricsProperties properties;
+    private final String defaultModel;
+    private final String embeddingModel;
+
+    private final Set<String> ragTagValues = ConcurrentHashMap.newKeySet();
+    private final Set<String> modelValues = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 当前线程在嵌入模型中累计的耗时，导入流水线据此把一次向量库写入拆分为嵌入与插入两部分
+     */
+    private final ThreadLocal<long[]> embedNanos = ThreadLocal.withInitial(() -> new long[1]);
+
+    public RagMetrics(MeterRegistry meterRegistry,
+                      RegistryCache registryCache,
+                      RagMetricsProperties properties,
+                      @Value("${spring.ai.openai.chat.options.model}") String defaultModel,
+                      @Value("${spring.ai.openai.embedding.options.model}") String embeddingModel) {
+        this.meterRegistry = meterRegistry;
+        this.registryCache = registryCache;
+        this.properties = properties;
+        this.defaultModel = defaultModel;
+        this.embeddingModel = embeddingModel;
+    }
+
+    /**
+     * 记录问题嵌入耗时
+     */
+    public void recordQueryEmbedding(List<String> ragTags, long nanos) {
+        Timer.builder("rag.embedding.query")
+                .description("问题嵌入耗时")
+                .tag("model", embeddingModel)
+                .tag("ragTag", ragTagOf(ragTags))
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次向量检索
+     *
+     * @param ragTags   检索的知识库标签
+     * @param path      检索方式：hot、partition、fan-out、filter、mixed
+     * @param nanos     耗时（不含问题嵌入，filter方式除外）
+     * @param documents 返回的文本块数
+     */
+    public void recordVectorSearch(List<String> ragTags, String path, long nanos, int documents) {
+        String ragTag = ragTagOf(ragTags);
+        Timer.builder("rag.vector.search")
+                .description("向量检索耗时")
+                .tag("ragTag", ragTag)
+                .tag("path", path)
+                .register(meterRegistry)
+                .record(nanos, TimeUnit.NANOSECONDS);
+        DistributionSummary.builder("rag.vector.search.documents")
+                .description("向量检索返回的文本块数")
+                .tag("ragTag", ragTag)
+                .register(meterRegistry)
+                .record(documents);
+    }
+
+    /**
+     * 记录提示词的token数
+     */
+    public void recordPromptTokens(String model, List<String> ragTags, int tokens) {
+        DistributionSummary.builder("rag.chat.prompt.tokens")
+                .description("提示词token数（系统提示词、文档与问题）")
+                .baseUnit("tokens")
+                .tag("model", modelOf(model))
+                .tag("ragTag", ragTagOf(ragTags))
+                .register(meterRegistry)
+                .record(tokens);
+    }
+
+    /**
+     * 为模型的回复流记录首个token耗时、生成速度与总耗时
+     *
+     * @param op      操作名称，如 generateStream、generateStreamRag
+     * @param model   模型名称
+     * @param ragTags 知识库标签，为null表示未使用知识库
+     * @param stream  模型的回复流
+     * @return 行为与回复流一致的流
+     */
+    public Flux<ChatResponse> instrumentStream(String op, String model, List<String> ragTags,
+                                               Flux<ChatResponse> stream) {
+        String modelTag = modelOf(model);
+        String ragTag = ragTags == null ? NONE : ragTagOf(ragTags);
+        return Flux.defer(() -> {
+            long startTime = System.nanoTime();
+            AtomicLong firstTokenAt = new AtomicLong();
+            AtomicLong events = new AtomicLong();
+            AtomicReference<Integer> completionTokens = new AtomicReference<>();
+            return stream
+                    .doOnNext(response -> {
+                        if (!hasText(response)) {
+                            captureUsage(response, completionTokens);
+                            return;
+                        }
+                        events.incrementAndGet();
+                        if (firstTokenAt.compareAndSet(0L, System.nanoTime())) {
+                            Timer.builder("rag.chat.stream.first.token")
+                                    .description("发出请求到收到首个token的耗时")
+                                    .tag("op", op)
+                                    .tag("model", modelTag)
+                                    .tag("ragTag", ragTag)
+                                    .register(meterRegistry)
+                                    .record(firstTokenAt.get() - startTime, TimeUnit.NANOSECONDS);
+                        }
+                        captureUsage(response, completionTokens);
+                    })
+                    .doFinally(signal -> {
+                        long endTime = System.nanoTime();
+                        Timer.builder("rag.chat.stream.duration")
+                                .description("回复流从订阅到结束的耗时")
+                                .tag("op", op)
+                                .tag("model", modelTag)
+                                .tag("ragTag", ragTag)
+                                .tag("outcome", outcomeOf(signal))
+                                .register(meterRegistry)
+                                .record(endTime - startTime, TimeUnit.NANOSECONDS);
+                        long generatingNanos = endTime - firstTokenAt.get();
+                        if (signal == SignalType.ON_COMPLETE && firstTokenAt.get() > 0L && generatingNanos > 0L) {
+                            // 服务端未返回用量时以含文本的事件数近似token数
+                            long tokens = completionTokens.get() != null ? completionTokens.get() : events.get();
+                            DistributionSummary.builder("rag.chat.stream.tokens.per.second")
+                                    .description("首个token之后的生成速度")
+                                    .baseUnit("tokens")
+                                    .tag("op", op)
+                                    .tag("model", modelTag)
+                                    .tag("ragTag", ragTag)
+                                    .register(meterRegistry)
+                                    .record(tokens * 1_000_000_000.0 / generatingNanos);
+                        }
+                    });
+        });
+    }
+
+    /**
+     * 记录客户端断开导致的回复流取消，合并到同一回复流的每个订阅者各记录一次
+     */
+    public void recordStreamCancelled(String op, String model) {
+        Counter.builder("rag.chat.stream.cancelled")
+                .description("客户端断开导致取消的流式生成次数")
+                .tag("op", op)
+                .tag("model", modelOf(model))
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * 记录一个文件的导入结果
+     */
+    public void recordIngestedFile(String ragTag, boolean success, int chunks) {
+        String tag = ingestTagOf(ragTag);
+        Counter.builder("rag.ingest.files")
+                .description("导入的文件数")
+                .tag("ragTag", tag)
+                .tag("result", success ? "processed" : "failed")
+                .register(meterRegistry)
+                .increment();
+        if (success && chunks > 0) {
+            Counter.builder("rag.ingest.chunks")
+                    .description("写入向量库的文本块数")
+                    .tag("ragTag", tag)
+                    .register(meterRegistry)
+                    .increment(chunks);
+        }
+    }
+
+    /**
+     * 嵌入模型完成一批文档的嵌入后调用，耗时累计到当前线程
+     */
+    public void recordEmbedBatch(long nanos) {
+        embedNanos.get()[0] += nanos;
+    }
+
+    /**
+     * 取出并清零当前线程累计的嵌入耗时
+     */
+    public long takeEmbedNanos() {
+        long[] accumulated = embedNanos.get();
+        long nanos = accumulated[0];
+        accumulated[0] = 0L;
+        return nanos;
+    }
+
+    /**
+     * 记录导入流水线一次成功的批量写入
+     *
+     * @param ragTag     知识库标签
+     * @param chunks     本批文本块数
+     * @param totalNanos 向量库写入的总耗时
+     * @param embedNanos 其中嵌入的耗时，全部命中嵌入缓存时为0
+     */
+    public void recordStoreBatch(String ragTag, int chunks, long totalNanos, long embedNanos) {
+        String tag = ingestTagOf(ragTag);
+        DistributionSummary.builder("rag.ingest.batch.chunks")
+                .description("每批写入的文本块数")
+                .tag("ragTag", tag)
+                .register(meterRegistry)
+                .record(chunks);
+        Timer.builder("rag.ingest.embed.batch")
+                .description("每批文本块的嵌入耗时")
+                .tag("model", embeddingModel)
+                .tag("ragTag", tag)
+                .register(meterRegistry)
+                .record(embedNanos, TimeUnit.NANOSECONDS);
+        Timer.builder("rag.ingest.insert")
+                .description("每批文本块写入数据库的耗时")
+                .tag("ragTag", tag)
+                .register(meterRegistry)
+                .record(Math.max(0L, totalNanos - embedNanos), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 检索与生成阶段的 ragTag 标签值，只使用已登记的知识库标签
+     */
+    private String ragTagOf(List<String> ragTags) {
+        List<String> tags = ragTags == null ? List.of() : ragTags.stream()
+                .filter(tag -> tag != null && !tag.isBlank())
+                .map(String::strip)
+                .distinct()
+                .toList();
+        if (tags.isEmpty()) {
+            return ALL;
+        }
+        if (tags.size() > 1) {
+            return MULTI;
+        }
+        String tag = tags.get(0);
+        return ragTagValues.contains(tag) || isRegistered(RegistryCache.RAG_TAGS_KEY, tag)
+                ? bounded(ragTagValues, properties.getMaxRagTags(), tag) : OTHER;
+    }
+
+    /**
+     * 导入阶段的 ragTag 标签值，标签在导入完成后才登记，这里只限制取值个数
+     */
+    private String ingestTagOf(String ragTag) {
+        return ragTag == null || ragTag.isBlank() ? OTHER
+                : bounded(ragTagValues, properties.getMaxRagTags(), ragTag.strip());
+    }
+
+    private String modelOf(String model) {
+        if (model == null || model.isBlank()) {
+            return OTHER;
+        }
+        return model.equals(defaultModel) || modelValues.contains(model)
+                || isRegistered(RegistryCache.MODELS_KEY, model)
+                ? bounded(modelValues, properties.getMaxModels(), model) : OTHER;
+    }
+
+    private boolean isRegistered(String registryKey, String value) {
+        try {
+            return registryCache.members(registryKey).contains(value);
+        } catch (Exception e) {
+            log.debug("BIZ_DEBUG: op=ragMetrics, action=registry-error, key={}", registryKey, e);
+            return false;
+        }
+    }
+
+    private static String bounded(Set<String> values, int max, String value) {
+        if (values.contains(value)) {
+            return value;
+        }
+        if (values.size() >= max) {
+            return OTHER;
+        }
+        values.add(value);
+        return value;
+    }
+
+    private static boolean hasText(ChatResponse response) {
+        Generation result = response.getResult();
+        return result != null && result.getOutput() != null && result.getOutput().getText() != null
+                && !result.getOutput().getText().isEmpty();
+    }
+
+    private static void captureUsage(ChatResponse response, AtomicReference<Integer> completionTokens) {
+        if (response.getMetadata() == null) {
+            return;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        if (usage != null && usage.getCompletionTokens() != null && usage.getCompletionTokens() > 0) {
+            completionTokens.set(usage.getCompletionTokens());
+        }
+    }
+
+    private static String outcomeOf(SignalType signal) {
+        return switch (signal) {
+            case ON_COMPLETE -> "complete";
+            case ON_ERROR -> "error";
+            default -> "cancel";
+        };
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.lcx.trigger.metrics;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * RAG流水线指标配置属性类
+ *
+ * <p>配置前缀：rag.metrics</p>
+ * <p>限制指标中 model 与 ragTag 标签的取值个数，防止按用户输入打标签导致时间序列无限增长。</p>
+ *
+ * <p>使用示例（application.yml）：</p>
+ * <pre>
+ * rag:
+ *   metrics:
+ *     max-rag-tags: 100
+ *     max-models: 20
+ * </pre>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Data
+@ConfigurationProperties(prefix = "rag.metrics", ignoreInvalidFields = true)
+public class RagMetricsProperties {
+
+    /**
+     * ragTag 标签最多使用的不同取值数，默认为100，超出后记为 other
+     */
+    private int maxRagTags = 100;
+
+    /**
+     * model 标签最多使用的不同取值数，默认为20，超出后记为 other
+     */
+    private int maxModels = 20;
+
+}
@@ -0,0 +1,183 @@
+package com.lcx.trigger.registry;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.listener.BaseStatusListener;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Redis注册表的本地缓存
+ *
+ * <p>模型列表与知识库标签列表存放在Redis Set中，读取频繁（每次打开页面）而修改很少，
+ * 这里在每个节点内存中保存一份快照，读取不访问Redis：</p>
+ * <ul>
+ *   <li>失效：通过本类修改注册表后在Redis频道 {@value #INVALIDATION_TOPIC} 上发布键名，
+ *       所有节点（包括自身）收到后清除该键的快照，下次读取时重新载入。
+ *       直接在Redis中修改注册表后可手动发布：{@code PUBLISH ai:registry:invalidate ai:models}</li>
+ *   <li>兜底：快照最多保留 rag.registry.max-staleness；订阅重新建立（如Redis重连）后清除全部快照，
+ *       断线期间丢失的通知不会使快照一直过期</li>
+ *   <li>Redis不可用时继续返回已有的快照，没有快照时抛出异常</li>
+ * </ul>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Slf4j
+@Component
+public class RegistryCache {
+
+    /**
+     * 可用模型列表
+     */
+    public static final String MODELS_KEY = "ai:models";
+
+    /**
+     * 知识库标签列表
+     */
+    public static final String RAG_TAGS_KEY = "ai:rag:tags";
+
+    private static final String INVALIDATION_TOPIC = "ai:registry:invalidate";
+
+    private final RegistryCacheProperties properties;
+    private final RedissonClient redissonClient;
+    private final RTopic topic;
+    private final Map<String, Snapshot> snapshots = new ConcurrentHashMap<>();
+
+    /**
+     * 每次失效递增，载入期间发生过失效的结果不写入快照
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private Integer messageListenerId;
+    private Integer statusListenerId;
+
+    public RegistryCache(RegistryCacheProperties properties, RedissonClient redissonClient) {
+        this.properties = properties;
+        this.redissonClient = redissonClient;
+        this.topic = redissonClient.getTopic(INVALIDATION_TOPIC, StringCodec.INSTANCE);
+    }
+
+    @PostConstruct
+    public void subscribe() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        try {
+            messageListenerId = topic.addListener(String.class, (channel, key) -> invalidateLocal(key));
+            statusListenerId = topic.addListener(new BaseStatusListener() {
+                @Override
+                public void onSubscribe(String channel) {
+                    // 首次订阅或重连后重新订阅：断线期间可能错过通知，全部重新载入
+                    snapshots.keySet().forEach(RegistryCache.this::invalidateLocal);
+                }
+            });
+        } catch (Exception e) {
+            log.warn("BIZ_WARN: op=registryCache, action=subscribe-error, topic={}, maxStalenessMs={}",
+                    INVALIDATION_TOPIC, properties.getMaxStaleness().toMillis(), e);
+        }
+    }
+
+    /**
+     * 读取注册表的全部成员
+     *
+     * @param key 注册表的Redis键，如 {@link #MODELS_KEY}、{@link #RAG_TAGS_KEY}
+     * @return 不可修改的成员列表
+     */
+    public List<String> members(String key) {
+        if (!properties.isEnabled()) {
+            return read(key);
+        }
+        Snapshot snapshot = snapshots.get(key);
+        if (snapshot != null && !snapshot.isExpired(properties.getMaxStaleness().toMillis())) {
+            return snapshot.members();
+        }
+        long epoch = invalidations.get();
+        try {
+            List<String> members = read(key);
+            Snapshot loaded = new Snapshot(members, System.currentTimeMillis());
+            // 与失效在同一个键上串行执行，载入期间发生过失效时保留当前值（已被清除）
+            snapshots.compute(key, (k, current) -> invalidations.get() == epoch ? loaded : current);
+            log.debug("BIZ_DEBUG: op=registryCache, action=load, key={}, size={}", key, members.size());
+            return members;
+        } catch (Exception e) {
+            if (snapshot != null) {
+                log.warn("BIZ_WARN: op=registryCache, action=serve-stale, key={}", key, e);
+                return snapshot.members();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 向注册表添加成员，SADD本身是原子的，无需先检查是否存在
+     *
+     * @param key    注册表的Redis键
+     * @param member 成员
+     * @return 成员原先不存在时返回true
+     */
+    public boolean add(String key, String member) {
+        boolean added = redissonClient.getSet(key, StringCodec.INSTANCE).add(member);
+        if (added) {
+            invalidate(key);
+        }
+        return added;
+    }
+
+    /**
+     * 清除所有节点上该注册表的快照
+     *
+     * @param key 注册表的Redis键
+     */
+    public void invalidate(String key) {
+        invalidateLocal(key);
+        try {
+            topic.publish(key);
+        } catch (Exception e) {
+            log.warn("BIZ_WARN: op=registryCache, action=publish-error, key={}", key, e);
+        }
+    }
+
+    private void invalidateLocal(String key) {
+        snapshots.compute(key, (k, current) -> {
+            invalidations.incrementAndGet();
+            return null;
+        });
+    }
+
+    private List<String> read(String key) {
+        return List.copyOf(redissonClient.<String>getSet(key, StringCodec.INSTANCE).readAll());
+    }
+
+    @PreDestroy
+    public void unsubscribe() {
+        try {
+            if (messageListenerId != null) {
+                topic.removeListener(messageListenerId);
+            }
+            if (statusListenerId != null) {
+                topic.removeListener(statusListenerId);
+            }
+        } catch (Exception e) {
+            log.debug("BIZ_DEBUG: op=registryCache, action=unsubscribe-error, topic={}", INVALIDATION_TOPIC, e);
+        }
+    }
+
+    private record Snapshot(List<String> members, long loadedAt) {
+
+        private boolean isExpired(long maxStalenessMs) {
+            return System.currentTimeMillis() - loadedAt > maxStalenessMs;
+        }
+
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.lcx.trigger.registry;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * 注册表本地缓存配置属性类
+ *
+ * <p>配置前缀：rag.registry</p>
+ * <p>控制模型列表（ai:models）与知识库标签列表（ai:rag:tags）在各节点内存中的缓存。</p>
+ *
+ * <p>使用示例（application.yml）：</p>
+ * <pre>
+ * rag:
+ *   registry:
+ *     enabled: true
+ *     max-staleness: 5m
+ * </pre>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Data
+@ConfigurationProperties(prefix = "rag.registry", ignoreInvalidFields = true)
+public class RegistryCacheProperties {
+
+    /**
+     * 是否启用本地缓存，默认为true，关闭时每次读取都访问Redis
+     */
+    private boolean enabled = true;
+
+    /**
+     * 本地缓存的最长保留时间，默认为5分钟
+     * <p>正常情况下缓存由失效通知清除，这里只兜底通知丢失或绕过应用直接修改Redis的情况</p>
+     */
+    private Duration maxStaleness = Duration.ofMinutes(5);
+
+}
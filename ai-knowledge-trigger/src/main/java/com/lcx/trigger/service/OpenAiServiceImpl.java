@@ -1,16 +1,25 @@
 package com.lcx.trigger.service;
 
 import com.lcx.api.IAiService;
+import com.lcx.api.dto.RagSearchOptions;
+import com.lcx.api.exception.BusinessException;
 import com.lcx.api.exception.SystemException;
 import com.lcx.api.logging.annotation.LogOperation;
 import com.lcx.api.logging.annotation.LogPerformance;
 import com.lcx.api.logging.context.LogContext;
+import com.lcx.api.logging.enums.BusinessModuleEnum;
 import com.lcx.api.logging.enums.OperationTypeEnum;
+import com.lcx.api.logging.util.StructuredLogger;
+import com.lcx.api.response.ResponseCode;
+import com.lcx.trigger.chat.AnswerCache;
+import com.lcx.trigger.chat.ContextPacker;
+import com.lcx.trigger.chat.ModelBulkhead;
+import com.lcx.trigger.chat.RequestCoalescer;
+import com.lcx.trigger.metrics.RagMetrics;
+import com.lcx.trigger.registry.RegistryCache;
+import com.lcx.trigger.vector.KnowledgeVectorSearch;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.redisson.api.RSet;
-import org.redisson.api.RedissonClient;
-import org.redisson.client.codec.StringCodec;
 import org.springframework.ai.chat.messages.Message;
 import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.model.ChatResponse;
@@ -19,16 +28,17 @@ import org.springframework.ai.chat.prompt.SystemPromptTemplate;
 import org.springframework.ai.document.Document;
 import org.springframework.ai.openai.OpenAiChatModel;
 import org.springframework.ai.openai.OpenAiChatOptions;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 @Slf4j
 @Service
@@ -39,8 +49,14 @@ public class OpenAiServiceImpl implements IAiService {
     private String defaultModel;
 
     private final OpenAiChatModel chatModel;
-    private final PgVectorStore pgVectorStore;
-    private final RedissonClient redissonClient;
+    private final RegistryCache registryCache;
+    private final AnswerCache answerCache;
+    private final KnowledgeVectorSearch knowledgeVectorSearch;
+    private final ContextPacker contextPacker;
+    private final RequestCoalescer requestCoalescer;
+    private final ModelBulkhead modelBulkhead;
+    private final RagMetrics ragMetrics;
+    private final Scheduler retrievalScheduler;
 
     @Override
     @LogOperation(
@@ -51,13 +67,12 @@ public class OpenAiServiceImpl implements IAiService {
     public List<String> queryAvailableModels() {
         log.info("BIZ_BEGIN: op=queryModels");
         try {
-            RSet<String> modelSet = redissonClient.getSet("ai:models", StringCodec.INSTANCE);
-            List<String> models = new ArrayList<>(modelSet);
+            List<String> models = registryCache.members(RegistryCache.MODELS_KEY);
             log.info("BIZ_END: op=queryModels, count={}", models.size());
             return models;
         } catch (Exception e) {
-            log.error("BIZ_ERROR: op=queryModels, key=ai:models", e);
-            throw SystemException.redisError("查询模型列表", "ai:models", e);
+            log.error("BIZ_ERROR: op=queryModels, key={}", RegistryCache.MODELS_KEY, e);
+            throw SystemException.redisError("查询模型列表", RegistryCache.MODELS_KEY, e);
         }
     }
 
@@ -103,13 +118,18 @@ public class OpenAiServiceImpl implements IAiService {
         final String traceId = LogContext.getTraceId().orElse("N/A");
 
         log.info("BIZ_BEGIN: op=generateStream, model={}, msgLen={}", selectedModel, msgLen);
+        // 在返回回复流之前检查并发容量，SSE响应开始之前拒绝，客户端才能收到429与Retry-After
+        modelBulkhead.checkCapacity(selectedModel);
         try {
-            Flux<ChatResponse> responseStream = chatModel.stream(new Prompt(
-                    message,
-                    OpenAiChatOptions.builder().model(selectedModel).build()
-            ));
+            Flux<ChatResponse> responseStream = ragMetrics.instrumentStream("generateStream", selectedModel, null,
+                    chatModel.stream(new Prompt(
+                            message,
+                            OpenAiChatOptions.builder().model(selectedModel).build()
+                    )));
 
-            return responseStream
+            // 并发限制在最外层，订阅时被拒绝的错误不会被包装为AI服务异常
+            return modelBulkhead.guard(selectedModel, cancelOnDisconnect(responseStream, "generateStream",
+                    selectedModel, null, mdcContext, traceId, "N/A")
                     .doOnError(error -> {
                         // 恢复MDC上下文
                         LogContext.setContext(mdcContext);
@@ -128,7 +148,7 @@ public class OpenAiServiceImpl implements IAiService {
                         } finally {
                             LogContext.clear();
                         }
-                    });
+                    }));
         } catch (Exception e) {
             log.error("BIZ_ERROR: op=generateStream, action=create, model={}, msgLen={}",
                     selectedModel, msgLen, e);
@@ -144,7 +164,9 @@ public class OpenAiServiceImpl implements IAiService {
             logParams = false
     )
     @LogPerformance(checkpointName = "RAG流式生成", timeoutThreshold = 15000)
-    public Flux<ChatResponse> generateStreamRag(String model, String ragTag, String message) {
+    public Flux<ChatResponse> generateStreamRag(String model, List<String> ragTags, String message,
+                                                RagSearchOptions searchOptions) {
+        String ragTag = String.join(",", ragTags);
         int msgLen = message != null ? message.length() : 0;
         String selectedModel = (model != null && !model.isBlank()) ? model : this.defaultModel;
 
@@ -154,6 +176,92 @@ public class OpenAiServiceImpl implements IAiService {
         final String clientIp = LogContext.getClientIp().orElse("N/A");
 
         log.info("BIZ_BEGIN: op=generateStreamRag, model={}, ragTag={}, msgLen={}", selectedModel, ragTag, msgLen);
+
+        // 在返回回复流之前检查并发容量，SSE响应开始之前拒绝，客户端才能收到429与Retry-After；
+        // 加入进行中的相同请求与可能由回答缓存回放的请求不调用模型，不检查
+        String coalesceKey = RequestCoalescer.key(selectedModel, ragTags, message, searchOptions);
+        if (!requestCoalescer.isInFlight(coalesceKey)
+                && !(searchOptions == null && answerCache.mayHit(selectedModel, ragTags, message))) {
+            modelBulkhead.checkCapacity(selectedModel);
+        }
+
+        // 检索与提示词组装（问题嵌入、向量检索、上下文组装）都是阻塞调用，在有界的检索调度器上执行，
+        // 请求线程在返回回复流后即被释放；检索调度器已满时请求失败而不是无限排队
+        Flux<ChatResponse> responseStream = Mono.fromCallable(() -> {
+                    LogContext.setContext(mdcContext);
+                    try {
+                        return prepareStreamRag(selectedModel, ragTags, ragTag, message, searchOptions,
+                                mdcContext, traceId, clientIp);
+                    } finally {
+                        LogContext.clear();
+                    }
+                })
+                .subscribeOn(retrievalScheduler)
+                .onErrorMap(RejectedExecutionException.class, e -> {
+                    log.warn("BIZ_WARN: op=generateStreamRag, reason=retrieval-queue-full, model={}, ragTag={}, trace={}",
+                            selectedModel, ragTag, traceId);
+                    return new BusinessException(ResponseCode.TOO_MANY_REQUESTS.getCode(), "RAG请求过多，请稍后重试", e);
+                })
+                .flatMapMany(Function.identity());
+        // 相同请求正在进行时直接订阅其回复流，不再重复检索与调用模型；
+        // 全部订阅者断开后取消信号经共享流传到检索阶段或模型的HTTP调用。
+        // 并发许可只在调用模型时取得（见 prepareStreamRag），回答缓存的回放不占用许可；
+        // 合并到同一回复流的请求共用一个许可。
+        // 断开记录在合并之外，每个订阅者断开时各记录一次，而不是只在最后一个订阅者断开时记录
+        Flux<ChatResponse> coalesced = requestCoalescer.coalesce(coalesceKey, responseStream);
+        return cancelOnDisconnect(coalesced, "generateStreamRag", selectedModel, ragTag, mdcContext, traceId, clientIp);
+    }
+
+    /**
+     * 记录客户端断开导致的取消
+     *
+     * <p>SSE客户端断开后，Spring MVC在下一次写入失败时取消对回复流的订阅，取消信号沿流向上传递，
+     * 最终关闭与模型服务之间的HTTP流，模型停止生成。这里只负责在取消时记录日志与指标。</p>
+     */
+    private Flux<ChatResponse> cancelOnDisconnect(Flux<ChatResponse> stream, String op, String model, String ragTag,
+                                                  Map<String, String> mdcContext, String traceId, String clientIp) {
+        return Flux.defer(() -> {
+            AtomicLong events = new AtomicLong();
+            return stream
+                    .doOnNext(response -> events.incrementAndGet())
+                    .doOnCancel(() -> {
+                        ragMetrics.recordStreamCancelled(op, model);
+                        LogContext.setContext(mdcContext);
+                        try {
+                            log.info("BIZ_INFO: op={}, action=client-cancel, model={}, ragTag={}, events={}, trace={}, ip={}",
+                                    op, model, ragTag, events.get(), traceId, clientIp);
+                            StructuredLogger.logSimpleFailure(BusinessModuleEnum.AI_CHAT.getCode(), "STREAM_CANCEL",
+                                    String.format("流式生成被取消: op=%s, model=%s, ragTag=%s, events=%d",
+                                            op, model, ragTag, events.get()),
+                                    "客户端断开连接");
+                        } finally {
+                            LogContext.clear();
+                        }
+                    });
+        });
+    }
+
+    /**
+     * RAG检索与提示词组装阶段，返回回答缓存的回放流或模型的回复流，只有后者受模型并发限制
+     */
+    private Flux<ChatResponse> prepareStreamRag(String selectedModel, List<String> ragTags, String ragTag,
+                                                String message, RagSearchOptions searchOptions,
+                                                Map<String, String> mdcContext, String traceId, String clientIp) {
+        int msgLen = message != null ? message.length() : 0;
+
+        // 版本号须在检索之前读取，检索与生成期间标签被更新时本次回答不会再被命中；
+        // 指定了检索参数的请求用于调优对比，不读也不写回答缓存
+        Long cacheGeneration = searchOptions == null ? answerCache.generation(ragTags) : null;
+        // 问题向量在检索调度器上只计算一次，查找与写入缓存共用
+        float[] queryVector = answerCache.queryVector(message, cacheGeneration);
+        Flux<ChatResponse> cachedAnswer = answerCache.lookup(selectedModel, ragTags, message, cacheGeneration,
+                queryVector);
+        if (cachedAnswer != null) {
+            log.info("BIZ_END: op=generateStreamRag, action=cache-hit, model={}, ragTag={}, trace={}",
+                    selectedModel, ragTag, traceId);
+            return cachedAnswer;
+        }
+
         try {
             String SYSTEM_PROMPT = """
                     Use the information from the DOCUMENTS section to provide accurate answers but act as if you knew this information innately.
@@ -163,21 +271,16 @@ public class OpenAiServiceImpl implements IAiService {
                         {documents}
                     """;
 
-            SearchRequest.Builder builder = SearchRequest.builder()
-                    .query(message != null ? message : "")
-                    .topK(5);
-            if (ragTag != null && !ragTag.isBlank()) {
-                builder.filterExpression("knowledge == '" + ragTag + "'");
-            }
-            SearchRequest request = builder.build();
-
-            List<Document> documents = pgVectorStore.similaritySearch(request);
+            List<Document> documents = knowledgeVectorSearch.search(ragTags, message, searchOptions);
             int docSize = documents != null ? documents.size() : 0;
             log.info("BIZ_INFO: op=ragSearch, model={}, ragTag={}, docs={}", selectedModel, ragTag, docSize);
 
-            String documentCollectors = documents == null ? "" : documents.stream()
-                    .map(Document::getText)
-                    .collect(Collectors.joining("\n\n"));
+            ContextPacker.PackedContext context = contextPacker.pack(selectedModel, documents, SYSTEM_PROMPT, message);
+            log.info("BIZ_INFO: op=packContext, model={}, ragTag={}, packed={}, tokens={}, duplicates={}, overBudget={}",
+                    selectedModel, ragTag, context.documents(), context.tokens(), context.duplicates(),
+                    context.overBudget());
+            ragMetrics.recordPromptTokens(selectedModel, ragTags, context.promptTokens());
+            String documentCollectors = context.text();
 
             if (documentCollectors.trim().isEmpty()) {
                 log.warn("BIZ_WARN: op=ragSearch, reason=empty-docs, ragTag={}, msgLen={}", ragTag, msgLen);
@@ -186,12 +289,15 @@ public class OpenAiServiceImpl implements IAiService {
 
             Message ragMessage = new SystemPromptTemplate(SYSTEM_PROMPT).createMessage(Map.of("documents", documentCollectors));
 
-            Flux<ChatResponse> responseStream = chatModel.stream(new Prompt(
-                    List.of(ragMessage, new UserMessage(message != null ? message : "")),
-                    OpenAiChatOptions.builder().model(selectedModel).build()
-            ));
+            Flux<ChatResponse> responseStream = answerCache.cache(selectedModel, ragTags, message, cacheGeneration,
+                    queryVector, ragMetrics.instrumentStream("generateStreamRag", selectedModel, ragTags,
+                            chatModel.stream(new Prompt(
+                                    List.of(ragMessage, new UserMessage(message != null ? message : "")),
+                                    OpenAiChatOptions.builder().model(selectedModel).build()
+                            ))));
 
-            return responseStream
+            // 并发限制在最外层，被拒绝时的错误不会被包装为AI服务异常
+            return modelBulkhead.guard(selectedModel, responseStream
                     .doOnError(error -> {
                         // 恢复MDC上下文用于日志记录
                         LogContext.setContext(mdcContext);
@@ -212,7 +318,7 @@ public class OpenAiServiceImpl implements IAiService {
                         } finally {
                             LogContext.clear();
                         }
-                    });
+                    }));
         } catch (Exception e) {
             log.error("BIZ_ERROR: op=generateStreamRag, action=create, model={}, ragTag={}, msgLen={}",
                     selectedModel, ragTag, msgLen, e);
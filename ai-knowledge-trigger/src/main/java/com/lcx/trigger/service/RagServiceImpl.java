@@ -1,5 +1,6 @@
 package com.lcx.trigger.service;
 
+import com.google.common.hash.Hashing;
 import com.lcx.api.IRagService;
 import com.lcx.api.dto.FileUploadRequest;
 import com.lcx.api.dto.GitRepositoryRequest;
@@ -11,28 +12,59 @@ import com.lcx.api.logging.enums.OperationTypeEnum;
 import com.lcx.api.logging.util.SensitiveDataMasker;
 import com.lcx.api.logging.util.StructuredLogger;
 import com.lcx.api.response.ResponseCode;
+import com.lcx.trigger.chat.AnswerCache;
+import com.lcx.trigger.ingestion.DocumentReaderRegistry;
+import com.lcx.trigger.ingestion.GitBlobResource;
+import com.lcx.trigger.ingestion.IngestionFile;
+import com.lcx.trigger.ingestion.IngestionJobManager;
+import com.lcx.trigger.ingestion.IngestionPipeline;
+import com.lcx.trigger.ingestion.IngestionProperties;
+import com.lcx.trigger.ingestion.IngestionStats;
+import com.lcx.trigger.registry.RegistryCache;
+import com.lcx.trigger.vector.HotTagIndex;
+import com.lcx.trigger.vector.KnowledgeVectorSearch;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.io.FileUtils;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.transport.CredentialsProvider;
+import org.eclipse.jgit.transport.RefSpec;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
-import org.redisson.api.RSet;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+import org.redisson.api.RMap;
 import org.redisson.api.RedissonClient;
 import org.redisson.client.codec.StringCodec;
-import org.springframework.ai.document.Document;
-import org.springframework.ai.reader.tika.TikaDocumentReader;
-import org.springframework.ai.transformer.splitter.TokenTextSplitter;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
 import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
 import org.springframework.core.io.PathResource;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
 import java.io.IOException;
-import java.nio.file.*;
-import java.nio.file.attribute.BasicFileAttributes;
+import java.io.InterruptedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
 /**
  * RAG服务实现类
@@ -42,9 +74,38 @@ import java.util.List;
 @RequiredArgsConstructor
 public class RagServiceImpl implements IRagService {
 
+    /**
+     * 每个Git知识库标签最近一次成功导入的提交，与 {@link RegistryCache#RAG_TAGS_KEY} 同级存放
+     */
+    private static final String GIT_COMMIT_KEY = "ai:rag:git:commits";
+
+    /**
+     * 按路径删除文本块时单条过滤表达式包含的最大路径数
+     */
+    private static final int DELETE_BATCH_SIZE = 200;
+
+    /**
+     * 文本块来源元数据：git 或 upload，全量同步只清理来源为 git 的旧文本块
+     */
+    private static final String ORIGIN_KEY = "origin";
+    private static final String ORIGIN_GIT = "git";
+    private static final String ORIGIN_UPLOAD = "upload";
+
+    /**
+     * Git文本块所属的提交，全量同步完成后删除不属于最新提交的文本块
+     */
+    private static final String REVISION_KEY = "revision";
+
     private final PgVectorStore pgVectorStore;
     private final RedissonClient redissonClient;
-    private final TokenTextSplitter tokenTextSplitter;
+    private final IngestionPipeline ingestionPipeline;
+    private final IngestionProperties ingestionProperties;
+    private final IngestionJobManager ingestionJobManager;
+    private final DocumentReaderRegistry documentReaderRegistry;
+    private final AnswerCache answerCache;
+    private final KnowledgeVectorSearch knowledgeVectorSearch;
+    private final HotTagIndex hotTagIndex;
+    private final RegistryCache registryCache;
 
     @Override
     @LogOperation(
@@ -55,13 +116,12 @@ public class RagServiceImpl implements IRagService {
     public List<String> queryRagTagList() {
         log.info("BIZ_BEGIN: op=queryRagTagList");
         try {
-            RSet<String> elements = redissonClient.getSet("ai:rag:tags", StringCodec.INSTANCE);
-            List<String> tagList = new ArrayList<>(elements);
+            List<String> tagList = registryCache.members(RegistryCache.RAG_TAGS_KEY);
             log.info("BIZ_END: op=queryRagTagList, size={}", tagList.size());
             return tagList;
         } catch (Exception e) {
-            log.error("BIZ_ERROR: op=queryRagTagList, key=ai:rag:tags", e);
-            throw SystemException.redisError("查询标签列表", "ai:rag:tags", e);
+            log.error("BIZ_ERROR: op=queryRagTagList, key={}", RegistryCache.RAG_TAGS_KEY, e);
+            throw SystemException.redisError("查询标签列表", RegistryCache.RAG_TAGS_KEY, e);
         }
     }
 
@@ -80,51 +140,97 @@ public class RagServiceImpl implements IRagService {
 
         if (files == null || files.isEmpty()) {
             log.warn("BIZ_WARN: op=uploadFile, reason=no-files, tag={}", ragTag);
-            return "未选择文件";
+            throw new BusinessException(ResponseCode.PARAM_ERROR.getCode(), "未选择文件");
         }
 
-        int processedCount = 0;
-        int totalChunks = 0;
-        
-        for (MultipartFile file : files) {
-            if (file.isEmpty()) {
-                log.warn("BIZ_WARN: op=uploadFile, reason=empty-file, name={}", 
-                        SensitiveDataMasker.mask(file.getOriginalFilename()));
-                continue;
+        // 上传的临时文件在请求结束后即被清理，提交后台任务前先转存到独立目录
+        Path uploadDirectory;
+        List<IngestionFile> spooledFiles = new ArrayList<>();
+        try {
+            uploadDirectory = Files.createTempDirectory("rag-upload-");
+        } catch (IOException e) {
+            log.error("BIZ_ERROR: op=uploadFile, action=create-spool-dir, tag={}", ragTag, e);
+            throw SystemException.fileProcessError("暂存上传文件", ragTag, e);
+        }
+        try {
+            for (int i = 0; i < files.size(); i++) {
+                MultipartFile file = files.get(i);
+                if (file.isEmpty()) {
+                    log.warn("BIZ_WARN: op=uploadFile, reason=empty-file, name={}",
+                            SensitiveDataMasker.mask(file.getOriginalFilename()));
+                    continue;
+                }
+                log.info("BIZ_PROCESS: op=uploadFile, file={}, size={}B",
+                        SensitiveDataMasker.mask(file.getOriginalFilename()), file.getSize());
+                String fileName = Objects.requireNonNullElse(file.getOriginalFilename(), file.getName());
+                // 保留扩展名供解析器识别类型，序号前缀避免同名文件互相覆盖
+                Path target = uploadDirectory.resolve(i + "-" + fileName.replaceAll("[\\\\/:]", "_"));
+                // 上传内容已由容器写入磁盘临时文件，transferTo(File) 直接移动文件而不经过堆内存
+                file.transferTo(target.toFile());
+                spooledFiles.add(new IngestionFile(fileName, new PathResource(target)));
             }
+        } catch (IOException e) {
+            FileUtils.deleteQuietly(uploadDirectory.toFile());
+            log.error("BIZ_ERROR: op=uploadFile, action=spool, tag={}", ragTag, e);
+            throw SystemException.fileProcessError("暂存上传文件", ragTag, e);
+        }
 
-            String fileName = file.getOriginalFilename();
-            String maskedFileName = SensitiveDataMasker.mask(fileName);
-            log.info("BIZ_PROCESS: op=uploadFile, file={}, size={}B", maskedFileName, file.getSize());
-            
-            try {
-                TikaDocumentReader documentReader = new TikaDocumentReader(file.getResource());
-                List<Document> documents = documentReader.get();
-
-                List<Document> documentSplitterList = tokenTextSplitter.apply(documents);
-                documents.forEach(doc -> doc.getMetadata().put("knowledge", ragTag));
-                documentSplitterList.forEach(doc -> doc.getMetadata().put("knowledge", ragTag));
-
-                pgVectorStore.accept(documentSplitterList);
-                
-                processedCount++;
-                totalChunks += documentSplitterList.size();
-                
-                log.info("BIZ_SUCCESS: op=uploadFile, file={}, chunks={}", 
-                        maskedFileName, documentSplitterList.size());
-            } catch (Exception e) {
-                log.error("BIZ_ERROR: op=uploadFile, file={}, tag={}, size={}B", 
-                        maskedFileName, ragTag, file.getSize(), e);
-                throw SystemException.fileProcessError("上传并处理文件", maskedFileName, e);
+        if (spooledFiles.isEmpty()) {
+            FileUtils.deleteQuietly(uploadDirectory.toFile());
+            log.warn("BIZ_WARN: op=uploadFile, reason=all-empty, tag={}", ragTag);
+            throw new BusinessException(ResponseCode.PARAM_ERROR.getCode(), "上传的文件内容均为空");
+        }
+
+        String jobId;
+        try {
+            jobId = ingestionJobManager.submit("upload", ragTag,
+                    job -> ingestUploadedFiles(job, ragTag, spooledFiles, uploadDirectory));
+        } catch (RuntimeException e) {
+            FileUtils.deleteQuietly(uploadDirectory.toFile());
+            throw e;
+        }
+        log.info("BIZ_END: op=uploadFile, tag={}, files={}, jobId={}", ragTag, spooledFiles.size(), jobId);
+        return jobId;
+    }
+
+    /**
+     * 后台任务：将已转存的上传文件导入知识库
+     */
+    private String ingestUploadedFiles(IngestionJobManager.Job job, String ragTag, List<IngestionFile> files,
+                                       Path uploadDirectory) {
+        IngestionStats stats;
+        // 导入开始与结束时各失效一次，导入期间基于部分文档生成的回答也不会在导入完成后命中
+        answerCache.invalidate(ragTag);
+        try (IngestionPipeline.Session session = ingestionPipeline.open(ragTag, Map.of(ORIGIN_KEY, ORIGIN_UPLOAD))) {
+            job.track(session.getStats());
+            for (IngestionFile file : files) {
+                session.submit(file);
             }
+            stats = session.complete();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("BIZ_ERROR: op=uploadFile, reason=interrupted, tag={}", ragTag, e);
+            throw SystemException.fileProcessError("上传并处理文件", ragTag, e);
+        } finally {
+            answerCache.invalidate(ragTag);
+            hotTagIndex.refresh(ragTag);
+            FileUtils.deleteQuietly(uploadDirectory.toFile());
+        }
+
+        if (stats.getErrors() > 0) {
+            log.error("BIZ_ERROR: op=uploadFile, tag={}, processed={}/{}, errors={}",
+                    ragTag, stats.getFiles(), files.size(), stats.getErrors());
+            throw SystemException.fileProcessError("上传并处理文件",
+                    String.format("%d个文件处理失败", stats.getErrors()), null);
         }
 
         updateRagTagList(ragTag);
-        
-        log.info("BIZ_END: op=uploadFile, tag={}, processed={}/{}, totalChunks={}", 
-                ragTag, processedCount, fileCount, totalChunks);
-        
-        return String.format("文件上传成功！处理文件数：%d，生成文档块数：%d", processedCount, totalChunks);
+        knowledgeVectorSearch.ensurePartition(ragTag);
+
+        log.info("BIZ_INFO: op=uploadFile, action=ingested, tag={}, processed={}/{}, totalChunks={}, costMs={}",
+                ragTag, stats.getFiles(), files.size(), stats.getChunks(), stats.getElapsedMs());
+
+        return String.format("文件上传成功！处理文件数：%d，生成文档块数：%d", stats.getFiles(), stats.getChunks());
     }
 
     @Override
@@ -135,6 +241,21 @@ public class RagServiceImpl implements IRagService {
             logParams = false  // 不记录参数，因为包含敏感令牌
     )
     public String analyzeGitRepository(GitRepositoryRequest request) {
+        String repoProjectName = extractProjectName(request.getRepoUrl());
+        // 参数完全相同的同步任务正在排队时复用，该任务开始时才拉取，会包含本次请求之前的提交；
+        // 仓库地址、同步方式或凭据不同的请求各自排队
+        String jobId = ingestionJobManager.submitOnce("git", repoProjectName, gitRequestId(request),
+                job -> syncGitRepository(job, request, repoProjectName));
+        log.info("BIZ_INFO: op=analyzeGit, action=submit, repo={}, project={}, jobId={}",
+                request.getRepoUrl(), repoProjectName, jobId);
+        return jobId;
+    }
+
+    /**
+     * 后台任务：同步Git仓库并导入知识库
+     */
+    private String syncGitRepository(IngestionJobManager.Job job, GitRepositoryRequest request,
+                                     String repoProjectName) {
         String repoUrl = request.getRepoUrl();
         String userName = request.getUserName();
         String token = request.getToken();
@@ -145,30 +266,22 @@ public class RagServiceImpl implements IRagService {
         
         log.info("BIZ_BEGIN: op=analyzeGit, repo={}, user={}", repoUrl, maskedUserName);
 
-        String repoProjectName = extractProjectName(repoUrl);
-        String localPath = "git-cloned-repo/" + repoProjectName + "/";
-        log.info("BIZ_INFO: op=analyzeGit, action=prepare-clone, project={}, path={}", 
-                repoProjectName, new File(localPath).getAbsolutePath());
+        boolean checkoutFree = ingestionProperties.getGit().isCheckoutFree();
+        File localDirectory = new File(ingestionProperties.getGit().getCloneDirectory(),
+                checkoutFree ? repoProjectName + ".git" : repoProjectName);
+        log.info("BIZ_INFO: op=analyzeGit, action=prepare-clone, project={}, path={}, checkoutFree={}",
+                repoProjectName, localDirectory.getAbsolutePath(), checkoutFree);
 
         int processedFileCount = 0;
         int totalDocumentCount = 0;
         long startTime = System.currentTimeMillis();
         Git git = null;
 
+        job.describe("正在拉取仓库");
         try {
-            FileUtils.deleteDirectory(new File(localPath));
-            log.debug("BIZ_DEBUG: op=analyzeGit, action=cleanup, path={}", localPath);
-
-            log.info("BIZ_INFO: op=analyzeGit, action=cloning, repo={}", repoUrl);
-            git = Git.cloneRepository()
-                    .setURI(repoUrl)
-                    .setDirectory(new File(localPath))
-                    .setCredentialsProvider(new UsernamePasswordCredentialsProvider(
-                            userName != null ? userName : "",
-                            token != null ? token : ""))
-                    .call();
-            log.info("BIZ_SUCCESS: op=analyzeGit, action=clone-complete, repo={}", repoUrl);
-
+            git = openOrCloneRepository(repoUrl, localDirectory, checkoutFree, new UsernamePasswordCredentialsProvider(
+                    userName != null ? userName : "",
+                    token != null ? token : ""));
         } catch (org.eclipse.jgit.api.errors.TransportException e) {
             String errorMsg = e.getMessage();
             log.error("BIZ_ERROR: op=analyzeGit, action=clone, type=transport, repo={}", repoUrl, e);
@@ -190,85 +303,75 @@ public class RagServiceImpl implements IRagService {
             throw SystemException.externalServiceError("Git服务", "克隆仓库", e);
         }
 
+        job.describe("正在导入文件");
+        answerCache.invalidate(repoProjectName);
         try {
-            final int[] fileCounter = {0};
-            final int[] documentCounter = {0};
-
-            Files.walkFileTree(Paths.get(localPath), new SimpleFileVisitor<>() {
-                @Override
-                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-                    if (file.toString().contains(".git")) {
-                        return FileVisitResult.CONTINUE;
-                    }
-                    String fileName = file.getFileName().toString().toLowerCase();
-                    if (!isDocumentFile(fileName)) {
-                        return FileVisitResult.CONTINUE;
-                    }
-                    if (attrs.size() == 0) {
-                        return FileVisitResult.CONTINUE;
-                    }
+            Repository repository = git.getRepository();
+            ObjectId headId = repository.resolve(Constants.HEAD);
+            String headCommit = headId.getName();
+            String lastCommit = request.isFullSync() ? null : getLastIngestedCommit(repoProjectName);
+            Map<String, Object> gitMetadata = Map.of(ORIGIN_KEY, ORIGIN_GIT, REVISION_KEY, headCommit);
 
-                    log.info("BIZ_PROCESS: op=analyzeGit, action=process-file, project={}, file={}", 
-                            repoProjectName, file.getFileName());
-                    try {
-                        TikaDocumentReader reader = new TikaDocumentReader(new PathResource(file));
-                        List<Document> documents = reader.get();
-                        if (documents == null || documents.isEmpty()) {
-                            log.warn("BIZ_WARN: op=analyzeGit, reason=empty-docs, file={}", file.getFileName());
-                            return FileVisitResult.CONTINUE;
-                        }
-                        List<Document> documentSplitterList = tokenTextSplitter.apply(documents);
-                        documents.forEach(doc -> doc.getMetadata().put("knowledge", repoProjectName));
-                        documentSplitterList.forEach(doc -> doc.getMetadata().put("knowledge", repoProjectName));
-                        pgVectorStore.accept(documentSplitterList);
-                        fileCounter[0]++;
-                        documentCounter[0] += documentSplitterList.size();
-                        log.debug("BIZ_DEBUG: op=analyzeGit, file={}, chunks={}", 
-                                file.getFileName(), documentSplitterList.size());
-                    } catch (Exception e) {
-                        log.warn("BIZ_WARN: op=analyzeGit, reason=process-error, file={}, project={}", 
-                                file.getFileName(), repoProjectName, e);
-                    }
-                    return FileVisitResult.CONTINUE;
-                }
+            try (IngestionPipeline.Session session = ingestionPipeline.open(repoProjectName, gitMetadata)) {
+                job.track(session.getStats());
 
-                @Override
-                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
-                    if (".git".equals(dir.getFileName().toString())) {
-                        log.debug("analyzeGit skip-dir: path={}", dir);
-                        return FileVisitResult.SKIP_SUBTREE;
-                    }
-                    return FileVisitResult.CONTINUE;
+                String syncMode;
+                int deletedFileCount = 0;
+                if (headCommit.equals(lastCommit)) {
+                    syncMode = "up-to-date";
+                } else if (lastCommit != null && ObjectId.isId(lastCommit)
+                        && repository.hasObject(ObjectId.fromString(lastCommit))) {
+                    syncMode = "incremental";
+                    deletedFileCount = ingestChangedFiles(session, repository,
+                            ObjectId.fromString(lastCommit), headId, repoProjectName);
+                } else {
+                    syncMode = "full";
+                    ingestTree(session, repository, headId, repoProjectName);
                 }
+                log.info("BIZ_INFO: op=analyzeGit, action=sync, project={}, mode={}, from={}, to={}",
+                        repoProjectName, syncMode, lastCommit, headCommit);
 
-                @Override
-                public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
-                    log.warn("analyzeGit visit-failed: path={}, err={}", file, exc.getMessage());
-                    return FileVisitResult.CONTINUE;
+                IngestionStats stats = session.complete();
+                if ("full".equals(syncMode) && stats.getErrors() == 0) {
+                    // 新文本块全部写入后再清除本仓库旧版本的文本块，导入期间标签不会为空，上传的文档不受影响
+                    deleteStaleGitChunks(repoProjectName, headCommit);
                 }
-            });
 
-            updateRagTagList(repoProjectName);
+                updateRagTagList(repoProjectName);
+                knowledgeVectorSearch.ensurePartition(repoProjectName);
+                if (stats.getErrors() == 0) {
+                    recordIngestedCommit(repoProjectName, headCommit);
+                } else {
+                    // 存在失败文件时不推进提交记录，下次同步会重新处理这段差异；
+                    // 全量导入时也不清除旧版本的文本块，导入失败的文件保留原有内容。
+                    // 清除提交记录使下次同步重新全量导入，成功后再清理新旧版本并存的文本块
+                    if ("full".equals(syncMode)) {
+                        forgetIngestedCommit(repoProjectName);
+                    }
+                    log.warn("BIZ_WARN: op=analyzeGit, reason=partial-failure, project={}, mode={}, errors={}",
+                            repoProjectName, syncMode, stats.getErrors());
+                }
 
-            long endTime = System.currentTimeMillis();
-            long costMs = endTime - startTime;
-            processedFileCount = fileCounter[0];
-            totalDocumentCount = documentCounter[0];
+                long endTime = System.currentTimeMillis();
+                long costMs = endTime - startTime;
+                processedFileCount = stats.getFiles();
+                totalDocumentCount = stats.getChunks();
 
-            log.info("BIZ_END: op=analyzeGit, project={}, files={}, chunks={}, costMs={}",
-                    repoProjectName, processedFileCount, totalDocumentCount, costMs);
+                log.info("BIZ_END: op=analyzeGit, project={}, mode={}, files={}, deleted={}, chunks={}, errors={}, costMs={}",
+                        repoProjectName, syncMode, processedFileCount, deletedFileCount, totalDocumentCount,
+                        stats.getErrors(), costMs);
             
-            // 结构化业务日志
-            StructuredLogger.logSimpleSuccess(
-                    BusinessModuleEnum.GIT.getCode(),
-                    "GIT_ANALYZE",
-                    String.format("分析Git仓库完成: project=%s, files=%d, chunks=%d, cost=%dms",
-                            repoProjectName, processedFileCount, totalDocumentCount, costMs)
-            );
+                // 结构化业务日志
+                StructuredLogger.logSimpleSuccess(
+                        BusinessModuleEnum.GIT.getCode(),
+                        "GIT_ANALYZE",
+                        String.format("分析Git仓库完成: project=%s, mode=%s, files=%d, deleted=%d, chunks=%d, cost=%dms",
+                                repoProjectName, syncMode, processedFileCount, deletedFileCount, totalDocumentCount, costMs)
+                );
             
-            return String.format("Git仓库分析完成！项目：%s，处理文件数：%d，生成文档块数：%d，耗时：%d毫秒",
-                    repoProjectName, processedFileCount, totalDocumentCount, costMs);
-
+                return String.format("Git仓库分析完成！项目：%s，同步方式：%s，处理文件数：%d，删除文件数：%d，生成文档块数：%d，耗时：%d毫秒",
+                        repoProjectName, syncMode, processedFileCount, deletedFileCount, totalDocumentCount, costMs);
+            }
         } catch (Exception e) {
             log.error("BIZ_ERROR: op=analyzeGit, project={}, processedFiles={}", 
                     repoProjectName, processedFileCount, e);
@@ -277,36 +380,240 @@ public class RagServiceImpl implements IRagService {
                     "Git仓库文件处理失败，请稍后重试", e
             );
         } finally {
+            answerCache.invalidate(repoProjectName);
+            hotTagIndex.refresh(repoProjectName);
             try {
-                if (git != null) {
-                    git.close();
-                    log.debug("BIZ_DEBUG: op=analyzeGit, action=git-close");
-                }
+                git.close();
+                log.debug("BIZ_DEBUG: op=analyzeGit, action=git-close");
             } catch (Exception e) {
                 log.warn("BIZ_WARN: op=analyzeGit, action=git-close-error", e);
             }
+        }
+    }
+
+    /**
+     * 打开本地已有的仓库副本并拉取最新提交，不存在或远程地址不一致时重新克隆
+     *
+     * <p>本地副本在多次同步之间保留，以便增量同步时能够读取上次导入的提交。
+     * 免检出模式下以裸仓库方式克隆，磁盘上只保存对象库，不生成工作区文件。</p>
+     */
+    private Git openOrCloneRepository(String repoUrl, File directory, boolean bare, CredentialsProvider credentials)
+            throws GitAPIException, IOException {
+        boolean exists = bare
+                ? new File(directory, "objects").isDirectory()
+                : new File(directory, ".git").isDirectory();
+        if (exists) {
+            Git git = null;
             try {
-                FileUtils.deleteDirectory(new File(localPath));
-                log.debug("BIZ_DEBUG: op=analyzeGit, action=cleanup, path={}", localPath);
-            } catch (Exception e) {
-                log.warn("BIZ_WARN: op=analyzeGit, action=cleanup-error, path={}", localPath, e);
+                git = Git.open(directory);
+                String originUrl = git.getRepository().getConfig().getString("remote", "origin", "url");
+                if (repoUrl.equals(originUrl)) {
+                    String branch = git.getRepository().getBranch();
+                    log.info("BIZ_INFO: op=analyzeGit, action=fetching, repo={}, branch={}", repoUrl, branch);
+                    if (bare) {
+                        // 裸仓库直接更新本地分支，HEAD随之指向最新提交
+                        git.fetch()
+                                .setCredentialsProvider(credentials)
+                                .setRefSpecs(new RefSpec("+refs/heads/*:refs/heads/*"))
+                                .call();
+                    } else {
+                        git.fetch().setCredentialsProvider(credentials).call();
+                        git.reset().setMode(ResetCommand.ResetType.HARD).setRef("refs/remotes/origin/" + branch).call();
+                    }
+                    log.info("BIZ_SUCCESS: op=analyzeGit, action=fetch-complete, repo={}", repoUrl);
+                    return git;
+                }
+                log.info("BIZ_INFO: op=analyzeGit, action=remote-changed, repo={}, origin={}", repoUrl, originUrl);
+                git.close();
+            } catch (GitAPIException e) {
+                git.close();
+                throw e;
+            } catch (IOException e) {
+                if (git != null) {
+                    git.close();
+                }
+                log.warn("BIZ_WARN: op=analyzeGit, action=open-local-error, path={}", directory, e);
             }
         }
+
+        FileUtils.deleteDirectory(directory);
+        log.debug("BIZ_DEBUG: op=analyzeGit, action=cleanup, path={}", directory);
+
+        log.info("BIZ_INFO: op=analyzeGit, action=cloning, repo={}, bare={}", repoUrl, bare);
+        Git git = Git.cloneRepository()
+                .setURI(repoUrl)
+                .setDirectory(directory)
+                .setBare(bare)
+                .setCredentialsProvider(credentials)
+                .call();
+        log.info("BIZ_SUCCESS: op=analyzeGit, action=clone-complete, repo={}", repoUrl);
+        return git;
     }
 
-    private boolean isDocumentFile(String fileName) {
-        String[] supportedExtensions = {
-                ".txt", ".md", ".java", ".xml", ".json", ".yml", ".yaml",
-                ".properties", ".sql", ".js", ".ts", ".html", ".css",
-                ".py", ".cpp", ".c", ".h", ".go", ".rs", ".kt", ".scala",
-                ".doc", ".docx", ".pdf", ".rtf"
-        };        
-        for (String ext : supportedExtensions) {
-            if (fileName.endsWith(ext)) {
-                return true;
+    /**
+     * 全量导入：遍历指定提交的目录树中的所有文档文件
+     */
+    private void ingestTree(IngestionPipeline.Session session, Repository repository, ObjectId commitId,
+                            String repoProjectName) throws IOException {
+        try (RevWalk revWalk = new RevWalk(repository);
+             TreeWalk treeWalk = new TreeWalk(repository)) {
+            treeWalk.addTree(revWalk.parseCommit(commitId).getTree());
+            treeWalk.setRecursive(true);
+            while (treeWalk.next()) {
+                submitIfDocument(session, repository, treeWalk.getObjectReader(), treeWalk.getPathString(),
+                        treeWalk.getObjectId(0), treeWalk.getFileMode(0), repoProjectName);
             }
         }
-        return false;
+    }
+
+    /**
+     * 增量导入：只处理两次提交之间新增、修改、重命名和删除的文件
+     *
+     * <p>变更文件的旧文本块先按路径删除，再重新导入新内容，因此重复执行同一段差异是幂等的。</p>
+     *
+     * @return 被删除的文件数
+     */
+    private int ingestChangedFiles(IngestionPipeline.Session session, Repository repository,
+                                   ObjectId fromCommit, ObjectId toCommit, String repoProjectName) throws IOException {
+        Set<String> stalePaths = new LinkedHashSet<>();
+        Map<String, DiffEntry> changedEntries = new LinkedHashMap<>();
+        int deletedFileCount = 0;
+
+        try (RevWalk revWalk = new RevWalk(repository);
+             DiffFormatter diffFormatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+            diffFormatter.setRepository(repository);
+            diffFormatter.setDetectRenames(true);
+            List<DiffEntry> entries = diffFormatter.scan(
+                    revWalk.parseCommit(fromCommit).getTree(),
+                    revWalk.parseCommit(toCommit).getTree());
+
+            for (DiffEntry entry : entries) {
+                switch (entry.getChangeType()) {
+                    case ADD, COPY -> changedEntries.put(entry.getNewPath(), entry);
+                    case MODIFY -> {
+                        stalePaths.add(entry.getOldPath());
+                        changedEntries.put(entry.getNewPath(), entry);
+                    }
+                    case RENAME -> {
+                        stalePaths.add(entry.getOldPath());
+                        changedEntries.put(entry.getNewPath(), entry);
+                        deletedFileCount++;
+                    }
+                    case DELETE -> {
+                        stalePaths.add(entry.getOldPath());
+                        deletedFileCount++;
+                    }
+                }
+            }
+            log.info("BIZ_INFO: op=analyzeGit, action=diff, project={}, entries={}, changed={}, stale={}",
+                    repoProjectName, entries.size(), changedEntries.size(), stalePaths.size());
+        }
+
+        // 新增文件也按路径清理一次，保证上次部分失败后的重试不会产生重复文本块
+        stalePaths.addAll(changedEntries.keySet());
+        deleteChunksByPath(repoProjectName, new ArrayList<>(stalePaths));
+
+        try (ObjectReader reader = repository.newObjectReader()) {
+            for (DiffEntry entry : changedEntries.values()) {
+                submitIfDocument(session, repository, reader, entry.getNewPath(),
+                        entry.getNewId().toObjectId(), entry.getNewMode(), repoProjectName);
+            }
+        }
+        return deletedFileCount;
+    }
+
+    private void submitIfDocument(IngestionPipeline.Session session, Repository repository, ObjectReader reader,
+                                  String relativePath, ObjectId blobId, FileMode mode,
+                                  String repoProjectName) throws IOException {
+        if (relativePath.contains(".git")) {
+            return;
+        }
+        if (!documentReaderRegistry.isSupported(relativePath)) {
+            return;
+        }
+        // 跳过符号链接与子模块
+        if (mode.getObjectType() != Constants.OBJ_BLOB || FileMode.SYMLINK.equals(mode.getBits())) {
+            return;
+        }
+        long size = reader.getObjectSize(blobId, Constants.OBJ_BLOB);
+        if (size == 0) {
+            return;
+        }
+
+        Resource resource = repository.isBare()
+                ? new GitBlobResource(repository, blobId, relativePath, size)
+                : new PathResource(repository.getWorkTree().toPath().resolve(relativePath));
+        log.debug("BIZ_PROCESS: op=analyzeGit, action=submit-file, project={}, file={}, size={}B",
+                repoProjectName, relativePath, size);
+        try {
+            // 队列已满时在此阻塞，遍历速度自动适配下游处理能力
+            session.submit(new IngestionFile(relativePath, resource));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Git仓库文件遍历被中断");
+        }
+    }
+
+    private void deleteChunksByPath(String ragTag, List<String> paths) {
+        FilterExpressionBuilder builder = new FilterExpressionBuilder();
+        for (int from = 0; from < paths.size(); from += DELETE_BATCH_SIZE) {
+            List<Object> batch = new ArrayList<>(paths.subList(from, Math.min(from + DELETE_BATCH_SIZE, paths.size())));
+            pgVectorStore.delete(builder.and(builder.eq("knowledge", ragTag), builder.in("path", batch)).build());
+        }
+        log.debug("BIZ_DEBUG: op=analyzeGit, action=delete-chunks, tag={}, paths={}", ragTag, paths.size());
+    }
+
+    private void deleteStaleGitChunks(String ragTag, String headCommit) {
+        FilterExpressionBuilder builder = new FilterExpressionBuilder();
+        pgVectorStore.delete(builder.and(
+                builder.and(builder.eq("knowledge", ragTag), builder.eq(ORIGIN_KEY, ORIGIN_GIT)),
+                builder.ne(REVISION_KEY, headCommit)).build());
+        log.info("BIZ_INFO: op=analyzeGit, action=delete-stale-chunks, tag={}, keep={}", ragTag, headCommit);
+    }
+
+    private String getLastIngestedCommit(String ragTag) {
+        try {
+            RMap<String, String> commits = redissonClient.getMap(GIT_COMMIT_KEY, StringCodec.INSTANCE);
+            return commits.get(ragTag);
+        } catch (Exception e) {
+            log.error("BIZ_ERROR: op=getLastCommit, tag={}, key={}", ragTag, GIT_COMMIT_KEY, e);
+            throw SystemException.redisError("查询仓库同步记录", GIT_COMMIT_KEY, e);
+        }
+    }
+
+    private void recordIngestedCommit(String ragTag, String commit) {
+        try {
+            RMap<String, String> commits = redissonClient.getMap(GIT_COMMIT_KEY, StringCodec.INSTANCE);
+            commits.fastPut(ragTag, commit);
+            log.info("BIZ_INFO: op=recordCommit, tag={}, commit={}", ragTag, commit);
+        } catch (Exception e) {
+            log.error("BIZ_ERROR: op=recordCommit, tag={}, key={}", ragTag, GIT_COMMIT_KEY, e);
+            throw SystemException.redisError("记录仓库同步提交", GIT_COMMIT_KEY, e);
+        }
+    }
+
+    /**
+     * Git导入请求的标识，凭据只以摘要形式参与，不保存明文
+     */
+    private static String gitRequestId(GitRepositoryRequest request) {
+        return Hashing.sha256().newHasher()
+                .putString(Objects.toString(request.getRepoUrl(), ""), StandardCharsets.UTF_8).putByte((byte) 0)
+                .putBoolean(request.isFullSync())
+                .putString(Objects.toString(request.getUserName(), ""), StandardCharsets.UTF_8).putByte((byte) 0)
+                .putString(Objects.toString(request.getToken(), ""), StandardCharsets.UTF_8)
+                .hash()
+                .toString();
+    }
+
+    private void forgetIngestedCommit(String ragTag) {
+        try {
+            RMap<String, String> commits = redissonClient.getMap(GIT_COMMIT_KEY, StringCodec.INSTANCE);
+            commits.fastRemove(ragTag);
+            log.info("BIZ_INFO: op=forgetCommit, tag={}", ragTag);
+        } catch (Exception e) {
+            log.error("BIZ_ERROR: op=forgetCommit, tag={}, key={}", ragTag, GIT_COMMIT_KEY, e);
+            throw SystemException.redisError("清除仓库同步提交", GIT_COMMIT_KEY, e);
+        }
     }
 
     private String extractProjectName(String repoUrl) {
@@ -317,16 +624,14 @@ public class RagServiceImpl implements IRagService {
 
     private void updateRagTagList(String ragTag) {
         try {
-            RSet<String> elements = redissonClient.getSet("ai:rag:tags", StringCodec.INSTANCE);
-            if (!elements.contains(ragTag)) {
-                elements.add(ragTag);
+            if (registryCache.add(RegistryCache.RAG_TAGS_KEY, ragTag)) {
                 log.info("BIZ_INFO: op=updateTag, action=add, tag={}", ragTag);
             } else {
                 log.info("BIZ_INFO: op=updateTag, action=exists, tag={}", ragTag);
             }
         } catch (Exception e) {
-            log.error("BIZ_ERROR: op=updateTag, tag={}, key=ai:rag:tags", ragTag, e);
-            throw SystemException.redisError("添加标签到列表", "ai:rag:tags", e);
+            log.error("BIZ_ERROR: op=updateTag, tag={}, key={}", ragTag, RegistryCache.RAG_TAGS_KEY, e);
+            throw SystemException.redisError("添加标签到列表", RegistryCache.RAG_TAGS_KEY, e);
         }
     }
 }
@@ -0,0 +1,327 @@
+package com.lcx.trigger.vector;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * 内存HNSW图索引（余弦距离）
+ *
+ * <p>向量归一化后连续存放在堆外的 {@link FloatBuffer} 中，不占用堆内存也不增加GC扫描负担；
+ * 图结构（每层的邻居列表）保存在堆内。构建参数 m、efConstruction 的含义与pgvector的HNSW索引相同。</p>
+ *
+ * <p>使用方式：先通过 {@link #append} 写入全部向量，再调用 {@link #build} 建图。
+ * 建图只能在单个线程中进行；建图完成后 {@link #search} 可被多个线程并发调用。</p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+final class HnswGraph {
+
+    private static final Comparator<Candidate> NEAREST_FIRST = Comparator.comparingDouble(Candidate::distance);
+    private static final Comparator<Candidate> FARTHEST_FIRST = NEAREST_FIRST.reversed();
+
+    private final int dimensions;
+    private final int m;
+    private final int efConstruction;
+    private final double levelMultiplier;
+    private final Random random = new Random(42);
+
+    private FloatBuffer vectors;
+    private int[] levels;
+    /**
+     * neighbors[节点][层] 为该层的邻居列表，下标0存放邻居数
+     */
+    private int[][][] neighbors;
+    private int size;
+    private int indexed;
+    private int entryPoint = -1;
+    private int topLevel = -1;
+
+    HnswGraph(int dimensions, int m, int efConstruction, int initialCapacity) {
+        this.dimensions = dimensions;
+        this.m = Math.max(2, m);
+        this.efConstruction = Math.max(this.m, efConstruction);
+        this.levelMultiplier = 1.0 / Math.log(this.m);
+        int capacity = Math.max(16, initialCapacity);
+        this.vectors = ByteBuffer.allocateDirect(capacity * dimensions * Float.BYTES)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        this.levels = new int[capacity];
+        this.neighbors = new int[capacity][][];
+    }
+
+    /**
+     * 写入一个向量（归一化后存储），返回其节点编号
+     */
+    int append(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException("向量维度不匹配: expected=" + dimensions + ", actual=" + vector.length);
+        }
+        ensureCapacity(size + 1);
+        float[] normalized = normalize(vector);
+        int offset = size * dimensions;
+        for (int i = 0; i < dimensions; i++) {
+            vectors.put(offset + i, normalized[i]);
+        }
+        return size++;
+    }
+
+    /**
+     * 将尚未建图的向量逐个插入图中
+     */
+    void build() {
+        for (; indexed < size; indexed++) {
+            insert(indexed);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    long offHeapBytes() {
+        return (long) vectors.capacity() * Float.BYTES;
+    }
+
+    /**
+     * 检索与查询向量最相近的 k 个节点
+     *
+     * @param query 查询向量，无需归一化
+     * @param k     返回的节点数
+     * @param ef    候选列表大小，越大召回率越高，实际生效值不小于 k
+     * @return 按距离升序排列的节点
+     */
+    List<Candidate> search(float[] query, int k, int ef) {
+        if (entryPoint < 0 || k <= 0) {
+            return List.of();
+        }
+        float[] normalized = normalize(query);
+        int current = entryPoint;
+        float currentDistance = distance(normalized, current);
+        for (int level = topLevel; level > 0; level--) {
+            Candidate nearest = greedy(normalized, current, currentDistance, level);
+            current = nearest.node();
+            currentDistance = nearest.distance();
+        }
+        List<Candidate> candidates = searchLayer(normalized, current, currentDistance, Math.max(ef, k), 0);
+        return candidates.size() > k ? candidates.subList(0, k) : candidates;
+    }
+
+    private void insert(int node) {
+        int level = (int) (-Math.log(1.0 - random.nextDouble()) * levelMultiplier);
+        levels[node] = level;
+        neighbors[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            neighbors[node][l] = new int[maxNeighbors(l) + 1];
+        }
+        if (entryPoint < 0) {
+            entryPoint = node;
+            topLevel = level;
+            return;
+        }
+
+        float[] vector = vector(node);
+        int current = entryPoint;
+        float currentDistance = distance(vector, current);
+        for (int l = topLevel; l > level; l--) {
+            Candidate nearest = greedy(vector, current, currentDistance, l);
+            current = nearest.node();
+            currentDistance = nearest.distance();
+        }
+        for (int l = Math.min(level, topLevel); l >= 0; l--) {
+            List<Candidate> candidates = searchLayer(vector, current, currentDistance, efConstruction, l);
+            List<Candidate> selected = selectNeighbors(candidates, m);
+            int[] list = neighbors[node][l];
+            for (Candidate candidate : selected) {
+                list[++list[0]] = candidate.node();
+            }
+            for (Candidate candidate : selected) {
+                connect(candidate.node(), node, candidate.distance(), l);
+            }
+            current = candidates.get(0).node();
+            currentDistance = candidates.get(0).distance();
+        }
+        if (level > topLevel) {
+            entryPoint = node;
+            topLevel = level;
+        }
+    }
+
+    /**
+     * 将 node 加入 target 在该层的邻居列表，超出上限时重新选择邻居
+     */
+    private void connect(int target, int node, float distance, int level) {
+        int[] list = neighbors[target][level];
+        int max = maxNeighbors(level);
+        if (list[0] < max) {
+            list[++list[0]] = node;
+            return;
+        }
+        float[] base = vector(target);
+        List<Candidate> candidates = new ArrayList<>(max + 1);
+        candidates.add(new Candidate(node, distance));
+        for (int i = 1; i <= list[0]; i++) {
+            candidates.add(new Candidate(list[i], distance(base, list[i])));
+        }
+        candidates.sort(NEAREST_FIRST);
+        List<Candidate> selected = selectNeighbors(candidates, max);
+        list[0] = 0;
+        for (Candidate candidate : selected) {
+            list[++list[0]] = candidate.node();
+        }
+    }
+
+    /**
+     * 启发式邻居选择：优先保留彼此不相近的候选，使图在簇之间也保持连通；数量不足时按距离补齐
+     *
+     * @param candidates 按距离升序排列的候选
+     */
+    private List<Candidate> selectNeighbors(List<Candidate> candidates, int max) {
+        if (candidates.size() <= max) {
+            return candidates;
+        }
+        List<Candidate> selected = new ArrayList<>(max);
+        List<Candidate> pruned = new ArrayList<>();
+        for (Candidate candidate : candidates) {
+            if (selected.size() >= max) {
+                break;
+            }
+            float[] vector = vector(candidate.node());
+            boolean diverse = true;
+            for (Candidate chosen : selected) {
+                if (distance(vector, chosen.node()) < candidate.distance()) {
+                    diverse = false;
+                    break;
+                }
+            }
+            (diverse ? selected : pruned).add(candidate);
+        }
+        for (int i = 0; i < pruned.size() && selected.size() < max; i++) {
+            selected.add(pruned.get(i));
+        }
+        return selected;
+    }
+
+    private Candidate greedy(float[] query, int start, float startDistance, int level) {
+        int current = start;
+        float currentDistance = startDistance;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            int[] list = neighbors[current][level];
+            for (int i = 1; i <= list[0]; i++) {
+                float distance = distance(query, list[i]);
+                if (distance < currentDistance) {
+                    current = list[i];
+                    currentDistance = distance;
+                    changed = true;
+                }
+            }
+        }
+        return new Candidate(current, currentDistance);
+    }
+
+    /**
+     * 在指定层上做束搜索，返回按距离升序排列的最多 ef 个节点
+     */
+    private List<Candidate> searchLayer(float[] query, int entry, float entryDistance, int ef, int level) {
+        BitSet visited = new BitSet(size);
+        visited.set(entry);
+        PriorityQueue<Candidate> candidates = new PriorityQueue<>(NEAREST_FIRST);
+        PriorityQueue<Candidate> results = new PriorityQueue<>(FARTHEST_FIRST);
+        Candidate start = new Candidate(entry, entryDistance);
+        candidates.add(start);
+        results.add(start);
+        while (!candidates.isEmpty()) {
+            Candidate current = candidates.poll();
+            if (current.distance() > results.peek().distance() && results.size() >= ef) {
+                break;
+            }
+            int[] list = neighbors[current.node()][level];
+            for (int i = 1; i <= list[0]; i++) {
+                int neighbor = list[i];
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float distance = distance(query, neighbor);
+                if (results.size() < ef || distance < results.peek().distance()) {
+                    Candidate candidate = new Candidate(neighbor, distance);
+                    candidates.add(candidate);
+                    results.add(candidate);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+        List<Candidate> sorted = new ArrayList<>(results);
+        sorted.sort(NEAREST_FIRST);
+        return sorted;
+    }
+
+    /**
+     * 余弦距离，向量均已归一化，等于 1 - 内积
+     */
+    private float distance(float[] query, int node) {
+        int offset = node * dimensions;
+        float dot = 0f;
+        for (int i = 0; i < dimensions; i++) {
+            dot += query[i] * vectors.get(offset + i);
+        }
+        return 1f - dot;
+    }
+
+    private float[] vector(int node) {
+        float[] vector = new float[dimensions];
+        vectors.get(node * dimensions, vector);
+        return vector;
+    }
+
+    private int maxNeighbors(int level) {
+        return level == 0 ? m * 2 : m;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= levels.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, levels.length * 2);
+        FloatBuffer grown = ByteBuffer.allocateDirect(newCapacity * dimensions * Float.BYTES)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+        grown.put(0, vectors, 0, size * dimensions);
+        vectors = grown;
+        levels = Arrays.copyOf(levels, newCapacity);
+        neighbors = Arrays.copyOf(neighbors, newCapacity);
+    }
+
+    private static float[] normalize(float[] vector) {
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float[] normalized = vector.clone();
+        if (norm > 0) {
+            float scale = (float) (1.0 / Math.sqrt(norm));
+            for (int i = 0; i < normalized.length; i++) {
+                normalized[i] *= scale;
+            }
+        }
+        return normalized;
+    }
+
+    /**
+     * 检索候选：节点编号与到查询向量的余弦距离
+     */
+    record Candidate(int node, float distance) {
+    }
+
+}
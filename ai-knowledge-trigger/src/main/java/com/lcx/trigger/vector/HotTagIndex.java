@@ -0,0 +1,268 @@
+package com.lcx.trigger.vector;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lcx.trigger.chat.AnswerCache;
+import com.pgvector.PGvector;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 热点标签内存索引
+ *
+ * <p>为配置的少数热点标签在应用内存中建立HNSW索引（{@link HnswGraph}），检索这些标签时不访问数据库，
+ * 其余标签仍由 {@link KnowledgeVectorSearch} 查询pgvector：</p>
+ * <ul>
+ *   <li>载入：应用启动后在后台线程中读取标签的全部文本块并建图，建图期间该标签继续走数据库检索</li>
+ *   <li>同步：本节点导入完成时立即重新载入；其他节点的导入通过Redis中的标签版本号
+ *       （与回答缓存共用）在下次检查时发现。新索引建好后整体替换旧索引，检索不会看到建到一半的图</li>
+ *   <li>限制：只支持余弦距离；文本块数超过 rag.vector.hot.max-chunks 的标签不载入</li>
+ * </ul>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Slf4j
+@Component
+public class HotTagIndex {
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final AnswerCache answerCache;
+    private final ObjectMapper objectMapper;
+    private final VectorSearchProperties.HotProperties properties;
+    private final String qualifiedTable;
+    private final boolean cosine;
+    private final Set<String> hotTags;
+
+    /**
+     * 已载入的标签索引，整体替换以保证检索读到的始终是完整的图
+     */
+    private final Map<String, TagIndex> indexes = new ConcurrentHashMap<>();
+
+    /**
+     * 载入与版本检查共用一个线程，同一时刻最多只有一个标签在建图
+     */
+    private final ScheduledExecutorService loader;
+
+    public HotTagIndex(JdbcTemplate jdbcTemplate,
+                       PlatformTransactionManager transactionManager,
+                       AnswerCache answerCache,
+                       ObjectMapper objectMapper,
+                       VectorSearchProperties vectorSearchProperties,
+                       @Value("${spring.ai.vectorstore.pgvector.schema-name:public}") String schemaName,
+                       @Value("${spring.ai.vectorstore.pgvector.table-name:vector_store}") String tableName,
+                       @Value("${spring.ai.vectorstore.pgvector.distance-type:COSINE_DISTANCE}") String distanceType) {
+        // 逐批读取文本块，避免整个标签的结果集一次载入堆内存（需要在事务中执行）
+        this.jdbcTemplate = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.answerCache = answerCache;
+        this.objectMapper = objectMapper;
+        this.properties = vectorSearchProperties.getHot();
+        this.qualifiedTable = schemaName + "." + tableName;
+        this.cosine = "COSINE_DISTANCE".equals(distanceType.toUpperCase(Locale.ROOT));
+        this.hotTags = properties.getTags().stream()
+                .filter(tag -> tag != null && !tag.isBlank())
+                .map(String::strip)
+                .collect(Collectors.toUnmodifiableSet());
+        this.loader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "vector-hot-index");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * 标签的内存索引是否已可用
+     */
+    public boolean contains(String ragTag) {
+        return indexes.containsKey(ragTag);
+    }
+
+    /**
+     * 在标签的内存索引中检索
+     *
+     * @param ragTag    已载入的知识库标签
+     * @param embedding 问题向量
+     * @param topK      返回的文档数
+     * @param efSearch  候选列表大小
+     * @param threshold 相似度阈值
+     * @return 按相似度降序排列的文本块，score为 1 - 余弦距离；标签未载入时返回空列表
+     */
+    public List<Document> search(String ragTag, float[] embedding, int topK, int efSearch, double threshold) {
+        TagIndex index = indexes.get(ragTag);
+        if (index == null) {
+            return List.of();
+        }
+        List<Document> documents = new ArrayList<>(topK);
+        for (HnswGraph.Candidate candidate : index.graph().search(embedding, topK, efSearch)) {
+            double score = 1.0 - candidate.distance();
+            if (threshold > 0 && score < threshold) {
+                continue;
+            }
+            Map<String, Object> metadata = new HashMap<>(index.metadata().get(candidate.node()));
+            metadata.put("distance", (double) candidate.distance());
+            documents.add(Document.builder()
+                    .id(index.ids().get(candidate.node()))
+                    .text(index.texts().get(candidate.node()))
+                    .metadata(metadata)
+                    .score(score)
+                    .build());
+        }
+        return documents;
+    }
+
+    /**
+     * 导入完成后重新载入标签，非热点标签忽略
+     *
+     * @param ragTag 知识库标签
+     */
+    public void refresh(String ragTag) {
+        if (!properties.isEnabled() || !cosine || ragTag == null || !hotTags.contains(ragTag.strip())) {
+            return;
+        }
+        String tag = ragTag.strip();
+        loader.execute(() -> load(tag, answerCache.version(tag)));
+    }
+
+    /**
+     * 应用启动后开始载入热点标签并定期检查版本号
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!properties.isEnabled() || hotTags.isEmpty()) {
+            return;
+        }
+        if (!cosine) {
+            log.warn("BIZ_WARN: op=hotIndex, reason=unsupported-distance, table={}", qualifiedTable);
+            return;
+        }
+        long interval = Math.max(1000L, properties.getSyncInterval().toMillis());
+        loader.scheduleWithFixedDelay(this::sync, 0L, interval, TimeUnit.MILLISECONDS);
+        log.info("BIZ_INFO: op=hotIndex, action=start, tags={}, syncIntervalMs={}", hotTags, interval);
+    }
+
+    /**
+     * 载入尚未载入的标签，并重新载入版本号已变化的标签
+     */
+    private void sync() {
+        for (String tag : hotTags) {
+            try {
+                Long version = answerCache.version(tag);
+                TagIndex current = indexes.get(tag);
+                // Redis不可用时无法判断是否过期，保留已有索引
+                if (current == null || (version != null && !version.equals(current.version()))) {
+                    load(tag, version);
+                }
+            } catch (Exception e) {
+                log.warn("BIZ_WARN: op=hotIndex, action=sync-error, ragTag={}", tag, e);
+            }
+        }
+    }
+
+    private void load(String ragTag, Long version) {
+        long startTime = System.currentTimeMillis();
+        try {
+            TagIndex index = transactionTemplate.execute(status -> read(ragTag, version));
+            if (index == null) {
+                return;
+            }
+            long readMs = System.currentTimeMillis() - startTime;
+            // 建图只访问内存，在事务之外进行，不长时间占用数据库连接
+            index.graph().build();
+            if (index.graph().size() == 0) {
+                indexes.remove(ragTag);
+            } else {
+                indexes.put(ragTag, index);
+            }
+            log.info("BIZ_INFO: op=hotIndex, action=loaded, ragTag={}, chunks={}, offHeapBytes={}, version={}, "
+                            + "readMs={}, costMs={}",
+                    ragTag, index.graph().size(), index.graph().offHeapBytes(), version, readMs,
+                    System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.warn("BIZ_WARN: op=hotIndex, action=load-error, ragTag={}, table={}", ragTag, qualifiedTable, e);
+        }
+    }
+
+    /**
+     * 读取标签的全部文本块，超出上限时返回null
+     */
+    private TagIndex read(String ragTag, Long version) {
+        int maxChunks = properties.getMaxChunks();
+        String sql = "SELECT id, content, metadata::text AS metadata, embedding::text AS embedding FROM "
+                + qualifiedTable + " WHERE metadata->>'knowledge' = ? LIMIT ?";
+        List<String> ids = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        List<Map<String, Object>> metadata = new ArrayList<>();
+        HnswGraph[] graph = new HnswGraph[1];
+        jdbcTemplate.query(sql, rs -> {
+            float[] embedding = new PGvector(rs.getString("embedding")).toArray();
+            if (graph[0] == null) {
+                graph[0] = new HnswGraph(embedding.length, properties.getM(), properties.getEfConstruction(),
+                        Math.min(maxChunks, 4096));
+            }
+            graph[0].append(embedding);
+            ids.add(rs.getString("id"));
+            texts.add(rs.getString("content"));
+            metadata.add(readMetadata(rs.getString("metadata")));
+        }, ragTag, maxChunks + 1);
+
+        if (ids.size() > maxChunks) {
+            indexes.remove(ragTag);
+            log.warn("BIZ_WARN: op=hotIndex, reason=too-many-chunks, ragTag={}, maxChunks={}", ragTag, maxChunks);
+            return null;
+        }
+        HnswGraph loaded = graph[0] != null ? graph[0]
+                : new HnswGraph(1, properties.getM(), properties.getEfConstruction(), 0);
+        return new TagIndex(loaded, ids, texts, metadata, version);
+    }
+
+    private Map<String, Object> readMetadata(String json) {
+        try {
+            return json != null ? objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {})
+                    : new HashMap<>();
+        } catch (Exception e) {
+            log.warn("BIZ_WARN: op=hotIndex, action=metadata-parse-error", e);
+            return new HashMap<>();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        loader.shutdownNow();
+    }
+
+    /**
+     * 单个标签的内存索引，节点编号即列表下标
+     */
+    private record TagIndex(HnswGraph graph, List<String> ids, List<String> texts,
+                            List<Map<String, Object>> metadata, Long version) {
+    }
+
+}
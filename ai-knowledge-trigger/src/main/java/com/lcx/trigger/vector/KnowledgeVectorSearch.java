@@ -0,0 +1,519 @@
+package com.lcx.trigger.vector;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.lcx.api.dto.RagSearchOptions;
+import com.lcx.api.exception.SystemException;
+import com.lcx.trigger.metrics.RagMetrics;
+import com.lcx.trigger.registry.RegistryCache;
+import com.pgvector.PGvector;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.vectorstore.SearchRequest;
+import org.springframework.ai.vectorstore.filter.FilterExpressionBuilder;
+import org.springframework.ai.vectorstore.pgvector.PgVectorStore;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+/**
+ * 按知识库标签分区的向量检索
+ *
+ * <p>向量库只有一张 vector_store 表和一个全表HNSW索引，按标签过滤时PostgreSQL先在全表索引中
+ * 取近邻再按元数据过滤，小标签的召回率很低，耗时也随全部数据量增长。本组件为每个标签维护独立的索引分区：</p>
+ * <ul>
+ *   <li>标签索引：在 metadata->>'knowledge' 上建立B树索引，所有标签共用</li>
+ *   <li>分区索引：文本块数达到 rag.vector.partition-min-rows 的标签单独建立
+ *       带 WHERE knowledge = 标签 条件的部分HNSW索引</li>
+ *   <li>检索：已建立分区索引的标签以与索引相同的条件直接查询表，PostgreSQL据此选用该标签的分区索引；
+ *       其余标签先在物化的CTE中经标签索引取出该标签的全部文本块，再精确计算距离排序，
+ *       避免规划器改用全表HNSW索引后再过滤而丢失结果</li>
+ * </ul>
+ *
+ * <p>索引使用 CREATE INDEX CONCURRENTLY 建立，不阻塞写入。导入任务完成后为对应标签补建，
+ * 应用启动后在后台为已有标签补建。并发建立失败会留下无效（indisvalid = false）的索引，
+ * 建立前后都会检查，无效索引先删除再重建，确认有效后才按分区检索；
+ * 同一索引的建立通过Redisson锁在多个节点之间互斥。其他节点建立的分区索引在本节点首次检索该标签时
+ * 从 pg_index 确认，尚无有效索引的标签最多每 {@link #PARTITION_RECHECK} 重新确认一次。</p>
+ *
+ * <p>检索参数（topK、hnsw.ef_search、相似度阈值）取全局配置 rag.vector，可按请求覆盖。
+ * 同时检索多个标签时，各标签的分区在有界线程池上并发检索后按相似度合并。
+ * 已载入 {@link HotTagIndex} 的热点标签在应用内存中检索，不访问数据库。
+ * ef_search 通过 SET LOCAL 只对本次检索所在的只读事务生效，不影响连接池中的其他连接。</p>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Slf4j
+@Component
+public class KnowledgeVectorSearch {
+
+    private static final Pattern IDENTIFIER = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+    private static final String INDEX_LOCK_PREFIX = "ai:rag:vector:index:lock:";
+
+    /**
+     * 尚无有效分区索引的标签重新查询 pg_index 的间隔
+     */
+    private static final Duration PARTITION_RECHECK = Duration.ofSeconds(30);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PgVectorStore pgVectorStore;
+    private final EmbeddingModel embeddingModel;
+    private final RedissonClient redissonClient;
+    private final ObjectMapper objectMapper;
+    private final VectorSearchProperties properties;
+    private final HotTagIndex hotTagIndex;
+    private final RagMetrics ragMetrics;
+
+    private final String schemaName;
+    private final String tableName;
+    private final String qualifiedTable;
+    private final String distanceOperator;
+    private final String operatorClass;
+
+    /**
+     * 已确认分区索引有效的标签
+     */
+    private final Set<String> partitionedTags = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 最近确认过尚无有效分区索引的标签，过期后检索时重新确认
+     */
+    private final Cache<String, Boolean> unpartitionedTags = CacheBuilder.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(PARTITION_RECHECK)
+            .build();
+
+    /**
+     * 多标签并发检索线程池，队列满时由调用线程执行，退化为顺序检索而不是拒绝请求
+     */
+    private final ThreadPoolExecutor fanOutExecutor;
+
+    public KnowledgeVectorSearch(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 PgVectorStore pgVectorStore,
+                                 EmbeddingModel embeddingModel,
+                                 RedissonClient redissonClient,
+                                 ObjectMapper objectMapper,
+                                 VectorSearchProperties properties,
+                                 HotTagIndex hotTagIndex,
+                                 RagMetrics ragMetrics,
+                                 @Value("${spring.ai.vectorstore.pgvector.schema-name:public}") String schemaName,
+                                 @Value("${spring.ai.vectorstore.pgvector.table-name:vector_store}") String tableName,
+                                 @Value("${spring.ai.vectorstore.pgvector.distance-type:COSINE_DISTANCE}") String distanceType) {
+        if (!IDENTIFIER.matcher(schemaName).matches() || !IDENTIFIER.matcher(tableName).matches()) {
+            throw new IllegalArgumentException("向量表名称不合法: " + schemaName + "." + tableName);
+        }
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.pgVectorStore = pgVectorStore;
+        this.embeddingModel = embeddingModel;
+        this.redissonClient = redissonClient;
+        this.objectMapper = objectMapper;
+        this.properties = properties;
+        this.hotTagIndex = hotTagIndex;
+        this.ragMetrics = ragMetrics;
+        this.schemaName = schemaName;
+        this.tableName = tableName;
+        this.qualifiedTable = schemaName + "." + tableName;
+        int workers = Math.max(1, properties.getFanOutWorkers());
+        AtomicInteger threadCounter = new AtomicInteger();
+        this.fanOutExecutor = new ThreadPoolExecutor(workers, workers, 60L, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getFanOutQueueCapacity())),
+                runnable -> new Thread(runnable, "vector-fan-out-" + threadCounter.incrementAndGet()),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.fanOutExecutor.allowCoreThreadTimeOut(true);
+        switch (distanceType.toUpperCase(Locale.ROOT)) {
+            case "EUCLIDEAN_DISTANCE" -> {
+                this.distanceOperator = "<->";
+                this.operatorClass = "vector_l2_ops";
+            }
+            case "NEGATIVE_INNER_PRODUCT" -> {
+                this.distanceOperator = "<#>";
+                this.operatorClass = "vector_ip_ops";
+            }
+            default -> {
+                this.distanceOperator = "<=>";
+                this.operatorClass = "vector_cosine_ops";
+            }
+        }
+    }
+
+    /**
+     * 检索与问题最相近的文本块
+     *
+     * <p>启用分区检索时直接查询各标签的分区：单个标签在调用线程上检索，多个标签在有界线程池上并发检索，
+     * 结果按相似度合并后取前 topK 个，总耗时接近单个标签的检索耗时。未启用分区检索或未指定标签时，
+     * 使用向量库的元数据过滤（多个标签为 knowledge in [...]）一次检索。</p>
+     *
+     * @param ragTags 知识库标签，为空时检索全部文档
+     * @param query   问题文本
+     * @param options 按请求覆盖的检索参数，为null时全部使用全局配置
+     * @return 按相似度降序排列的文本块，score为 1 - 距离
+     */
+    public List<Document> search(List<String> ragTags, String query, RagSearchOptions options) {
+        int topK = options != null && options.getTopK() != null ? options.getTopK() : properties.getTopK();
+        int efSearch = options != null && options.getEfSearch() != null ? options.getEfSearch() : properties.getEfSearch();
+        double threshold = options != null && options.getSimilarityThreshold() != null
+                ? options.getSimilarityThreshold() : properties.getSimilarityThreshold();
+        // HNSW最多返回 ef_search 个结果，候选列表不能小于 topK
+        int effectiveEf = Math.max(efSearch, topK);
+        List<String> tags = ragTags == null ? List.of() : ragTags.stream()
+                .filter(tag -> tag != null && !tag.isBlank())
+                .map(String::strip)
+                .distinct()
+                .toList();
+        // 已载入内存索引的热点标签在本地检索，其余标签查询数据库
+        List<String> hotTags = tags.stream().filter(hotTagIndex::contains).toList();
+        List<String> coldTags = hotTags.isEmpty() ? tags
+                : tags.stream().filter(tag -> !hotTags.contains(tag)).toList();
+        boolean partitioned = properties.isPartitioned() && !coldTags.isEmpty();
+
+        log.debug("BIZ_DEBUG: op=vectorSearch, ragTags={}, hotTags={}, partitioned={}, topK={}, efSearch={}, threshold={}",
+                tags, hotTags.size(), partitioned, topK, effectiveEf, threshold);
+        float[] embedding = null;
+        if (!hotTags.isEmpty() || partitioned) {
+            long embedStart = System.nanoTime();
+            embedding = embeddingModel.embed(query != null ? query : "");
+            ragMetrics.recordQueryEmbedding(tags, System.nanoTime() - embedStart);
+        }
+        long searchStart = System.nanoTime();
+        List<Document> hotResults = new ArrayList<>();
+        for (String tag : hotTags) {
+            hotResults.addAll(hotTagIndex.search(tag, embedding, topK, effectiveEf, threshold));
+        }
+        List<Document> results;
+        String path;
+        if (coldTags.isEmpty() && !hotTags.isEmpty()) {
+            results = merge(hotResults, topK);
+            path = "hot";
+        } else {
+            List<Document> coldResults = searchCold(coldTags, query, embedding, partitioned, topK, effectiveEf,
+                    threshold);
+            path = !hotTags.isEmpty() ? "mixed" : !partitioned ? "filter"
+                    : coldTags.size() == 1 ? "partition" : "fan-out";
+            if (hotResults.isEmpty()) {
+                results = coldResults;
+            } else {
+                hotResults.addAll(coldResults);
+                results = merge(hotResults, topK);
+            }
+        }
+        // 元数据过滤方式的问题嵌入在向量库内部完成，计入检索耗时
+        ragMetrics.recordVectorSearch(tags, path, System.nanoTime() - searchStart,
+                results != null ? results.size() : 0);
+        return results;
+    }
+
+    /**
+     * 检索未载入内存索引的标签：分区检索，或使用向量库的元数据过滤
+     */
+    private List<Document> searchCold(List<String> coldTags, String query, float[] embedding, boolean partitioned,
+                                      int topK, int effectiveEf, double threshold) {
+        if (partitioned) {
+            return coldTags.size() == 1
+                    ? withEfSearch(effectiveEf, () -> partitionSearch(coldTags.get(0), embedding, topK, threshold))
+                    : fanOut(coldTags, embedding, topK, effectiveEf, threshold);
+        }
+        return withEfSearch(effectiveEf, () -> {
+            SearchRequest.Builder builder = SearchRequest.builder()
+                    .query(query != null ? query : "")
+                    .topK(topK)
+                    .similarityThreshold(threshold);
+            if (coldTags.size() == 1) {
+                builder.filterExpression(new FilterExpressionBuilder().eq("knowledge", coldTags.get(0)).build());
+            } else if (!coldTags.isEmpty()) {
+                builder.filterExpression(new FilterExpressionBuilder().in("knowledge", coldTags.toArray()).build());
+            }
+            return pgVectorStore.similaritySearch(builder.build());
+        });
+    }
+
+    /**
+     * 在线程池上并发检索各标签的分区，按相似度合并结果
+     *
+     * <p>单个标签检索失败只记录日志，其余标签的结果照常返回；全部失败时抛出异常。</p>
+     */
+    private List<Document> fanOut(List<String> tags, float[] embedding, int topK, int efSearch, double threshold) {
+        long startTime = System.currentTimeMillis();
+        List<CompletableFuture<List<Document>>> futures = tags.stream()
+                .map(tag -> CompletableFuture.supplyAsync(
+                        () -> withEfSearch(efSearch, () -> partitionSearch(tag, embedding, topK, threshold)),
+                        fanOutExecutor))
+                .toList();
+
+        List<Document> merged = new ArrayList<>();
+        Exception lastError = null;
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                merged.addAll(futures.get(i).join());
+            } catch (Exception e) {
+                lastError = e;
+                log.warn("BIZ_WARN: op=fanOutSearch, action=tag-error, ragTag={}", tags.get(i), e);
+            }
+        }
+        if (merged.isEmpty() && lastError != null) {
+            throw SystemException.databaseError("多标签向量检索", qualifiedTable, lastError);
+        }
+        List<Document> results = merge(merged, topK);
+        log.info("BIZ_INFO: op=fanOutSearch, tags={}, candidates={}, docs={}, costMs={}",
+                tags.size(), merged.size(), results.size(), System.currentTimeMillis() - startTime);
+        return results;
+    }
+
+    /**
+     * 按相似度降序合并多个来源的结果，取前 topK 个
+     */
+    private static List<Document> merge(List<Document> documents, int topK) {
+        documents.sort(Comparator.comparingDouble((Document document) ->
+                document.getScore() != null ? document.getScore() : 0.0).reversed());
+        return documents.size() > topK ? List.copyOf(documents.subList(0, topK)) : documents;
+    }
+
+    /**
+     * 在只读事务中执行检索，hnsw.ef_search 通过 SET LOCAL 只对本事务生效
+     */
+    private List<Document> withEfSearch(int efSearch, Supplier<List<Document>> search) {
+        return transactionTemplate.execute(status -> {
+            // ef_search 为整数，直接拼接不存在注入风险；SET LOCAL 在事务结束时自动恢复
+            jdbcTemplate.execute("SET LOCAL hnsw.ef_search = " + efSearch);
+            return search.get();
+        });
+    }
+
+    /**
+     * 在指定标签的分区内检索
+     */
+    private List<Document> partitionSearch(String ragTag, float[] embedding, int topK, double threshold) {
+        String sql;
+        if (hasPartition(ragTag)) {
+            // 条件以字面量写入SQL（而非绑定参数），与部分索引的条件完全一致，PostgreSQL才会选用该分区索引；
+            // 相似度阈值在结果上过滤，不加入WHERE条件，以免影响索引的选用
+            sql = "SELECT id, content, metadata::text AS metadata, embedding " + distanceOperator + " ? AS distance"
+                    + " FROM " + qualifiedTable
+                    + " WHERE " + knowledgePredicate(ragTag)
+                    + " ORDER BY distance LIMIT ?";
+        } else {
+            // 没有有效的分区索引：物化的CTE不会被内联，ORDER BY无法下推到全表HNSW索引，
+            // 该标签的全部文本块经标签索引取出后精确计算距离，结果不受全表近邻截断的影响
+            sql = "WITH candidates AS MATERIALIZED ("
+                    + "SELECT id, content, metadata, embedding FROM " + qualifiedTable
+                    + " WHERE " + knowledgePredicate(ragTag) + ")"
+                    + " SELECT id, content, metadata::text AS metadata, embedding " + distanceOperator + " ? AS distance"
+                    + " FROM candidates ORDER BY distance LIMIT ?";
+        }
+        try {
+            List<Document> documents = jdbcTemplate.query(sql, (rs, rowNum) -> {
+                double distance = rs.getDouble("distance");
+                Map<String, Object> metadata = readMetadata(rs.getString("metadata"));
+                metadata.put("distance", distance);
+                return Document.builder()
+                        .id(rs.getString("id"))
+                        .text(rs.getString("content"))
+                        .metadata(metadata)
+                        .score(1.0 - distance)
+                        .build();
+            }, new PGvector(embedding), topK);
+            return threshold > 0
+                    ? documents.stream().filter(document -> document.getScore() >= threshold).toList()
+                    : documents;
+        } catch (Exception e) {
+            log.error("BIZ_ERROR: op=partitionSearch, ragTag={}, table={}", ragTag, qualifiedTable, e);
+            throw SystemException.databaseError("分区向量检索", qualifiedTable, e);
+        }
+    }
+
+    /**
+     * 标签是否已有有效的分区索引，本节点未确认过时查询 pg_index，索引可能由其他节点建立
+     */
+    private boolean hasPartition(String ragTag) {
+        if (partitionedTags.contains(ragTag)) {
+            return true;
+        }
+        if (!properties.isPartitioned() || unpartitionedTags.getIfPresent(ragTag) != null) {
+            return false;
+        }
+        try {
+            if (Boolean.TRUE.equals(isIndexValid(partitionIndexName(ragTag)))) {
+                partitionedTags.add(ragTag);
+                log.info("BIZ_INFO: op=partitionSearch, action=partition-found, ragTag={}", ragTag);
+                return true;
+            }
+        } catch (Exception e) {
+            log.debug("BIZ_DEBUG: op=partitionSearch, action=check-index-error, ragTag={}", ragTag, e);
+        }
+        unpartitionedTags.put(ragTag, Boolean.TRUE);
+        return false;
+    }
+
+    /**
+     * 确保标签的分区索引已建立且有效，标签文本块数不足阈值时只保留共用的标签索引
+     *
+     * <p>导入任务完成后调用。索引建立失败或无效时只记录日志，该标签继续精确检索，结果仍然正确。</p>
+     *
+     * @param ragTag 知识库标签
+     */
+    public void ensurePartition(String ragTag) {
+        if (!properties.isPartitioned() || ragTag == null || ragTag.isBlank()
+                || partitionedTags.contains(ragTag)) {
+            return;
+        }
+        try {
+            Long rows = jdbcTemplate.queryForObject(
+                    "SELECT count(*) FROM " + qualifiedTable + " WHERE " + knowledgePredicate(ragTag), Long.class);
+            if (rows == null || rows < properties.getPartitionMinRows()) {
+                log.info("BIZ_INFO: op=ensurePartition, action=skip, ragTag={}, rows={}", ragTag, rows);
+                return;
+            }
+            long startTime = System.currentTimeMillis();
+            if (!ensureValidIndex(partitionIndexName(ragTag), "USING hnsw (embedding " + operatorClass + ")"
+                    + " WHERE " + knowledgePredicate(ragTag))) {
+                log.warn("BIZ_WARN: op=ensurePartition, action=invalid, ragTag={}, index={}",
+                        ragTag, partitionIndexName(ragTag));
+                return;
+            }
+            partitionedTags.add(ragTag);
+            unpartitionedTags.invalidate(ragTag);
+            log.info("BIZ_INFO: op=ensurePartition, action=created, ragTag={}, rows={}, costMs={}",
+                    ragTag, rows, System.currentTimeMillis() - startTime);
+        } catch (Exception e) {
+            log.warn("BIZ_WARN: op=ensurePartition, action=create-error, ragTag={}", ragTag, e);
+        }
+    }
+
+    /**
+     * 应用启动后在后台建立标签索引，并为已有标签补建分区索引
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void initializePartitions() {
+        if (!properties.isPartitioned()) {
+            return;
+        }
+        Thread thread = new Thread(() -> {
+            try {
+                if (!ensureValidIndex(tableName + "_knowledge_idx", "((metadata->>'knowledge'))")) {
+                    log.warn("BIZ_WARN: op=initPartitions, action=knowledge-index-invalid, table={}", qualifiedTable);
+                }
+                List<String> tags = new ArrayList<>(redissonClient.<String>getSet(RegistryCache.RAG_TAGS_KEY, StringCodec.INSTANCE));
+                tags.forEach(this::ensurePartition);
+                log.info("BIZ_INFO: op=initPartitions, tags={}, partitioned={}", tags.size(), partitionedTags.size());
+            } catch (Exception e) {
+                log.warn("BIZ_WARN: op=initPartitions, action=error, table={}", qualifiedTable, e);
+            }
+        }, "vector-partition-init");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * 建立索引并确认其有效
+     *
+     * <p>CREATE INDEX CONCURRENTLY 中途失败（如被取消、唯一性冲突、连接断开）时会留下无效索引，
+     * IF NOT EXISTS 会把它当作已存在而直接返回，因此建立前检查 pg_index.indisvalid，
+     * 无效时先删除再重建。其他节点正在建立同一索引时（同样显示为无效）跳过，不删除对方的索引。</p>
+     *
+     * @param indexName  索引名，与表在同一schema
+     * @param definition ON 表名 之后的索引定义
+     * @return 索引存在且有效时返回true
+     */
+    private boolean ensureValidIndex(String indexName, String definition) {
+        Boolean valid = isIndexValid(indexName);
+        if (Boolean.TRUE.equals(valid)) {
+            return true;
+        }
+        RLock lock = redissonClient.getLock(INDEX_LOCK_PREFIX + indexName);
+        if (!lock.tryLock()) {
+            log.info("BIZ_INFO: op=ensureIndex, action=skip-building-elsewhere, index={}", indexName);
+            return false;
+        }
+        try {
+            valid = isIndexValid(indexName);
+            if (Boolean.FALSE.equals(valid)) {
+                log.warn("BIZ_WARN: op=ensureIndex, action=drop-invalid, index={}", indexName);
+                jdbcTemplate.execute("DROP INDEX CONCURRENTLY IF EXISTS " + schemaName + "." + indexName);
+            }
+            if (!Boolean.TRUE.equals(valid)) {
+                jdbcTemplate.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + indexName
+                        + " ON " + qualifiedTable + " " + definition);
+                valid = isIndexValid(indexName);
+            }
+            return Boolean.TRUE.equals(valid);
+        } finally {
+            if (lock.isHeldByCurrentThread()) {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return 索引有效时返回true，无效时返回false，不存在时返回null
+     */
+    private Boolean isIndexValid(String indexName) {
+        List<Boolean> valid = jdbcTemplate.queryForList("SELECT i.indisvalid FROM pg_index i"
+                + " JOIN pg_class c ON c.oid = i.indexrelid"
+                + " JOIN pg_namespace n ON n.oid = c.relnamespace"
+                + " WHERE n.nspname = ? AND c.relname = ?", Boolean.class, schemaName, indexName);
+        return valid.isEmpty() ? null : valid.get(0);
+    }
+
+    private String partitionIndexName(String ragTag) {
+        return tableName + "_knowledge_" + Hashing.sha256().hashString(ragTag, StandardCharsets.UTF_8)
+                .toString().substring(0, 16);
+    }
+
+    /**
+     * 标签过滤条件，单引号按SQL标准转义
+     */
+    private static String knowledgePredicate(String ragTag) {
+        return "metadata->>'knowledge' = '" + ragTag.replace("'", "''") + "'";
+    }
+
+    private Map<String, Object> readMetadata(String json) {
+        try {
+            return json != null ? objectMapper.readValue(json, new TypeReference<Map<String, Object>>() {})
+                    : new HashMap<>();
+        } catch (Exception e) {
+            log.warn("BIZ_WARN: op=partitionSearch, action=metadata-parse-error", e);
+            return new HashMap<>();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        fanOutExecutor.shutdownNow();
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.lcx.trigger.vector;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 向量检索配置属性类
+ *
+ * <p>配置前缀：rag.vector</p>
+ * <p>控制按知识库标签分区检索的行为，以及检索参数的全局默认值（可按请求覆盖）。</p>
+ *
+ * <p>使用示例（application.yml）：</p>
+ * <pre>
+ * rag:
+ *   vector:
+ *     partitioned: true
+ *     partition-min-rows: 1000
+ *     top-k: 5
+ *     ef-search: 40
+ *     similarity-threshold: 0.0
+ *     fan-out-workers: 8
+ *     fan-out-queue-capacity: 64
+ *     hot:
+ *       enabled: true
+ *       tags: [my-project-docs]
+ * </pre>
+ *
+ * @author lcx
+ * @version 1.0
+ * @since 1.1
+ */
+@Data
+@ConfigurationProperties(prefix = "rag.vector", ignoreInvalidFields = true)
+public class VectorSearchProperties {
+
+    /**
+     * 是否按知识库标签分区检索，默认为true
+     * <p>开启后指定标签的检索只访问该标签的分区索引，关闭时使用向量库的元数据过滤</p>
+     */
+    private boolean partitioned = true;
+
+    /**
+     * 为标签单独建立HNSW分区索引的最小文本块数，默认为1000
+     * <p>文本块更少的标签通过标签索引定位后精确计算距离，结果完全准确且耗时与标签规模成正比</p>
+     */
+    private long partitionMinRows = 1000;
+
+    /**
+     * 默认返回的文档数，默认为5
+     */
+    private int topK = 5;
+
+    /**
+     * 默认的HNSW检索候选列表大小（hnsw.ef_search），默认为40（pgvector默认值）
+     * <p>越大召回率越高、延迟越大，可使用 VectorSearchBenchmark 在测试数据上选取合适的值</p>
+     */
+    private int efSearch = 40;
+
+    /**
+     * 默认的相似度阈值，默认为0（不过滤）
+     */
+    private double similarityThreshold = 0.0;
+
+    /**
+     * 多标签并发检索的线程数，默认为8
+     * <p>每个线程检索时占用一个数据库连接，应小于连接池大小</p>
+     */
+    private int fanOutWorkers = 8;
+
+    /**
+     * 多标签并发检索的等待队列容量，默认为64，队列已满时由请求线程直接检索
+     */
+    private int fanOutQueueCapacity = 64;
+
+    /**
+     * 热点标签内存索引配置
+     */
+    private HotProperties hot = new HotProperties();
+
+    /**
+     * 热点标签内存索引配置属性
+     *
+     * <p>为访问最频繁的少数标签在应用内存中建立HNSW索引，检索这些标签时不访问数据库。
+     * 向量存放在堆外内存中，每个文本块约占 维度 × 4 字节，受 -XX:MaxDirectMemorySize 限制。</p>
+     */
+    @Data
+    public static class HotProperties {
+
+        /**
+         * 是否启用热点标签内存索引，默认为false
+         */
+        private boolean enabled = false;
+
+        /**
+         * 载入内存索引的标签
+         */
+        private List<String> tags = new ArrayList<>();
+
+        /**
+         * 单个标签允许载入的最大文本块数，默认为50000，超出的标签不载入并继续使用数据库检索
+         */
+        private int maxChunks = 50000;
+
+        /**
+         * 每个节点的邻居数（第0层为其两倍），默认为16，与pgvector的HNSW索引默认值相同
+         */
+        private int m = 16;
+
+        /**
+         * 建图时的候选列表大小，默认为64，与pgvector的HNSW索引默认值相同
+         */
+        private int efConstruction = 64;
+
+        /**
+         * 检查标签版本号的间隔，默认为30秒
+         * <p>任一节点导入文档后标签版本号递增，各节点在下次检查时重新载入该标签</p>
+         */
+        private Duration syncInterval = Duration.ofSeconds(30);
+
+    }
+
+}
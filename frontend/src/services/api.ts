@@ -1,4 +1,4 @@
-import { ApiResponse, ChatRequest, RagChatRequest, GitRepositoryRequest } from '../types';
+import { ApiResponse, ChatRequest, RagChatRequest, GitRepositoryRequest, IngestionJobStatus } from '../types';
 import { createStreamParser, parseSSELine } from '../utils/streamParser';
 import { createNetworkError, createApiError, logError } from '../utils/errorHandler';
 
@@ -19,6 +19,9 @@ function ensureOk(response: Response) {
   }
 }
 
+// 导入任务状态轮询间隔
+const JOB_POLL_INTERVAL_MS = 1000;
+
 // 适配后端可能返回的成功码（2000 或 20000）
 const isSuccessCode = (code: string | undefined) => code === '2000' || code === '20000';
 
@@ -78,9 +81,9 @@ export class ApiService {
   /**
    * 分析 Git 仓库并导入知识库
    *
-   * 向后端触发 Git 仓库分析流程，返回后端处理结果字符串。
+   * 向后端提交 Git 仓库导入任务，并等待任务结束。
    * @param request Git 仓库分析请求体
-   * @returns 后端返回的结果描述字符串
+   * @returns 任务完成后的结果描述字符串
    */
   static async analyzeGitRepository(request: GitRepositoryRequest): Promise<string> {
     try {
@@ -97,7 +100,7 @@ export class ApiService {
       if (!isSuccessCode(result.code)) {
         throw createApiError(result.info);
       }
-      return result.data;
+      return await ApiService.waitForIngestionJob(result.data);
     } catch (error) {
       logError(error, 'analyzeGitRepository');
       if (error instanceof Error && error.message.includes('fetch')) {
@@ -111,7 +114,7 @@ export class ApiService {
    * 流式聊天（使用统一解析器）
    */
   static async *streamChat(request: ChatRequest, abortSignal?: AbortSignal): AsyncGenerator<{content: string, thinking?: string}, void, unknown> {
-    const response = await fetch(`${API_BASE_URL}/chat/generate_stream`, {
+    const response = await fetch(`${API_BASE_URL}/chat/generate_stream_delta`, {
       method: 'POST',
       headers: {
         'Content-Type': 'application/json',
@@ -190,7 +193,7 @@ export class ApiService {
    * RAG流式聊天（使用统一解析器）
    */
   static async *streamRagChat(request: RagChatRequest, abortSignal?: AbortSignal): AsyncGenerator<{content: string, thinking?: string}, void, unknown> {
-    const response = await fetch(`${API_BASE_URL}/chat/generate_stream_rag`, {
+    const response = await fetch(`${API_BASE_URL}/chat/generate_stream_rag_delta`, {
       method: 'POST',
       headers: {
         'Content-Type': 'application/json',
@@ -288,7 +291,7 @@ export class ApiService {
         throw createApiError(result.info);
       }
       
-      return result.data;
+      return await ApiService.waitForIngestionJob(result.data);
     } catch (error) {
       logError(error, 'uploadFiles');
       if (error instanceof Error && error.message.includes('fetch')) {
@@ -297,4 +300,38 @@ export class ApiService {
       throw error;
     }
   }
-}
\ No newline at end of file
+
+  /**
+   * 查询导入任务状态
+   */
+  static async getIngestionJob(jobId: string): Promise<IngestionJobStatus> {
+    const response = await withTimeout(`${API_BASE_URL}/rag/ingestion/job/${encodeURIComponent(jobId)}`);
+    ensureOk(response);
+    const result: ApiResponse<IngestionJobStatus> = await response.json();
+    if (!isSuccessCode(result.code)) {
+      throw createApiError(result.info);
+    }
+    return result.data;
+  }
+
+  /**
+   * 轮询导入任务直到结束
+   *
+   * @param jobId 导入任务ID
+   * @param onProgress 每次查询到状态时的回调（可选）
+   * @returns 任务成功时的结果描述，失败时抛出错误
+   */
+  static async waitForIngestionJob(jobId: string, onProgress?: (status: IngestionJobStatus) => void): Promise<string> {
+    for (;;) {
+      const status = await ApiService.getIngestionJob(jobId);
+      onProgress?.(status);
+      if (status.state === 'SUCCEEDED') {
+        return status.message ?? '';
+      }
+      if (status.state === 'FAILED') {
+        throw createApiError(status.message ?? '导入任务失败');
+      }
+      await new Promise(resolve => setTimeout(resolve, JOB_POLL_INTERVAL_MS));
+    }
+  }
+}
@@ -33,6 +33,35 @@ export interface ChatRequest {
  */
 export interface RagChatRequest extends ChatRequest {
   ragTag: string;
+  /** 同时检索的多个标签，与 ragTag 合并后去重 */
+  ragTags?: string[];
+  /** 可选的检索参数，未指定的字段使用服务端配置 */
+  searchOptions?: RagSearchOptions;
+}
+
+/**
+ * 增量流式接口的SSE事件数据
+ */
+export interface ChatStreamFrame {
+  /** 新增的回复文本 */
+  delta?: string;
+  /** 结束帧标志，结束原因与token用量只在结束帧中出现 */
+  done?: boolean;
+  finishReason?: string;
+  promptTokens?: number;
+  completionTokens?: number;
+  totalTokens?: number;
+}
+
+/**
+ * RAG检索参数
+ */
+export interface RagSearchOptions {
+  topK?: number;
+  /** HNSW候选列表大小，越大召回率越高、延迟越大 */
+  efSearch?: number;
+  /** 相似度阈值（0-1） */
+  similarityThreshold?: number;
 }
 
 /**
@@ -117,6 +146,26 @@ export interface GitRepositoryRequest {
   token?: string;
 }
 
+/**
+ * 知识库导入任务状态
+ *
+ * 文件上传与 Git 仓库导入以后台任务执行，接口返回任务ID，通过该结构查询进度。
+ */
+export interface IngestionJobStatus {
+  jobId: string;
+  /** 任务类型：upload 或 git */
+  type: string;
+  ragTag: string;
+  state: 'QUEUED' | 'RUNNING' | 'SUCCEEDED' | 'FAILED';
+  files: number;
+  chunks: number;
+  errors: number;
+  elapsedMs: number;
+  /** 阶段描述，结束后为导入结果或失败原因 */
+  message?: string;
+  finished: boolean;
+}
+
 /**
  * 应用状态
  */
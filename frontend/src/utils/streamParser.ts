@@ -21,6 +21,7 @@ export interface ParsedStreamData {
  * 通用流式数据解析器
  * 
  * 支持多种常见的流式响应格式：
+ * - 增量格式（generate_stream_delta 等接口）：{ delta }，结束帧为 { done: true, finishReason, ...用量 }
  * - OpenAI 格式：{ choices: [{ delta: { content } }] }
  * - Anthropic 格式：{ delta: { text } }
  * - 自定义格式：{ result: { output: { text } } }
@@ -33,6 +34,11 @@ export class StreamParser {
    * 解析流式JSON数据，提取内容
    */
   parseContent(parsed: any): string {
+    // 优先级0: 增量格式，无需逐级探测
+    if (typeof parsed.delta === 'string') {
+      return parsed.delta;
+    }
+
     // 优先级1: 标准化的 result.output.text
     if (parsed.result?.output?.text) {
       return parsed.result.output.text;